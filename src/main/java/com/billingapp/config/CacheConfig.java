@@ -0,0 +1,58 @@
+package com.billingapp.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+/**
+ * Bounded Caffeine caches replacing the default unbounded ConcurrentMapCaches.
+ * Every cache records hit/miss/eviction statistics (see /api/metrics/caches).
+ */
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+
+    @Bean
+    public CacheManager cacheManager(CacheProperties properties) {
+        CaffeineCacheManager manager = new CaffeineCacheManager();
+        manager.setCaffeine(builder(properties.getDefaults()));
+
+        for (Map.Entry<String, CacheProperties.Spec> entry : properties.getSpecs().entrySet()) {
+            CacheProperties.Spec spec = entry.getValue();
+            manager.registerCustomCache(entry.getKey(), builder(spec).build());
+            log.info("Cache '{}' configured: {}, ttl={}", entry.getKey(),
+                    spec.getMaxWeight() != null ? "maxWeight=" + spec.getMaxWeight() : "maxSize=" + spec.getMaxSize(),
+                    spec.getTtl());
+        }
+        return manager;
+    }
+
+    private Caffeine<Object, Object> builder(CacheProperties.Spec spec) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats();
+        if (spec.getMaxWeight() != null) {
+            builder.maximumWeight(spec.getMaxWeight().toBytes())
+                    .weigher((Object key, Object value) -> weigh(value));
+        } else if (spec.getMaxSize() != null) {
+            builder.maximumSize(spec.getMaxSize());
+        }
+        if (spec.getTtl() != null) {
+            builder.expireAfterWrite(spec.getTtl());
+        }
+        return builder;
+    }
+
+    // Byte arrays (rendered PDFs) weigh their length; anything else counts as 1 KB
+    private static int weigh(Object value) {
+        if (value instanceof byte[] bytes) {
+            return Math.max(1, bytes.length);
+        }
+        return 1024;
+    }
+}
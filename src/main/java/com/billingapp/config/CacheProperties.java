@@ -0,0 +1,29 @@
+package com.billingapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-cache bounds, bound from "app.cache.*".
+ * A cache is bounded either by entry count (max-size) or by total byte weight (max-weight);
+ * caches without their own spec ({@code app.cache.specs.<name>.*}) use {@code app.cache.defaults.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.cache")
+public class CacheProperties {
+
+    private Spec defaults = new Spec();
+    private Map<String, Spec> specs = new LinkedHashMap<>();
+
+    @Data
+    public static class Spec {
+        private Long maxSize = 500L;
+        private DataSize maxWeight;   // when set, entries are weighed by their byte size instead of counted
+        private Duration ttl = Duration.ofMinutes(30);
+    }
+}
@@ -0,0 +1,30 @@
+package com.billingapp.config;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counters for list/query caches.
+ * List results are cached under a key that embeds the current version
+ * (e.g. {@code key = "'all:v' + @cacheVersions.current('invoices')"}); a write bumps the version,
+ * so the next read misses and old list entries simply age out of the bounded cache,
+ * while the by-id caches stay warm.
+ */
+@Component("cacheVersions")
+public class CacheVersions {
+
+    public static final String INVOICES = "invoices";
+    public static final String CLIENTS = "clients";
+
+    private final ConcurrentHashMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    public long current(String name) {
+        return versions.computeIfAbsent(name, k -> new AtomicLong()).get();
+    }
+
+    public long bump(String name) {
+        return versions.computeIfAbsent(name, k -> new AtomicLong()).incrementAndGet();
+    }
+}
@@ -0,0 +1,171 @@
+package com.billingapp.config;
+
+import com.billingapp.util.LatencyHistogram;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Named executor for parallel blocking I/O (Mongo repository fan-outs).
+ * <p>
+ * Every task runs on its own virtual thread, so blocked Mongo calls never occupy the common
+ * ForkJoinPool. A semaphore caps how many tasks hit the database at once; tasks waiting for a
+ * permit are reported as the queue depth. {@link #joinAll} enforces a per-request timeout and
+ * cancels the remaining branches as soon as one fails.
+ */
+@Slf4j
+@Component
+public class FanoutExecutor implements DisposableBean {
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final Duration defaultTimeout;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LatencyHistogram waitLatency = new LatencyHistogram();
+    private final LatencyHistogram taskLatency = new LatencyHistogram();
+
+    public FanoutExecutor(@Value("${app.fanout.max-concurrency:32}") int maxConcurrency,
+                          @Value("${app.fanout.timeout:10s}") Duration defaultTimeout) {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("io-fanout-", 0).factory());
+        this.permits = new Semaphore(maxConcurrency);
+        this.maxConcurrency = maxConcurrency;
+        this.defaultTimeout = defaultTimeout;
+        log.info("I/O fan-out executor ready: virtual threads, max {} concurrent tasks, default timeout {}", maxConcurrency, defaultTimeout);
+    }
+
+    /**
+     * Runs {@code task} on a virtual thread. Cancelling the returned future interrupts the task.
+     * The caller's MDC (trace id, user) is carried over so fan-out logs stay correlated.
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        long enqueuedAt = System.nanoTime();
+
+        submitted.increment();
+        queued.incrementAndGet();
+        Future<?> running = executor.submit(() -> {
+            boolean acquired = false;
+            if (mdc != null) MDC.setContextMap(mdc);
+            try {
+                permits.acquire();
+                acquired = true;
+                queued.decrementAndGet();
+                active.incrementAndGet();
+                long startedAt = System.nanoTime();
+                waitLatency.record(TimeUnit.NANOSECONDS.toMillis(startedAt - enqueuedAt));
+                if (!result.isDone()) {
+                    result.complete(task.get());
+                }
+                taskLatency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(new CancellationException("Fan-out task interrupted"));
+            } catch (Throwable t) {
+                failed.increment();
+                result.completeExceptionally(t);
+            } finally {
+                if (acquired) {
+                    active.decrementAndGet();
+                    permits.release();
+                } else {
+                    queued.decrementAndGet();
+                }
+                MDC.clear();
+            }
+        });
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled()) running.cancel(true);
+        });
+        return result;
+    }
+
+    public void joinAll(CompletableFuture<?>... tasks) {
+        joinAll(defaultTimeout, tasks);
+    }
+
+    /**
+     * Waits for every task. The first failure cancels the other branches and is rethrown;
+     * exceeding {@code timeout} cancels everything still running.
+     */
+    public void joinAll(Duration timeout, CompletableFuture<?>... tasks) {
+        for (CompletableFuture<?> task : tasks) {
+            task.whenComplete((r, e) -> {
+                if (e != null) cancelAll(tasks);
+            });
+        }
+        try {
+            CompletableFuture.allOf(tasks).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timedOut.increment();
+            cancelAll(tasks);
+            log.warn("I/O fan-out of {} tasks exceeded its {} ms budget; remaining branches cancelled", tasks.length, timeout.toMillis());
+            throw new IllegalStateException("I/O fan-out timed out after " + timeout.toMillis() + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelAll(tasks);
+            throw new IllegalStateException("Interrupted while waiting for I/O fan-out");
+        } catch (ExecutionException e) {
+            cancelAll(tasks);
+            Throwable cause = firstFailure(tasks, e.getCause());
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IllegalStateException("I/O fan-out failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    private void cancelAll(CompletableFuture<?>[] tasks) {
+        for (CompletableFuture<?> task : tasks) {
+            if (task.cancel(true)) cancelled.increment();
+        }
+    }
+
+    // allOf reports whichever failure it saw; prefer the real error over the cancellations it caused
+    private Throwable firstFailure(CompletableFuture<?>[] tasks, Throwable fallback) {
+        for (CompletableFuture<?> task : tasks) {
+            if (task.isCompletedExceptionally() && !task.isCancelled()) {
+                try {
+                    task.getNow(null);
+                } catch (CompletionException ce) {
+                    return ce.getCause() != null ? ce.getCause() : ce;
+                }
+            }
+        }
+        return fallback;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrency", maxConcurrency);
+        stats.put("queueDepth", queued.get());
+        stats.put("active", active.get());
+        stats.put("submitted", submitted.sum());
+        stats.put("failed", failed.sum());
+        stats.put("cancelled", cancelled.sum());
+        stats.put("timedOut", timedOut.sum());
+        stats.put("queueWait", waitLatency.snapshot());
+        stats.put("taskLatency", taskLatency.snapshot());
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
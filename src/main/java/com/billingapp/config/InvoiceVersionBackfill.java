@@ -0,0 +1,43 @@
+package com.billingapp.config;
+
+import com.billingapp.entity.Invoice;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Gives invoices written before {@code Invoice.version} existed a version of 0.
+ * <p>
+ * Spring Data treats an entity with a null {@code @Version} as new, so saving such an invoice through the
+ * repository would attempt an insert. The versioned writes in InvoiceServiceImpl also accept a missing field,
+ * so the app works before this has run; once every document has a version, this is a no-op count.
+ */
+@Slf4j
+@Component
+public class InvoiceVersionBackfill {
+
+    private final MongoTemplate mongoTemplate;
+
+    public InvoiceVersionBackfill(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        try {
+            long updated = mongoTemplate.updateMulti(new Query(where("version").exists(false)),
+                    new Update().set("version", 0L), Invoice.class).getModifiedCount();
+            if (updated > 0) {
+                log.info("Invoice version backfill: {} invoices set to version 0", updated);
+            }
+        } catch (Exception e) {
+            log.error("Invoice version backfill failed: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.billingapp.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Startup check of the indexes declared on the entities ({@code @Indexed}, {@code @CompoundIndex}).
+ * <p>
+ * Replaces Spring Data's auto-index-creation, which aborts startup when an index cannot be built
+ * (e.g. a unique index over legacy duplicate document numbers). Here every declared index is compared
+ * with the collection by key pattern and its {@code unique} / {@code sparse} options; missing ones are created
+ * ({@code app.mongo.indexes.create-missing}), and failures are reported instead of thrown. An existing index with
+ * the right keys but other options (e.g. not unique) is reported as missing: it has to be dropped by hand before
+ * the declared one can be built, and until then the constraint is not enforced. The report also lists indexes that exist but are not
+ * declared, and indexes with no recorded use in {@code $indexStats} (counters reset when mongod restarts).
+ */
+@Slf4j
+@Component
+public class MongoIndexVerifier {
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final boolean createMissing;
+
+    private final AtomicReference<Map<String, Object>> lastReport = new AtomicReference<>();
+
+    public MongoIndexVerifier(MongoTemplate mongoTemplate,
+                              @Value("${app.mongo.indexes.verify:true}") boolean enabled,
+                              @Value("${app.mongo.indexes.create-missing:true}") boolean createMissing) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.createMissing = createMissing;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void verifyOnStartup() {
+        if (!enabled) {
+            log.info("Mongo index verification disabled");
+            return;
+        }
+        try {
+            verify(createMissing);
+        } catch (Exception e) {
+            log.error("Mongo index verification failed: " + e.getMessage(), e);
+        }
+    }
+
+    /** Compares declared and existing indexes of every entity collection, optionally creating the missing ones. */
+    public Map<String, Object> verify(boolean create) {
+        long startTime = System.currentTimeMillis();
+        MongoMappingContext mappingContext = (MongoMappingContext) mongoTemplate.getConverter().getMappingContext();
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+
+        Map<String, Object> collections = new TreeMap<>();
+        int missingTotal = 0;
+        int createdTotal = 0;
+        int unusedTotal = 0;
+        for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(org.springframework.data.mongodb.core.mapping.Document.class)) continue;
+            String collection = entity.getCollection();
+
+            Map<String, Document> existing = new LinkedHashMap<>(); // key pattern -> index document
+            for (Document index : mongoTemplate.getCollection(collection).listIndexes()) {
+                existing.put(keyPattern(index.get("key", Document.class)), index);
+            }
+
+            List<String> created = new ArrayList<>();
+            List<Map<String, Object>> missing = new ArrayList<>();
+            Set<String> declaredPatterns = new HashSet<>();
+            for (IndexDefinition definition : resolver.resolveIndexFor(entity.getTypeInformation())) {
+                String pattern = keyPattern(definition.getIndexKeys());
+                declaredPatterns.add(pattern);
+                String name = String.valueOf(definition.getIndexOptions().getOrDefault("name", pattern));
+                Document current = existing.get(pattern);
+                if (current != null) {
+                    String mismatch = optionMismatch(definition.getIndexOptions(), current);
+                    if (mismatch != null) {
+                        log.error("Index {} on {} exists with other options ({}); the declared constraint is not enforced",
+                                current.getString("name"), collection, mismatch);
+                        missing.add(Map.of("name", name, "keys", pattern, "error", "options differ: " + mismatch));
+                    }
+                    continue;
+                }
+
+                if (!create) {
+                    missing.add(Map.of("name", name, "keys", pattern));
+                    continue;
+                }
+                try {
+                    mongoTemplate.indexOps(collection).ensureIndex(definition);
+                    created.add(name);
+                    log.info("Created index {} on {} {}", name, collection, pattern);
+                } catch (Exception e) {
+                    // Typically E11000: existing documents violate a unique index; fix the data and restart
+                    log.error("Index {} on {} could not be created: {}", name, collection, e.getMessage());
+                    missing.add(Map.of("name", name, "keys", pattern, "error", String.valueOf(e.getMessage())));
+                }
+            }
+
+            List<String> undeclared = new ArrayList<>();
+            existing.forEach((pattern, index) -> {
+                if (!"_id_".equals(index.getString("name")) && !declaredPatterns.contains(pattern)) {
+                    undeclared.add(index.getString("name"));
+                }
+            });
+
+            Object unused = unusedIndexes(collection);
+            if (unused instanceof List<?> list) unusedTotal += list.size();
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("declared", declaredPatterns.size());
+            report.put("created", created);
+            report.put("missing", missing);
+            report.put("undeclared", undeclared);
+            report.put("unused", unused);
+            collections.put(collection, report);
+
+            missingTotal += missing.size();
+            createdTotal += created.size();
+            if (!missing.isEmpty()) {
+                log.warn("Collection {} is missing {} declared index(es): {}", collection, missing.size(), missing);
+            }
+            if (!undeclared.isEmpty()) {
+                log.info("Collection {} has index(es) not declared on the entity: {}", collection, undeclared);
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("verifiedAt", Instant.now());
+        report.put("created", createdTotal);
+        report.put("missing", missingTotal);
+        report.put("unused", unusedTotal);
+        report.put("collections", collections);
+        lastReport.set(report);
+        log.info("Mongo index verification: {} collections, {} created, {} missing, {} unused, in {} ms",
+                collections.size(), createdTotal, missingTotal, unusedTotal, System.currentTimeMillis() - startTime);
+        return report;
+    }
+
+    public Map<String, Object> report() {
+        Map<String, Object> report = lastReport.get();
+        return report != null ? report : verify(false);
+    }
+
+    // Indexes (other than _id_) without a single access since the counters were reset
+    private Object unusedIndexes(String collection) {
+        try {
+            List<Map<String, Object>> unused = new ArrayList<>();
+            for (Document stats : mongoTemplate.getCollection(collection).aggregate(List.of(new Document("$indexStats", new Document())))) {
+                Document accesses = stats.get("accesses", Document.class);
+                if ("_id_".equals(stats.getString("name")) || accesses == null) continue;
+                Number ops = accesses.get("ops", Number.class);
+                if (ops == null || ops.longValue() == 0) {
+                    unused.add(Map.of("name", stats.getString("name"), "since", String.valueOf(accesses.get("since"))));
+                }
+            }
+            return unused;
+        } catch (Exception e) {
+            // $indexStats needs the indexStats privilege, which plain readWrite users lack
+            return "unavailable: " + e.getMessage();
+        }
+    }
+
+    // Null if the existing index has the declared unique / sparse flags, else a description of the difference
+    private static String optionMismatch(Document declared, Document existing) {
+        StringJoiner mismatch = new StringJoiner(", ");
+        for (String option : List.of("unique", "sparse")) {
+            boolean want = Boolean.TRUE.equals(declared.get(option));
+            boolean have = Boolean.TRUE.equals(existing.get(option));
+            if (want != have) {
+                mismatch.add(option + " declared " + want + ", existing " + have);
+            }
+        }
+        return mismatch.length() > 0 ? mismatch.toString() : null;
+    }
+
+    // "field:1,other:-1", with numeric directions normalised (1 and 1.0 compare equal)
+    private static String keyPattern(Document keys) {
+        StringJoiner pattern = new StringJoiner(",");
+        if (keys != null) {
+            keys.forEach((field, direction) -> pattern.add(field + ":"
+                    + (direction instanceof Number n ? String.valueOf(n.intValue()) : String.valueOf(direction))));
+        }
+        return pattern.toString();
+    }
+}
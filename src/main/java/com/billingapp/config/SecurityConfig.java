@@ -2,6 +2,7 @@ package com.billingapp.config;
 
 import com.billingapp.security.JwtAuthenticationFilter;
 import com.billingapp.service.CustomUserDetailsService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -35,6 +36,7 @@ public class SecurityConfig {
     }
 
     @Bean
+    @ConditionalOnWebApplication // the headless worker profile has no HTTP layer to secure
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
             .csrf(csrf -> csrf.disable())
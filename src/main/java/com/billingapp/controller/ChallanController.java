@@ -1,14 +1,25 @@
 package com.billingapp.controller;
 
 import com.billingapp.entity.Challan;
+import com.billingapp.event.DocumentSavedEvent;
 import com.billingapp.repository.ChallanRepository;
+import com.billingapp.service.DocumentJobService;
+import com.billingapp.service.DocumentNumberService;
+import com.billingapp.service.RenderedDocumentCache;
+import org.springframework.core.io.InputStreamResource;
 import com.billingapp.service.impl.ChallanPdfServiceImpl;
+import com.billingapp.service.CollectionExportService;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -18,10 +29,20 @@ public class ChallanController {
 
     private final ChallanRepository repository;
     private final ChallanPdfServiceImpl pdfService;
-
-    public ChallanController(ChallanRepository repository, ChallanPdfServiceImpl pdfService) {
+    private final ApplicationEventPublisher eventPublisher;
+    private final DocumentJobService jobService;
+    private final CollectionExportService exportService;
+    private final DocumentNumberService numberService;
+
+    public ChallanController(ChallanRepository repository, ChallanPdfServiceImpl pdfService, ApplicationEventPublisher eventPublisher,
+                             DocumentJobService jobService, CollectionExportService exportService,
+                             DocumentNumberService numberService) {
         this.repository = repository;
         this.pdfService = pdfService;
+        this.eventPublisher = eventPublisher;
+        this.jobService = jobService;
+        this.exportService = exportService;
+        this.numberService = numberService;
     }
 
     @GetMapping
@@ -29,31 +50,38 @@ public class ChallanController {
         return repository.findAll();
     }
 
+    // Streams the whole collection as NDJSON or CSV (constant heap); from/to filter on the challan date
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        return exportService.download(Challan.class, "challans", "challanDate", exportService::startOfDayDate, format, from, to);
+    }
+
     @PostMapping
     public ResponseEntity<?> create(@RequestBody Challan challan) {
         // 1. Audit Fields
         challan.setCreatedAt(Instant.now());
         challan.setUpdatedAt(Instant.now());
 
-        // 🟢 MANUAL CHANGE: Validate that a manual challan number was provided
-        if (challan.getChallanNo() == null || challan.getChallanNo().trim().isEmpty()) {
-            return ResponseEntity.badRequest().body("Error: Challan Number is required for manual entry.");
-        }
-
-        // 🟢 MANUAL CHANGE: Check for uniqueness to prevent duplicates
-        if (repository.existsByChallanNo(challan.getChallanNo())) {
+        // 🟢 A typed-in challan number is kept; otherwise the next one of the challan date's financial year
+        // (uniqueness is enforced by the challanNo index)
+        Challan saved;
+        try {
+            saved = numberService.saveNumbered(DocumentNumberService.CHALLAN, challan.getChallanNo(),
+                    () -> numberService.next(DocumentNumberService.CHALLAN,
+                            challan.getChallanDate() != null ? challan.getChallanDate().toInstant() : null),
+                    number -> {
+                        challan.setChallanNo(number);
+                        return repository.save(challan);
+                    });
+        } catch (DuplicateKeyException e) {
             return ResponseEntity.badRequest().body("Error: Challan Number " + challan.getChallanNo() + " already exists.");
         }
-
-        /* 👇 COMMENTED OUT: Auto-Generation Logic
-        if (challan.getChallanNo() == null || challan.getChallanNo().trim().isEmpty() || repository.existsByChallanNo(challan.getChallanNo())) {
-             String nextNo = generateNextChallanNo();
-             ...
-             challan.setChallanNo(nextNo);
-        }
-        */
-
-        return ResponseEntity.ok(repository.save(challan));
+        eventPublisher.publishEvent(DocumentSavedEvent.of(RenderedDocumentCache.TYPE_CHALLAN, saved.getId()));
+        return ResponseEntity.ok(saved);
     }
 
     @PutMapping("/{id}")
@@ -64,11 +92,17 @@ public class ChallanController {
             req.setUpdatedAt(Instant.now());
             
             // 🟢 MANUAL CHANGE: Prevent changing Challan No to a duplicate that belongs to another record
-            if (!existing.getChallanNo().equals(req.getChallanNo()) && repository.existsByChallanNo(req.getChallanNo())) {
+            Challan saved;
+            try {
+                saved = repository.save(req);
+            } catch (DuplicateKeyException e) {
                 return ResponseEntity.badRequest().body("Error: Challan Number already exists.");
             }
-
-            return ResponseEntity.ok(repository.save(req));
+            if (saved.getChallanNo() != null && !saved.getChallanNo().equals(existing.getChallanNo())) {
+                numberService.observe(DocumentNumberService.CHALLAN, saved.getChallanNo());
+            }
+            eventPublisher.publishEvent(DocumentSavedEvent.of(RenderedDocumentCache.TYPE_CHALLAN, saved.getId()));
+            return ResponseEntity.ok(saved);
         }).orElse(ResponseEntity.notFound().build());
     }
 
@@ -83,22 +117,15 @@ public class ChallanController {
     }
 
     @GetMapping("/{id}/pdf")
-    public ResponseEntity<byte[]> getPdf(@PathVariable String id) throws Exception {
-        byte[] pdf = pdfService.generateChallanPdf(id);
+    public ResponseEntity<?> getPdf(@PathVariable String id, @RequestParam(value = "async", defaultValue = "false") boolean async) throws Exception {
+        if (async) {
+            return ResponseEntity.accepted().body(jobService.describe(jobService.enqueuePdf(RenderedDocumentCache.TYPE_CHALLAN, id)));
+        }
+        RenderedDocumentCache.Rendered pdf = pdfService.openChallanPdf(id);
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=challan_" + id + ".pdf")
                 .contentType(MediaType.APPLICATION_PDF)
-                .body(pdf);
-    }
-
-    /* 👇 COMMENTED OUT: Auto-Generation Logic Methods
-    
-    private String generateNextChallanNo() {
-        ...
-    }
-
-    private String incrementChallanNo(String current) {
-        ...
+                .contentLength(pdf.length())
+                .body(new InputStreamResource(pdf.stream()));
     }
-    */
 }
\ No newline at end of file
@@ -3,12 +3,20 @@ package com.billingapp.controller;
 import com.billingapp.dto.ClientDTO;
 import com.billingapp.dto.ClientProfileDTO; // 👈 Added Import
 import com.billingapp.dto.CreateClientRequest;
+import com.billingapp.dto.CursorPage;
+import com.billingapp.entity.Invoice;
 import com.billingapp.service.ClientService;
+import com.billingapp.service.StatementService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -17,9 +25,11 @@ import java.util.List;
 public class ClientController {
 
     private final ClientService service;
+    private final StatementService statementService;
 
-    public ClientController(ClientService service) {
+    public ClientController(ClientService service, StatementService statementService) {
         this.service = service;
+        this.statementService = statementService;
     }
 
     @PostMapping
@@ -48,6 +58,32 @@ public class ClientController {
         return ResponseEntity.ok(service.getClientProfile(id));
     }
 
+    // Full invoice history, newest first; pass back "nextCursor" as "cursor" for the next page
+    @GetMapping("/{id}/invoices")
+    public ResponseEntity<CursorPage<Invoice>> getClientInvoices(
+            @PathVariable String id,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size
+    ) {
+        return ResponseEntity.ok(service.getClientInvoices(id, cursor, size));
+    }
+
+    // All invoices and credit notes of the client in [from, to] as one merged PDF
+    @GetMapping("/{id}/statement")
+    public ResponseEntity<StreamingResponseBody> getStatement(
+            @PathVariable String id,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        StatementService.Statement statement = statementService.prepare(id, from, to);
+        String filename = "Statement_" + statement.clientLabel().replaceAll("[^A-Za-z0-9._-]", "_") + "_" + from + "_" + to + ".pdf";
+        StreamingResponseBody body = out -> statementService.write(statement, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(MediaType.APPLICATION_PDF)
+                .body(body);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<ClientDTO> update(@PathVariable String id,
                                             @Valid @RequestBody CreateClientRequest req) {
@@ -69,6 +105,18 @@ public class ClientController {
         return ResponseEntity.ok(result);
     }
 
+    // Cursor variant of /search: pass nextCursor back as cursor; count=estimate|exact adds a total to the first page
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPage<ClientDTO>> scrollClients(
+            @RequestParam(value = "q", required = false) String q,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "count", defaultValue = "none") String count
+    ) {
+        return ResponseEntity.ok(service.scroll(q, cursor, size, sort, count));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable String id) {
         try {
@@ -2,6 +2,8 @@ package com.billingapp.controller;
 
 import com.billingapp.entity.Company;
 import com.billingapp.repository.CompanyRepository;
+import com.billingapp.service.CompanyProfileProvider;
+import com.billingapp.service.PdfAssetService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -10,24 +12,31 @@ import org.springframework.web.bind.annotation.*;
 public class CompanyController {
 
     private final CompanyRepository companyRepository;
-    private static final String PROFILE_ID = "MY_COMPANY";
+    private final CompanyProfileProvider companyProfile;
+    private final PdfAssetService assetService;
 
-    public CompanyController(CompanyRepository companyRepository) {
+    public CompanyController(CompanyRepository companyRepository, CompanyProfileProvider companyProfile,
+                             PdfAssetService assetService) {
         this.companyRepository = companyRepository;
+        this.companyProfile = companyProfile;
+        this.assetService = assetService;
     }
 
     @GetMapping
     public ResponseEntity<Company> getProfile() {
         // Return existing or empty object if not set yet
         return ResponseEntity.ok(
-            companyRepository.findById(PROFILE_ID).orElse(new Company())
+            companyRepository.findById(CompanyProfileProvider.PROFILE_ID).orElse(new Company())
         );
     }
 
     @PostMapping
     public ResponseEntity<Company> saveProfile(@RequestBody Company company) {
-        // Force the ID to be constant so we don't create multiple companies
-        company.setId(PROFILE_ID);
-        return ResponseEntity.ok(companyRepository.save(company));
+        // Swaps the in-memory snapshot used by every PDF / e-way bill generator; the new version
+        // also changes the letterhead key and the version of every rendered document
+        Company saved = companyProfile.save(company);
+        // Logo / signature are re-fetched off the request thread; PDFs keep the previous images until done
+        assetService.refreshAsync(saved);
+        return ResponseEntity.ok(saved);
     }
 }
\ No newline at end of file
@@ -2,11 +2,18 @@ package com.billingapp.controller;
 
 import com.billingapp.entity.CreditNote;
 import com.billingapp.service.CreditNoteService;
+import com.billingapp.service.DocumentJobService;
+import com.billingapp.service.RenderedDocumentCache;
+import com.billingapp.service.CollectionExportService;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -14,9 +21,13 @@ import java.util.List;
 public class CreditNoteController {
 
     private final CreditNoteService creditNoteService;
+    private final DocumentJobService jobService;
+    private final CollectionExportService exportService;
 
-    public CreditNoteController(CreditNoteService creditNoteService) {
+    public CreditNoteController(CreditNoteService creditNoteService, DocumentJobService jobService, CollectionExportService exportService) {
         this.creditNoteService = creditNoteService;
+        this.jobService = jobService;
+        this.exportService = exportService;
     }
 
     @PostMapping
@@ -39,6 +50,16 @@ public class CreditNoteController {
         return ResponseEntity.ok(creditNoteService.getAll());
     }
 
+    // Streams the whole collection as NDJSON or CSV (constant heap); from/to filter on the credit note date
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        return exportService.download(CreditNote.class, "credit-notes", "creditNoteDate", exportService::startOfDay, format, from, to);
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable String id) {
         creditNoteService.delete(id);
@@ -46,16 +67,20 @@ public class CreditNoteController {
     }
 
     @GetMapping("/{id}/pdf")
-    public ResponseEntity<byte[]> downloadPdf(@PathVariable String id) throws Exception {
-        byte[] pdfBytes = creditNoteService.generatePdf(id);
+    public ResponseEntity<?> downloadPdf(@PathVariable String id, @RequestParam(value = "async", defaultValue = "false") boolean async) throws Exception {
         CreditNote cn = creditNoteService.getById(id);
+        if (async) {
+            return ResponseEntity.accepted().body(jobService.describe(jobService.enqueuePdf(RenderedDocumentCache.TYPE_CREDIT_NOTE, id)));
+        }
         
         String cleanNo = cn.getCreditNoteNo().replace("/", "-");
         String filename = "CreditNote_" + cleanNo + ".pdf";
 
+        RenderedDocumentCache.Rendered pdf = creditNoteService.openPdf(id);
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
                 .contentType(MediaType.APPLICATION_PDF)
-                .body(pdfBytes);
+                .contentLength(pdf.length())
+                .body(new InputStreamResource(pdf.stream()));
     }
 }
\ No newline at end of file
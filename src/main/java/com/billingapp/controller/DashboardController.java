@@ -1,13 +1,19 @@
 package com.billingapp.controller;
 
 import com.billingapp.service.DashboardService;
+import com.billingapp.util.FinancialYear;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.Map;
 
 @Slf4j
@@ -16,9 +22,12 @@ import java.util.Map;
 public class DashboardController {
 
     private final DashboardService dashboardService;
+    private final ZoneId zone;
 
-    public DashboardController(DashboardService dashboardService) {
+    public DashboardController(DashboardService dashboardService,
+                               @Value("${app.dashboard.timezone:Asia/Kolkata}") String timezone) {
         this.dashboardService = dashboardService;
+        this.zone = ZoneId.of(timezone);
     }
 
     @GetMapping("/stats")
@@ -32,4 +41,41 @@ public class DashboardController {
         
         return ResponseEntity.ok(dashboardService.getDashboardStats());
     }
-}
\ No newline at end of file
+
+    /**
+     * Monthly revenue series for charts.
+     * Either pass {@code fy} (e.g. "2025-26") or an ISO date range {@code from}/{@code to};
+     * with neither, the current financial year up to today is returned.
+     */
+    @GetMapping("/revenue")
+    public ResponseEntity<Map<String, Object>> getRevenue(
+            @RequestParam(value = "from", required = false) String from,
+            @RequestParam(value = "to", required = false) String to,
+            @RequestParam(value = "fy", required = false) String fy) {
+
+        LocalDate today = LocalDate.now(zone); // business day, not the JVM default zone
+        LocalDate start;
+        LocalDate end;
+        if (fy != null && !fy.isBlank()) {
+            int startYear = FinancialYear.parseStartYear(fy);
+            start = FinancialYear.firstDay(startYear);
+            end = FinancialYear.lastDay(startYear);
+        } else {
+            try {
+                start = from != null && !from.isBlank() ? LocalDate.parse(from) : FinancialYear.firstDay(FinancialYear.startYearOf(today));
+                end = to != null && !to.isBlank() ? LocalDate.parse(to) : today;
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Dates must be ISO formatted (yyyy-MM-dd)");
+            }
+        }
+
+        return ResponseEntity.ok(dashboardService.getRevenue(start, end));
+    }
+
+    // Repair command: recompute the dashboard rollup counters from the invoices collection
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildRollups() {
+        log.warn("Dashboard rollup rebuild requested");
+        return ResponseEntity.ok(dashboardService.rebuildRollups());
+    }
+}
@@ -0,0 +1,31 @@
+package com.billingapp.controller;
+
+import com.billingapp.service.DocumentNumberService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/numbers")
+@CrossOrigin("*")
+public class DocumentNumberController {
+
+    private final DocumentNumberService numberService;
+
+    public DocumentNumberController(DocumentNumberService numberService) {
+        this.numberService = numberService;
+    }
+
+    // Number the next document of this type would get (invoice, challan, estimate, credit-note, wcc).
+    // Only a preview for the form: the number is allocated when the document is saved without one.
+    @GetMapping("/{type}/next")
+    public ResponseEntity<Map<String, Object>> next(
+            @PathVariable String type,
+            @RequestParam(value = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date
+    ) {
+        return ResponseEntity.ok(numberService.peek(type, date));
+    }
+}
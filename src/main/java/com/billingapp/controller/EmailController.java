@@ -1,35 +1,54 @@
 package com.billingapp.controller;
 
-import com.billingapp.service.EmailService;
+import com.billingapp.service.EmailDispatcher;
+import com.billingapp.service.EmailOutboxService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/email") // 👈 This maps the URL to /api/email
 @CrossOrigin("*")
 public class EmailController {
 
-    private final EmailService emailService;
+    private final EmailOutboxService outboxService;
+    private final EmailDispatcher dispatcher;
 
-    public EmailController(EmailService emailService) {
-        this.emailService = emailService;
+    public EmailController(EmailOutboxService outboxService, EmailDispatcher dispatcher) {
+        this.outboxService = outboxService;
+        this.dispatcher = dispatcher;
     }
 
     @PostMapping("/send-invoice") // 👈 This completes the URL: /api/email/send-invoice
-    public ResponseEntity<String> sendInvoiceEmail(
+    public ResponseEntity<?> sendInvoiceEmail(
             @RequestParam("invoiceId") String invoiceId,
             @RequestParam("toEmail") String toEmail,
             @RequestParam(value = "files", required = false) List<MultipartFile> files
-    ) {
-        try {
-            emailService.sendInvoiceWithAttachments(invoiceId, toEmail, files);
-            return ResponseEntity.ok("Email sent successfully");
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.status(500).body("Failed to send email: " + e.getMessage());
-        }
+    ) throws Exception {
+        // Queued in the outbox; the dispatcher renders the PDF and sends it in the background
+        return ResponseEntity.accepted().body(outboxService.describe(outboxService.enqueueInvoice(invoiceId, toEmail, files)));
     }
-}
\ No newline at end of file
+
+    // Delivery status of every email sent (or queued) for an invoice, newest first
+    @GetMapping("/outbox")
+    public ResponseEntity<List<Map<String, Object>>> getOutbox(@RequestParam("invoiceId") String invoiceId) {
+        return ResponseEntity.ok(outboxService.forInvoice(invoiceId));
+    }
+
+    @GetMapping("/outbox/stats")
+    public ResponseEntity<Map<String, Object>> getOutboxStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("outbox", outboxService.stats());
+        stats.put("dispatcher", dispatcher.stats()); // this node only
+        return ResponseEntity.ok(stats);
+    }
+
+    @GetMapping("/outbox/{id}")
+    public ResponseEntity<Map<String, Object>> getOutboxEntry(@PathVariable String id) {
+        return ResponseEntity.ok(outboxService.describe(outboxService.get(id)));
+    }
+}
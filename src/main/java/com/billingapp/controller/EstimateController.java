@@ -1,12 +1,19 @@
 package com.billingapp.controller;
 
 import com.billingapp.entity.Estimate;
+import com.billingapp.service.DocumentJobService;
 import com.billingapp.service.EstimateService;
+import com.billingapp.service.RenderedDocumentCache;
+import com.billingapp.service.CollectionExportService;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -15,9 +22,13 @@ import java.util.List;
 public class EstimateController {
 
     private final EstimateService estimateService;
+    private final DocumentJobService jobService;
+    private final CollectionExportService exportService;
 
-    public EstimateController(EstimateService estimateService) {
+    public EstimateController(EstimateService estimateService, DocumentJobService jobService, CollectionExportService exportService) {
         this.estimateService = estimateService;
+        this.jobService = jobService;
+        this.exportService = exportService;
     }
 
     // 1. Get All Estimates
@@ -26,6 +37,16 @@ public class EstimateController {
         return estimateService.getAllEstimates();
     }
 
+    // Streams the whole collection as NDJSON or CSV (constant heap); from/to filter on the estimate date
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        return exportService.download(Estimate.class, "estimates", "estimateDate", LocalDate::atStartOfDay, format, from, to);
+    }
+
     // 2. Create New Estimate
     @PostMapping
     public Estimate create(@RequestBody Estimate estimate) {
@@ -46,14 +67,18 @@ public class EstimateController {
 
     // 5. Download PDF
     @GetMapping("/{id}/pdf")
-    public ResponseEntity<byte[]> downloadPdf(@PathVariable String id) {
+    public ResponseEntity<?> downloadPdf(@PathVariable String id, @RequestParam(value = "async", defaultValue = "false") boolean async) {
+        if (async) {
+            return ResponseEntity.accepted().body(jobService.describe(jobService.enqueuePdf(RenderedDocumentCache.TYPE_ESTIMATE, id)));
+        }
         try {
-            byte[] pdf = estimateService.generateEstimatePdf(id);
+            RenderedDocumentCache.Rendered pdf = estimateService.openEstimatePdf(id);
             
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=estimate_" + id + ".pdf")
                     .contentType(MediaType.APPLICATION_PDF)
-                    .body(pdf);
+                    .contentLength(pdf.length())
+                    .body(new InputStreamResource(pdf.stream()));
         } catch (Exception e) {
             e.printStackTrace(); // Print error to console for debugging
             return ResponseEntity.internalServerError().build();
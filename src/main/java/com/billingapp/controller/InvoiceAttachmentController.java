@@ -3,12 +3,14 @@ package com.billingapp.controller;
 import com.billingapp.entity.Attachment;
 import com.billingapp.entity.Invoice;
 import com.billingapp.repository.InvoiceRepository;
+import com.billingapp.service.InvoiceService;
 import com.billingapp.service.StorageService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 //import java.util.stream.Collectors;
 
@@ -18,18 +20,22 @@ public class InvoiceAttachmentController {
 
     private final InvoiceRepository invoiceRepository;
     private final StorageService storage;
+    private final InvoiceService invoiceService;
 
-    public InvoiceAttachmentController(InvoiceRepository invoiceRepository, StorageService storage) {
+    public InvoiceAttachmentController(InvoiceRepository invoiceRepository, StorageService storage, InvoiceService invoiceService) {
         this.invoiceRepository = invoiceRepository;
         this.storage = storage;
+        this.invoiceService = invoiceService;
     }
 
     @PostMapping
     public ResponseEntity<?> uploadAttachments(@PathVariable String invoiceId,
                                                @RequestParam("files") MultipartFile[] files) throws Exception {
-        Invoice invoice = invoiceRepository.findById(invoiceId)
-                .orElseThrow(() -> new IllegalArgumentException("Invoice not found: " + invoiceId));
+        if (!invoiceRepository.existsById(invoiceId)) {
+            throw new IllegalArgumentException("Invoice not found: " + invoiceId);
+        }
 
+        List<Attachment> uploaded = new ArrayList<>();
         for (MultipartFile file : files) {
             String stored = storage.store(file);
             Attachment a = new Attachment();
@@ -39,11 +45,11 @@ public class InvoiceAttachmentController {
             a.setContentType(file.getContentType());
             a.setSize(file.getSize());
             a.setUploadedAt(Instant.now());
-            invoice.getAttachments().add(a);
+            uploaded.add(a);
         }
 
-        Invoice saved = invoiceRepository.save(invoice);
-        List<Attachment> added = saved.getAttachments();
+        // $push onto the array instead of rewriting the invoice (and racing other edits)
+        List<Attachment> added = invoiceService.addAttachments(invoiceId, uploaded);
         return ResponseEntity.ok(added);
     }
 
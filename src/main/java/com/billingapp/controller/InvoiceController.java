@@ -1,22 +1,27 @@
 package com.billingapp.controller;
 
+import com.billingapp.dto.BulkInvoiceStatusRequest;
 import com.billingapp.dto.CreateInvoiceRequest;
+import com.billingapp.dto.CursorPage;
 import com.billingapp.dto.InvoiceDTO;
+import com.billingapp.dto.InvoiceSearchPage;
 import com.billingapp.entity.Client;
 import com.billingapp.entity.Invoice;
 import com.billingapp.repository.ClientRepository;
 import com.billingapp.repository.InvoiceRepository;
-import com.billingapp.service.EmailService;
+import com.billingapp.service.EmailOutboxService;
 import com.billingapp.service.EwayBillService;
+import com.billingapp.service.InvoiceExportService;
 import com.billingapp.service.InvoiceService;
-import com.billingapp.service.PdfService;
+import com.billingapp.util.FieldSelector;
 import jakarta.validation.Valid;
-import org.springframework.data.domain.Page;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -29,30 +34,36 @@ public class InvoiceController {
     private final InvoiceService invoiceService;
     private final InvoiceRepository invoiceRepository;
     private final ClientRepository clientRepository;
-    private final PdfService pdfService;
-    private final EmailService emailService;
+    private final EmailOutboxService outboxService;
     private final EwayBillService ewayBillService;
+    private final InvoiceExportService exportService;
 
     // 2. Single Constructor for Injection (Best Practice)
     public InvoiceController(InvoiceService invoiceService,
                              InvoiceRepository invoiceRepository,
                              ClientRepository clientRepository,
-                             PdfService pdfService,
-                             EmailService emailService,
-                             EwayBillService ewayBillService) {
+                             EmailOutboxService outboxService,
+                             EwayBillService ewayBillService,
+                             InvoiceExportService exportService) {
         this.invoiceService = invoiceService;
         this.invoiceRepository = invoiceRepository;
         this.clientRepository = clientRepository;
-        this.pdfService = pdfService;
-        this.emailService = emailService;
+        this.outboxService = outboxService;
         this.ewayBillService = ewayBillService;
+        this.exportService = exportService;
     }
 
     // --- Endpoints ---
 
+    // fields=summary for the invoice grid, or a comma-separated list of InvoiceDTO properties
     @GetMapping
-    public ResponseEntity<List<InvoiceDTO>> listAll() {
-        return ResponseEntity.ok(invoiceService.getAll());
+    public ResponseEntity<List<?>> listAll(@RequestParam(value = "fields", required = false) String fields) {
+        FieldSelector selector = FieldSelector.parse(fields, InvoiceDTO.SELECTABLE_FIELDS);
+        return ResponseEntity.ok(switch (selector.mode()) {
+            case FULL -> invoiceService.getAll();
+            case SUMMARY -> invoiceService.getAllSummaries();
+            case CUSTOM -> invoiceService.getAll(selector.fields());
+        });
     }
 
     @GetMapping("/{id}")
@@ -89,7 +100,7 @@ public class InvoiceController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<Page<InvoiceDTO>> searchInvoices(
+    public ResponseEntity<InvoiceSearchPage<?>> searchInvoices(
             @RequestParam(value = "clientId", required = false) String clientId,
             @RequestParam(value = "status", required = false) String status,
             @RequestParam(value = "from", required = false) String fromIso,
@@ -98,36 +109,68 @@ public class InvoiceController {
             @RequestParam(value = "maxTotal", required = false) Double maxTotal,
             @RequestParam(value = "page", defaultValue = "0") int page,
             @RequestParam(value = "size", defaultValue = "10") int size,
-            @RequestParam(value = "sort", required = false) String sort
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "sum", defaultValue = "false") boolean withSum,
+            @RequestParam(value = "fields", required = false) String fields
     ) {
-        return ResponseEntity.ok(invoiceService.search(clientId, status, fromIso, toIso, minTotal, maxTotal, page, size, sort));
+        return ResponseEntity.ok(invoiceService.search(clientId, status, fromIso, toIso, minTotal, maxTotal, page, size, sort,
+                withSum, FieldSelector.parse(fields, InvoiceDTO.SELECTABLE_FIELDS)));
+    }
+
+    // Cursor variant of /search for deep scrolling: no skip, no count unless count=estimate|exact (first page only)
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPage<InvoiceDTO>> scrollInvoices(
+            @RequestParam(value = "clientId", required = false) String clientId,
+            @RequestParam(value = "status", required = false) String status,
+            @RequestParam(value = "from", required = false) String fromIso,
+            @RequestParam(value = "to", required = false) String toIso,
+            @RequestParam(value = "minTotal", required = false) Double minTotal,
+            @RequestParam(value = "maxTotal", required = false) Double maxTotal,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "count", defaultValue = "none") String count
+    ) {
+        return ResponseEntity.ok(invoiceService.scroll(clientId, status, fromIso, toIso, minTotal, maxTotal, cursor, size, sort, count));
+    }
+
+    // --- BULK EXPORT ---
+    // Every invoice PDF matching the search filters in one ZIP, streamed as the PDFs finish rendering
+    @GetMapping("/export/pdf-zip")
+    public ResponseEntity<StreamingResponseBody> exportPdfZip(
+            @RequestParam(value = "clientId", required = false) String clientId,
+            @RequestParam(value = "status", required = false) String status,
+            @RequestParam(value = "from", required = false) String fromIso,
+            @RequestParam(value = "to", required = false) String toIso,
+            @RequestParam(value = "minTotal", required = false) Double minTotal,
+            @RequestParam(value = "maxTotal", required = false) Double maxTotal
+    ) {
+        StreamingResponseBody body = out -> exportService.exportPdfZip(clientId, status, fromIso, toIso, minTotal, maxTotal, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"invoices.zip\"")
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(body);
     }
 
     // --- EMAIL ENDPOINT (Quick Send) ---
     // Note: The new Popup uses EmailController, but we keep this as a backup API
     @PostMapping("/{id}/send-email")
     public ResponseEntity<?> sendInvoiceEmail(@PathVariable String id) {
-        try {
-            Invoice invoice = invoiceRepository.findById(id).orElseThrow();
-            Client client = clientRepository.findById(invoice.getClientId()).orElseThrow();
-            
-            byte[] pdfBytes = pdfService.generateInvoicePdf(id);
-            
-            String body = "We hope you are doing well. Here is the invoice <b>#" + invoice.getInvoiceNo() + "</b> for your recent order.";
-            
-            emailService.sendEmailWithAttachment(
+        Invoice invoice = invoiceRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Invoice not found: " + id));
+        Client client = clientRepository.findById(invoice.getClientId())
+                .orElseThrow(() -> new IllegalArgumentException("Client not found: " + invoice.getClientId()));
+
+        String body = "We hope you are doing well. Here is the invoice <b>#" + invoice.getInvoiceNo() + "</b> for your recent order.";
+
+        // Queued in the outbox; the PDF is rendered and attached when the dispatcher sends it
+        return ResponseEntity.accepted().body(outboxService.describe(outboxService.enqueueMessage(
                 client.getEmail(),
                 "Invoice #" + invoice.getInvoiceNo() + " from JMD Decor",
                 body,
-                pdfBytes,
-                "Invoice_" + invoice.getInvoiceNo() + ".pdf"
-            );
-            
-            return ResponseEntity.ok("Email sent successfully");
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.internalServerError().body("Error sending email: " + e.getMessage());
-        }
+                List.of(id),
+                true
+        )));
     }
 
     // --- E-WAY BILL ENDPOINTS ---
@@ -150,15 +193,30 @@ public class InvoiceController {
     @PatchMapping("/{id}/eway-bill")
     public ResponseEntity<?> updateEwayBill(@PathVariable String id, @RequestBody Map<String, String> payload) {
         try {
-            String ewayBillNo = payload.get("ewayBillNo");
-            Invoice invoice = invoiceRepository.findById(id).orElseThrow();
-            
-            invoice.setEwayBillNo(ewayBillNo);
-            invoiceRepository.save(invoice);
+            // One $set of ewayBillNo instead of loading and rewriting the whole invoice
+            Map<String, Object> changes = new HashMap<>();
+            changes.put("ewayBillNo", payload.get("ewayBillNo"));
+            invoiceService.patch(id, changes);
             
             return ResponseEntity.ok("E-Way Bill Number updated");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body("Failed to update");
         }
     }
+
+    // Partial update of scalar fields, e.g. {"status": "PAID"} or {"shippingAddress": "...", "version": 3}.
+    // With "version" the write only applies if nobody saved the invoice since (409 otherwise).
+    @PatchMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> patch(@PathVariable String id, @RequestBody Map<String, Object> changes) {
+        return ResponseEntity.ok(invoiceService.patch(id, changes));
+    }
+
+    // Status / due-date change of many invoices in one write, e.g. {"ids": [...], "status": "PAID"}
+    // or {"items": [{"id": "...", "status": "PAID", "version": 3}, ...]}; returns a result per id
+    @PostMapping("/bulk/status")
+    public ResponseEntity<Map<String, Object>> bulkUpdateStatus(@RequestBody BulkInvoiceStatusRequest req) {
+        return ResponseEntity.ok(invoiceService.bulkUpdateStatus(req));
+    }
 }
\ No newline at end of file
@@ -1,6 +1,9 @@
 package com.billingapp.controller;
 
+import com.billingapp.service.DocumentJobService;
 import com.billingapp.service.PdfService;
+import com.billingapp.service.RenderedDocumentCache;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -11,24 +14,31 @@ import org.springframework.web.bind.annotation.*;
 public class InvoicePdfController {
 
     private final PdfService pdfService;
+    private final DocumentJobService jobService;
 
-    public InvoicePdfController(PdfService pdfService) {
+    public InvoicePdfController(PdfService pdfService, DocumentJobService jobService) {
         this.pdfService = pdfService;
+        this.jobService = jobService;
     }
 
     @GetMapping("/{id}/pdf")
-    public ResponseEntity<byte[]> downloadPdf(@PathVariable("id") String id) {
+    public ResponseEntity<?> downloadPdf(@PathVariable("id") String id,
+                                         @RequestParam(value = "async", defaultValue = "false") boolean async) {
+        if (async) {
+            // Render on a worker; poll /api/jobs/{jobId} and fetch the PDF from its resultUrl
+            return ResponseEntity.accepted().body(jobService.describe(jobService.enqueuePdf(RenderedDocumentCache.TYPE_INVOICE, id)));
+        }
         try {
-            // ✅ Fix: Receive byte[] directly
-            byte[] bytes = pdfService.generateInvoicePdf(id);
+            // Streams the cached file to the response; the converter closes it after copying
+            RenderedDocumentCache.Rendered pdf = pdfService.openInvoicePdf(id);
             
             String filename = "invoice-" + id + ".pdf";
 
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
                     .contentType(MediaType.APPLICATION_PDF)
-                    .contentLength(bytes.length)
-                    .body(bytes);
+                    .contentLength(pdf.length())
+                    .body(new InputStreamResource(pdf.stream()));
         } catch (IllegalArgumentException ex) {
             return ResponseEntity.notFound().build();
         } catch (Exception ex) {
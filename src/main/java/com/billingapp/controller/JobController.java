@@ -0,0 +1,53 @@
+package com.billingapp.controller;
+
+import com.billingapp.service.DocumentJobService;
+import com.billingapp.service.DocumentJobWorker;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/jobs")
+public class JobController {
+
+    private final DocumentJobService jobService;
+    private final DocumentJobWorker worker;
+
+    public JobController(DocumentJobService jobService, DocumentJobWorker worker) {
+        this.jobService = jobService;
+        this.worker = worker;
+    }
+
+    // Poll the status of a queued document job (returned as jobId by the async=true endpoints)
+    @GetMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> getStatus(@PathVariable String id) {
+        return ResponseEntity.ok(jobService.describe(jobService.get(id)));
+    }
+
+    // Download the output of a finished job (e.g. the rendered PDF)
+    @GetMapping("/{id}/result")
+    public ResponseEntity<Resource> getResult(@PathVariable String id) throws IOException {
+        GridFsResource result = jobService.openResult(id);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + result.getFilename() + "\"")
+                .contentType(result.getContentType() != null ? MediaType.parseMediaType(result.getContentType()) : MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(result.contentLength())
+                .body(new InputStreamResource(result.getInputStream()));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queue", jobService.stats());
+        stats.put("worker", worker.stats()); // this node only
+        return ResponseEntity.ok(stats);
+    }
+}
@@ -0,0 +1,107 @@
+package com.billingapp.controller;
+
+import com.billingapp.config.FanoutExecutor;
+import com.billingapp.config.MongoIndexVerifier;
+import com.billingapp.service.LetterheadService;
+import com.billingapp.service.PdfAssetService;
+import com.billingapp.service.PdfPrerenderService;
+import com.billingapp.service.RenderedDocumentCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Lightweight in-app runtime metrics (no Actuator on this deployment).
+ */
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    private final FanoutExecutor fanoutExecutor;
+    private final CacheManager cacheManager;
+    private final RenderedDocumentCache documentCache;
+    private final PdfPrerenderService prerenderService;
+    private final LetterheadService letterheadService;
+    private final PdfAssetService assetService;
+    private final MongoIndexVerifier indexVerifier;
+
+    public MetricsController(FanoutExecutor fanoutExecutor, CacheManager cacheManager,
+                             RenderedDocumentCache documentCache, PdfPrerenderService prerenderService,
+                             LetterheadService letterheadService, PdfAssetService assetService,
+                             MongoIndexVerifier indexVerifier) {
+        this.fanoutExecutor = fanoutExecutor;
+        this.cacheManager = cacheManager;
+        this.documentCache = documentCache;
+        this.prerenderService = prerenderService;
+        this.letterheadService = letterheadService;
+        this.assetService = assetService;
+        this.indexVerifier = indexVerifier;
+    }
+
+    // Queue depth, active tasks, timeouts and wait/task latency percentiles of the I/O fan-out executor
+    @GetMapping("/fanout")
+    public ResponseEntity<Map<String, Object>> fanout() {
+        return ResponseEntity.ok(fanoutExecutor.stats());
+    }
+
+    // Hit/miss/eviction counters, estimated entry count and weighted size (bytes for PDF caches) per cache
+    @GetMapping("/caches")
+    public ResponseEntity<Map<String, Object>> caches() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String name : new TreeSet<>(cacheManager.getCacheNames())) {
+            if (cacheManager.getCache(name) instanceof CaffeineCache caffeineCache) {
+                result.put(name, describe(caffeineCache.getNativeCache()));
+            }
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    // Files, bytes on disk, hit ratio and LRU evictions of the rendered PDF cache
+    @GetMapping("/pdf-cache")
+    public ResponseEntity<Map<String, Object>> pdfCache() {
+        Map<String, Object> stats = new HashMap<>(documentCache.stats());
+        stats.put("letterhead", letterheadService.stats());
+        stats.put("assets", assetService.stats());
+        return ResponseEntity.ok(stats);
+    }
+
+    // Declared vs existing Mongo indexes per collection: missing, undeclared and unused (startup report, or re-checked)
+    @GetMapping("/indexes")
+    public ResponseEntity<Map<String, Object>> indexes(@RequestParam(value = "refresh", defaultValue = "false") boolean refresh) {
+        return ResponseEntity.ok(refresh ? indexVerifier.verify(false) : indexVerifier.report());
+    }
+
+    // Background PDF rendering: queue depth, coalesced/dropped jobs and save-to-ready lag
+    @GetMapping("/prerender")
+    public ResponseEntity<Map<String, Object>> prerender() {
+        return ResponseEntity.ok(prerenderService.stats());
+    }
+
+    private Map<String, Object> describe(Cache<Object, Object> cache) {
+        CacheStats stats = cache.stats();
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("hitCount", stats.hitCount());
+        item.put("missCount", stats.missCount());
+        item.put("hitRatio", stats.hitRate());
+        item.put("evictionCount", stats.evictionCount());
+        item.put("estimatedSize", cache.estimatedSize());
+        cache.policy().eviction().ifPresent((Policy.Eviction<Object, Object> eviction) -> {
+            item.put("maximum", eviction.getMaximum());
+            eviction.weightedSize().ifPresent(weight -> item.put("weightedSize", weight));
+        });
+        cache.policy().expireAfterWrite().ifPresent(expiry -> item.put("ttlSeconds", expiry.getExpiresAfter().toSeconds()));
+        return item;
+    }
+}
@@ -3,9 +3,12 @@ package com.billingapp.controller;
 import com.billingapp.dto.PurchaseStatsDTO;
 import com.billingapp.entity.Purchase;
 import com.billingapp.service.PurchaseService;
+import com.billingapp.service.CollectionExportService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.HashMap;
@@ -20,11 +23,24 @@ public class PurchaseController {
     @Autowired
     private PurchaseService service;
 
+    @Autowired
+    private CollectionExportService exportService;
+
     @GetMapping
     public List<Purchase> getAllPurchases() {
         return service.getAll();
     }
 
+    // Streams the whole collection as NDJSON or CSV (constant heap); from/to filter on the supplier invoice date
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        return exportService.download(Purchase.class, "purchases", "invoiceDate", day -> day, format, from, to);
+    }
+
     @PostMapping
     public Purchase createPurchase(@RequestBody Purchase purchase) {
         return service.save(purchase);
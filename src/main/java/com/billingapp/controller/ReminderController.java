@@ -0,0 +1,38 @@
+package com.billingapp.controller;
+
+import com.billingapp.service.ReminderService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/reminders")
+@CrossOrigin("*")
+public class ReminderController {
+
+    private final ReminderService reminderService;
+
+    public ReminderController(ReminderService reminderService) {
+        this.reminderService = reminderService;
+    }
+
+    // Payment reminders for every client with overdue invoices.
+    // Dry run by default: returns who would get which invoices; pass dryRun=false to queue the emails.
+    @PostMapping("/run")
+    public ResponseEntity<Map<String, Object>> run(
+            @RequestParam(value = "dryRun", defaultValue = "true") boolean dryRun,
+            @RequestParam(value = "asOf", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf
+    ) {
+        Map<String, Object> report = reminderService.run(asOf, dryRun);
+        return dryRun ? ResponseEntity.ok(report) : ResponseEntity.accepted().body(report);
+    }
+
+    // Progress of the last real run (emails queued so far); delivery is tracked in /api/email/outbox
+    @GetMapping("/last-run")
+    public ResponseEntity<Map<String, Object>> lastRun() {
+        return ResponseEntity.ok(reminderService.lastRun());
+    }
+}
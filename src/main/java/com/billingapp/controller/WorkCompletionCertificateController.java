@@ -2,11 +2,17 @@ package com.billingapp.controller;
 
 import com.billingapp.entity.WorkCompletionCertificate;
 import com.billingapp.repository.WorkCompletionCertificateRepository;
+import com.billingapp.service.CollectionExportService;
+import com.billingapp.service.DocumentNumberService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -17,11 +23,27 @@ public class WorkCompletionCertificateController {
     @Autowired
     private WorkCompletionCertificateRepository repository;
 
+    @Autowired
+    private CollectionExportService exportService;
+
+    @Autowired
+    private DocumentNumberService numberService;
+
     @GetMapping
     public List<WorkCompletionCertificate> getAll() {
         return repository.findAll();
     }
 
+    // Streams the whole collection as NDJSON or CSV (constant heap); from/to filter on the creation date (certificateDate is free text)
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        return exportService.download(WorkCompletionCertificate.class, "work-certificates", "createdAt", exportService::startOfDay, format, from, to);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<WorkCompletionCertificate> getById(@PathVariable String id) {
         return repository.findById(id)
@@ -33,25 +55,22 @@ public class WorkCompletionCertificateController {
     public ResponseEntity<?> create(@RequestBody WorkCompletionCertificate wcc) {
         wcc.setCreatedAt(Instant.now());
         
-        // 🟢 MANUAL CHANGE: Validate that a manual reference number was provided
-        if (wcc.getRefNo() == null || wcc.getRefNo().trim().isEmpty()) {
-            return ResponseEntity.badRequest().body("Error: Reference Number is required for manual entry.");
-        }
+        if (wcc.getCompanyName() == null) wcc.setCompanyName("JMD DECOR");
 
-        // 🟢 MANUAL CHANGE: Check for uniqueness to prevent duplicates
-        if (repository.existsByRefNo(wcc.getRefNo())) {
+        // 🟢 A typed-in reference number is kept; otherwise the next one of the current financial year
+        // (certificateDate is free text, so it cannot pick the year). Uniqueness is enforced by the refNo index
+        WorkCompletionCertificate saved;
+        try {
+            saved = numberService.saveNumbered(DocumentNumberService.WCC, wcc.getRefNo(),
+                    () -> numberService.next(DocumentNumberService.WCC, (LocalDate) null),
+                    number -> {
+                        wcc.setRefNo(number);
+                        return repository.save(wcc);
+                    });
+        } catch (DuplicateKeyException e) {
             return ResponseEntity.badRequest().body("Error: Reference Number " + wcc.getRefNo() + " already exists.");
         }
-
-        /* 👇 COMMENTED OUT: Auto-generation logic
-        if (wcc.getRefNo() == null || wcc.getRefNo().trim().isEmpty()) {
-            wcc.setRefNo(generateNextRefNo());
-        }
-        */
-
-        if (wcc.getCompanyName() == null) wcc.setCompanyName("JMD DECOR");
-        
-        return ResponseEntity.ok(repository.save(wcc));
+        return ResponseEntity.ok(saved);
     }
 
     @PutMapping("/{id}")
@@ -66,12 +85,17 @@ public class WorkCompletionCertificateController {
                         return ResponseEntity.badRequest().body("Error: Reference Number cannot be empty.");
                     }
                     
-                    if (!existing.getRefNo().equals(wcc.getRefNo()) && repository.existsByRefNo(wcc.getRefNo())) {
+                    // 🟢 Business values like gstin pass directly through the payload object safely
+                    WorkCompletionCertificate saved;
+                    try {
+                        saved = repository.save(wcc);
+                    } catch (DuplicateKeyException e) {
                         return ResponseEntity.badRequest().body("Error: Reference Number already exists.");
                     }
-
-                    // 🟢 Business values like gstin pass directly through the payload object safely
-                    return ResponseEntity.ok(repository.save(wcc));
+                    if (!saved.getRefNo().equals(existing.getRefNo())) {
+                        numberService.observe(DocumentNumberService.WCC, saved.getRefNo());
+                    }
+                    return ResponseEntity.ok(saved);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -81,10 +105,4 @@ public class WorkCompletionCertificateController {
         repository.deleteById(id);
         return ResponseEntity.noContent().build();
     }
-
-    /* 👇 COMMENTED OUT: Auto-Generation Logic Helper
-    private String generateNextRefNo() {
-        ...
-    }
-    */
 }
\ No newline at end of file
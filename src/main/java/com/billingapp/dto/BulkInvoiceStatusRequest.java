@@ -0,0 +1,29 @@
+package com.billingapp.dto;
+
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Status / due-date change for many invoices at once (e.g. marking a bank reconciliation PAID).
+ * {@code ids} all get {@code status} / {@code dueDate}; {@code items} carry their own values
+ * and optionally the version the caller read, which makes that row conditional.
+ */
+@Data
+public class BulkInvoiceStatusRequest {
+
+    private List<String> ids;
+    private String status;
+    private Instant dueDate;
+
+    private List<Item> items;
+
+    @Data
+    public static class Item {
+        private String id;
+        private String status;   // falls back to the request-level status
+        private Instant dueDate; // falls back to the request-level dueDate
+        private Long version;
+    }
+}
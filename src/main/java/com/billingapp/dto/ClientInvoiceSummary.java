@@ -0,0 +1,23 @@
+package com.billingapp.dto;
+
+import com.billingapp.entity.Invoice;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Result of the single $facet aggregation behind the client profile:
+ * the invoice totals plus a projected (no items/attachments) recent-invoices slice.
+ */
+@Data
+public class ClientInvoiceSummary {
+    private List<Totals> totals;   // $group output: empty when the client has no invoices
+    private List<Invoice> recent;
+
+    @Data
+    public static class Totals {
+        private double totalBilled;
+        private double pendingAmount;
+        private long invoiceCount;
+    }
+}
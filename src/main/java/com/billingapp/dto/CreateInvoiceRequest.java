@@ -27,6 +27,9 @@ public class CreateInvoiceRequest {
     private Instant dueDate;
 
     private String createdBy;
+
+    // Version the form was loaded at (InvoiceDTO.version); an update is rejected with 409 if the invoice changed since
+    private Long version;
     // 👇 NEW FIELDS
     private String billingAddress;
     private String shippingAddress;
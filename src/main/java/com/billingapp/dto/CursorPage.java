@@ -0,0 +1,32 @@
+package com.billingapp.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing. Pass {@code nextCursor} back as {@code cursor}
+ * to fetch the following page; it is null once {@code hasMore} is false.
+ * <p>
+ * {@code total} is only present when the caller asked for a count on the first page;
+ * {@code totalExact} is false when it is an estimate or a capped lower bound.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long total;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean totalExact;
+
+    public CursorPage(List<T> items, String nextCursor, boolean hasMore) {
+        this(items, nextCursor, hasMore, null, null);
+    }
+}
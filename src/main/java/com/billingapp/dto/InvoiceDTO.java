@@ -4,10 +4,18 @@ import lombok.Data;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Set;
 
 @Data
 public class InvoiceDTO {
+    // Properties a list endpoint can select with fields=...; each one is stored under the same name
+    public static final Set<String> SELECTABLE_FIELDS = Set.of(
+            "invoiceNo", "clientId", "clientGst", "billingAddress", "shippingAddress", "ewayBillNo", "transportMode",
+            "challanNo", "challanDate", "poNumber", "poDate", "items", "subtotal", "tax", "total", "status",
+            "issuedAt", "dueDate", "createdBy", "createdAt", "updatedAt", "version");
+
     private String id;
+    private Long version;  // send it back on update to detect concurrent edits
     private String invoiceNo;
     private String clientId;
     private String clientGst;
@@ -0,0 +1,22 @@
+package com.billingapp.dto;
+
+import com.billingapp.entity.Invoice;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Result of the single $facet aggregation behind invoice search:
+ * the requested page (without attachments) plus the count and amount of the whole matched set.
+ */
+@Data
+public class InvoiceSearchFacets {
+    private List<Invoice> page;
+    private List<Totals> totals;   // $group output: empty when nothing matched
+
+    @Data
+    public static class Totals {
+        private long count;
+        private Double totalAmount; // only when the sum was requested
+    }
+}
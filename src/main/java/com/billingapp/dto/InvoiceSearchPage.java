@@ -0,0 +1,26 @@
+package com.billingapp.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * A search page that can also carry the sum of {@code total} over every matched invoice
+ * (not just this page), for the footer of the invoice list.
+ */
+public class InvoiceSearchPage<T> extends PageImpl<T> {
+
+    private final Double totalAmount;
+
+    public InvoiceSearchPage(List<T> content, Pageable pageable, long total, Double totalAmount) {
+        super(content, pageable, total);
+        this.totalAmount = totalAmount;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Double getTotalAmount() {
+        return totalAmount;
+    }
+}
@@ -0,0 +1,23 @@
+package com.billingapp.dto;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Invoice list row: what the invoice grid shows, read through a field projection
+ * so items and attachments are never loaded.
+ */
+@Data
+public class InvoiceSummaryDTO {
+    public static final String[] FIELDS = {"invoiceNo", "clientId", "status", "total", "issuedAt", "dueDate", "createdAt"};
+
+    private String id;
+    private String invoiceNo;
+    private String clientId;
+    private String status;
+    private double total;
+    private Instant issuedAt;
+    private Instant dueDate;
+    private Instant createdAt;
+}
@@ -0,0 +1,16 @@
+package com.billingapp.dto;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * One row of a server-side revenue aggregation: the truncated period start
+ * (in the dashboard timezone) with the summed invoice totals.
+ */
+@Data
+public class RevenueBucket {
+    private Instant period;
+    private double amount;
+    private long count;
+}
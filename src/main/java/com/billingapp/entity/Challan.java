@@ -1,6 +1,7 @@
 package com.billingapp.entity;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.util.Date;
 import java.util.List;
@@ -11,6 +12,7 @@ public class Challan {
     @Id
     private String id;
     
+    @Indexed(unique = true, sparse = true)
     private String challanNo;     // e.g., JMD/2025-26/01
     private Date challanDate;
 
@@ -28,6 +30,7 @@ public class Challan {
     private List<ChallanItem> items;
 
     // 👇 NEW: Audit Fields required for sorting/filtering
+    @Indexed
     private Instant createdAt;
     private Instant updatedAt;
 
@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
@@ -15,9 +17,11 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "credit_notes")
+@CompoundIndex(name = "clientId_creditNoteDate", def = "{ 'clientId': 1, 'creditNoteDate': -1 }") // statements
 public class CreditNote {
     @Id
     private String id;
+    @Indexed(unique = true, sparse = true)
     private String creditNoteNo;       // e.g., JMD/2025-26/02
     private Instant creditNoteDate;    // Date: 20-05-2025
     
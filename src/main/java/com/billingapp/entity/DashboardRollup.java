@@ -0,0 +1,36 @@
+package com.billingapp.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Pre-aggregated invoice counters used by the dashboard.
+ * One document per bucket, e.g. "MONTH:2025-04", "STATUS:PAID" or "CLIENT:&lt;clientId&gt;".
+ * Kept current with atomic $inc deltas on every invoice write.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "dashboard_rollups")
+public class DashboardRollup {
+
+    public static final String TYPE_MONTH = "MONTH";   // key = yyyy-MM (issuedAt, dashboard timezone)
+    public static final String TYPE_STATUS = "STATUS"; // key = invoice status
+    public static final String TYPE_CLIENT = "CLIENT"; // key = clientId
+
+    @Id
+    private String id;      // TYPE + ":" + key
+
+    private String type;
+    private String key;
+    private long count;
+    private double total;
+    private Instant updatedAt;
+}
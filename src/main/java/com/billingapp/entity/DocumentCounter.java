@@ -0,0 +1,30 @@
+package com.billingapp.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Last number handed out for one document series, e.g. {@code invoice:JMD/2025-26/}.
+ * Advanced only with atomic {@code $inc} / {@code $max} updates (see DocumentNumberService).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "document_counters")
+public class DocumentCounter {
+
+    @Id
+    private String id;       // "<type>:<prefix>"
+    private String type;     // invoice, challan, estimate, credit-note, wcc
+    private String prefix;   // e.g. JMD/2025-26/
+    private long seq;        // highest number allocated (or seen) in the series
+    private int width;       // zero padding, taken from the numbers already issued
+    private Instant updatedAt;
+}
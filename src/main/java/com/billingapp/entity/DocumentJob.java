@@ -0,0 +1,59 @@
+package com.billingapp.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Heavy document work (PDF rendering) queued for a worker. Emails go through the {@code email_outbox} instead.
+ * Workers claim jobs with an atomic findAndModify that sets a lease; a job whose lease expired
+ * (crashed worker) becomes claimable again. Results are stored in GridFS.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "document_jobs")
+@CompoundIndex(name = "status_runAfter", def = "{ 'status': 1, 'runAfter': 1 }")
+public class DocumentJob {
+
+    public static final String TYPE_RENDER_PDF = "RENDER_PDF"; // params: docType, docId
+
+    public static final String STATUS_QUEUED = "QUEUED";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_SUCCEEDED = "SUCCEEDED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    @Id
+    private String id;
+
+    private String type;
+    private String status;
+    private Map<String, String> params;
+    private List<String> inputFileIds;   // GridFS ids of uploaded inputs (e.g. extra email attachments)
+
+    private int attempts;
+    private int maxAttempts;
+    private Instant runAfter;            // not claimable before this (retry backoff)
+    private String leaseOwner;           // worker id holding the job while RUNNING
+    private Instant leaseUntil;
+    private String lastError;
+
+    private String resultFileId;         // GridFS id of the output, if the job produces one
+    private String resultFilename;
+    private String resultContentType;
+    private Long resultLength;
+
+    private Instant createdAt;
+    private Instant updatedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+}
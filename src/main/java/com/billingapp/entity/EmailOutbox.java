@@ -0,0 +1,66 @@
+package com.billingapp.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * An email waiting to be sent (or already sent) by the outbox dispatcher.
+ * The API only appends here; the MIME message is built and handed to SMTP in the background,
+ * and the record stays behind as the delivery history of the invoices it mentions.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "email_outbox")
+@CompoundIndexes({
+        @CompoundIndex(name = "status_nextAttemptAt", def = "{ 'status': 1, 'nextAttemptAt': 1 }"),
+        @CompoundIndex(name = "invoiceIds_createdAt", def = "{ 'invoiceIds': 1, 'createdAt': -1 }")
+})
+public class EmailOutbox {
+
+    public static final String KIND_INVOICE = "INVOICE"; // invoice mail template with the invoice PDF (invoiceIds[0])
+    public static final String KIND_MESSAGE = "MESSAGE"; // free-form subject / body through the mail template
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_SENDING = "SENDING";
+    public static final String STATUS_SENT = "SENT";
+    public static final String STATUS_FAILED = "FAILED";
+
+    @Id
+    private String id;
+
+    private String kind;
+    private String toEmail;
+    private String subject;
+    private String body;
+
+    // Invoices this mail is about (delivery status is looked up by these)
+    private List<String> invoiceIds;
+    // Render and attach the PDF of every invoice in invoiceIds at send time
+    private boolean attachInvoicePdfs;
+    // Extra attachments stored in GridFS
+    private List<String> attachmentFileIds;
+
+    private String status;
+    private int attempts;
+    private int maxAttempts;
+    private Instant nextAttemptAt;
+    private String leaseOwner;
+    private Instant leaseUntil;
+    private String lastError;
+    private String messageId;
+
+    private Instant createdAt;
+    private Instant updatedAt;
+    private Instant sentAt;
+}
@@ -3,6 +3,7 @@ package com.billingapp.entity;
 import lombok.Data;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -16,6 +17,7 @@ public class Estimate {
     @Id
     private String id;
 
+    @Indexed(unique = true, sparse = true)
     private String estimateNo;     // e.g. JMD/2025-26/147
     private LocalDateTime estimateDate;
 
@@ -2,6 +2,10 @@ package com.billingapp.entity;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
@@ -13,11 +17,20 @@ import java.util.List;
 @AllArgsConstructor
 @Builder
 @Document(collection = "invoices")
+@CompoundIndexes({
+        @CompoundIndex(name = "clientId_issuedAt", def = "{ 'clientId': 1, 'issuedAt': -1 }"),   // client profile, statements
+        @CompoundIndex(name = "status_dueDate", def = "{ 'status': 1, 'dueDate': 1 }"),          // overdue selection (payment reminders)
+        @CompoundIndex(name = "status_createdAt", def = "{ 'status': 1, 'createdAt': -1 }")      // search by status, newest first
+})
 public class Invoice {
 
     @Id
     private String id;
 
+    @Version // optimistic lock: every write goes through a version predicate and increments it
+    private Long version;
+
+    @Indexed(unique = true, sparse = true)
     private String invoiceNo;
     private String clientId;
     private List<InvoiceItem> items;
@@ -28,6 +41,7 @@ public class Invoice {
     private Instant issuedAt;
     private Instant dueDate;
     private String createdBy;
+    @Indexed // default sort of lists and search, recent activity
     private Instant createdAt;
     private Instant updatedAt;
     // 👇 NEW: Address Snapshot (Stored on Invoice)
@@ -45,6 +59,9 @@ public class Invoice {
     private Instant poDate;
     private String clientGst;
 
+    private Instant lastReminderAt; // set by the payment-reminder run when a reminder mail for it is queued
+    private String lastBulkId;      // batch token of the last bulk status change that wrote it
+
     // attachments
     @Builder.Default
     private List<Attachment> attachments = new ArrayList<>();
@@ -3,6 +3,7 @@ package com.billingapp.entity;
 import lombok.Data;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
@@ -11,6 +12,7 @@ import java.util.List;
 
 @Data
 @Document(collection = "projects")
+@CompoundIndex(name = "clientId_createdAt", def = "{ 'clientId': 1, 'createdAt': -1 }")
 public class Project {
 
     @Id
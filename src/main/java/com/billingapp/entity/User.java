@@ -1,6 +1,7 @@
 package com.billingapp.entity;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "users")
@@ -9,6 +10,7 @@ public class User {
     @Id
     private String id; // MongoDB IDs are usually Strings (ObjectIds)
 
+    @Indexed(unique = true)
     private String username;
     private String password; // Stores the hashed password
     private String role;     // e.g., "ADMIN"
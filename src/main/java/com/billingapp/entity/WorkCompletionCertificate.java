@@ -1,6 +1,7 @@
 package com.billingapp.entity;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.Instant;
 import java.util.List;
@@ -11,12 +12,14 @@ public class WorkCompletionCertificate {
     @Id
     private String id;
     private String storeName;
+    @Indexed(unique = true, sparse = true)
     private String refNo;
     private String projectLocation;
     private String certificateDate;
     private String poNo;
     private String poDate;
     private String gstin;
+    @Indexed
     private String clientId;
     
     // Using a simple inner static class for items since they are nested
@@ -0,0 +1,14 @@
+package com.billingapp.event;
+
+import java.time.Instant;
+
+/**
+ * Published after a billing document (invoice, challan, estimate, credit note) is created or updated.
+ * {@code type} uses the {@link com.billingapp.service.RenderedDocumentCache} type constants.
+ */
+public record DocumentSavedEvent(String type, String id, Instant savedAt) {
+
+    public static DocumentSavedEvent of(String type, String id) {
+        return new DocumentSavedEvent(type, id, Instant.now());
+    }
+}
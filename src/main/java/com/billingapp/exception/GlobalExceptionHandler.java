@@ -3,6 +3,8 @@ package com.billingapp.exception;
 import io.sentry.Sentry;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -31,6 +33,48 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
     }
 
+    // A unique index rejected the write (e.g. a document number that already exists)
+    @ExceptionHandler(DuplicateKeyException.class)
+    public ResponseEntity<Map<String, Object>> handleDuplicateKey(DuplicateKeyException ex) {
+        String currentTraceId = MDC.get(MDC_CORRELATION_KEY);
+        log.warn("Unique index violation: {} [TraceID: {}]", ex.getMostSpecificCause().getMessage(), currentTraceId);
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("success", false);
+        body.put("message", "A record with the same unique value already exists");
+        body.put("traceId", currentTraceId);
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
+    // Someone else saved the document after it was loaded (version predicate did not match)
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleConcurrentUpdate(OptimisticLockingFailureException ex) {
+        String currentTraceId = MDC.get(MDC_CORRELATION_KEY);
+        log.warn("Concurrent modification rejected: {} [TraceID: {}]", ex.getMessage(), currentTraceId);
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("success", false);
+        body.put("message", ex.getMessage());
+        body.put("traceId", currentTraceId);
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
+    // A repair rebuild is already running (possibly on another node)
+    @ExceptionHandler(RebuildInProgressException.class)
+    public ResponseEntity<Map<String, Object>> handleRebuildInProgress(RebuildInProgressException ex) {
+        String currentTraceId = MDC.get(MDC_CORRELATION_KEY);
+        log.warn("Rebuild rejected: {} [TraceID: {}]", ex.getMessage(), currentTraceId);
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("success", false);
+        body.put("message", ex.getMessage());
+        body.put("traceId", currentTraceId);
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, Object>> handleValidation(MethodArgumentNotValidException ex) {
         String currentTraceId = MDC.get(MDC_CORRELATION_KEY);
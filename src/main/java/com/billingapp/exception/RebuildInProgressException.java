@@ -0,0 +1,12 @@
+package com.billingapp.exception;
+
+/**
+ * A repair rebuild was requested while another one still holds the rebuild marker.
+ * Mapped to 409 Conflict: the request was valid, it just has to wait for the running one.
+ */
+public class RebuildInProgressException extends RuntimeException {
+
+    public RebuildInProgressException(String message) {
+        super(message);
+    }
+}
@@ -3,6 +3,7 @@ package com.billingapp.mapper;
 import com.billingapp.dto.CreateInvoiceRequest;
 import com.billingapp.dto.InvoiceDTO;
 import com.billingapp.dto.InvoiceItemRequest;
+import com.billingapp.dto.InvoiceSummaryDTO;
 import com.billingapp.entity.Invoice;
 import org.springframework.stereotype.Component;
 
@@ -16,8 +17,10 @@ public class InvoiceMapper {
         if (invoice == null) return null;
         InvoiceDTO dto = new InvoiceDTO();
         dto.setId(invoice.getId());
+        dto.setVersion(invoice.getVersion());
         dto.setInvoiceNo(invoice.getInvoiceNo());
         dto.setClientId(invoice.getClientId());
+        dto.setClientGst(invoice.getClientGst());
 
         // Map new fields
         dto.setBillingAddress(invoice.getBillingAddress());
@@ -43,6 +46,20 @@ public class InvoiceMapper {
         return dto;
     }
 
+    public InvoiceSummaryDTO toSummary(Invoice invoice) {
+        if (invoice == null) return null;
+        InvoiceSummaryDTO dto = new InvoiceSummaryDTO();
+        dto.setId(invoice.getId());
+        dto.setInvoiceNo(invoice.getInvoiceNo());
+        dto.setClientId(invoice.getClientId());
+        dto.setStatus(invoice.getStatus());
+        dto.setTotal(invoice.getTotal());
+        dto.setIssuedAt(invoice.getIssuedAt());
+        dto.setDueDate(invoice.getDueDate());
+        dto.setCreatedAt(invoice.getCreatedAt());
+        return dto;
+    }
+
     public Invoice toEntity(CreateInvoiceRequest req) {
         if (req == null) return null;
         Invoice invoice = Invoice.builder()
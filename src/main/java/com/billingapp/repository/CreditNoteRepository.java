@@ -1,10 +1,18 @@
 package com.billingapp.repository;
 
 import com.billingapp.entity.CreditNote;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.List;
+
 @Repository
 public interface CreditNoteRepository extends MongoRepository<CreditNote, String> {
-    boolean existsByCreditNoteNo(String creditNoteNo);
+
+    // Credit notes of a client dated in [from, to)
+    @Query("{ 'clientId': ?0, 'creditNoteDate': { '$gte': ?1, '$lt': ?2 } }")
+    List<CreditNote> findByClientIdInRange(String clientId, Instant from, Instant to, Sort sort);
 }
\ No newline at end of file
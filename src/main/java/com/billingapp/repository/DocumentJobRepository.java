@@ -0,0 +1,9 @@
+package com.billingapp.repository;
+
+import com.billingapp.entity.DocumentJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DocumentJobRepository extends MongoRepository<DocumentJob, String> {
+}
@@ -0,0 +1,14 @@
+package com.billingapp.repository;
+
+import com.billingapp.entity.EmailOutbox;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends MongoRepository<EmailOutbox, String> {
+
+    // Delivery history of one invoice, newest first
+    List<EmailOutbox> findByInvoiceIdsOrderByCreatedAtDesc(String invoiceId);
+}
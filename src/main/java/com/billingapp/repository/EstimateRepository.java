@@ -7,5 +7,4 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface EstimateRepository extends MongoRepository<Estimate, String> {
     // Basic CRUD is auto-provided
-    boolean existsByEstimateNo(String estimateNo);
 }
\ No newline at end of file
@@ -1,19 +1,19 @@
 package com.billingapp.repository;
 
+import com.billingapp.dto.ClientInvoiceSummary;
+import com.billingapp.dto.RevenueBucket;
 import com.billingapp.entity.Invoice;
 import org.springframework.data.mongodb.repository.Aggregation;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface InvoiceRepository extends MongoRepository<Invoice, String> {
-    boolean existsByInvoiceNo(String invoiceNo);
-    // Existing: Smart Invoice Number Logic
-    Optional<Invoice> findTopByInvoiceNoStartingWithOrderByCreatedAtDesc(String prefix);
-
     // 👇 NEW: Dashboard Queries
 
     // 1. Get recent 5 invoices for "Recent Activity" list
@@ -39,4 +39,41 @@ public interface InvoiceRepository extends MongoRepository<Invoice, String> {
 
     // Add this if missing
     List<Invoice> findByClientId(String clientId);
-}
\ No newline at end of file
+
+    // Invoices of a client issued in [from, to)
+    @Query("{ 'clientId': ?0, 'issuedAt': { '$gte': ?1, '$lt': ?2 } }")
+    List<Invoice> findByClientIdInRange(String clientId, Instant from, Instant to, Sort sort);
+
+    // 5. Revenue per calendar month for issuedAt in [from, to), months cut in the given timezone
+    @Aggregation(pipeline = {
+            "{ '$match': { 'issuedAt': { '$gte': ?0, '$lt': ?1 } } }",
+            "{ '$group': { '_id': { '$dateTrunc': { 'date': '$issuedAt', 'unit': 'month', 'timezone': ?2 } }, 'amount': { '$sum': '$total' }, 'count': { '$sum': 1 } } }",
+            "{ '$project': { '_id': 0, 'period': '$_id', 'amount': 1, 'count': 1 } }",
+            "{ '$sort': { 'period': 1 } }"
+    })
+    List<RevenueBucket> sumRevenueByMonth(Instant from, Instant to, String timezone);
+
+    // 6. Revenue per Indian financial year (April-March): shifting issuedAt back 3 months
+    //    lines every FY up with a calendar year, whose start (Jan 1) identifies the FY start year
+    @Aggregation(pipeline = {
+            "{ '$match': { 'issuedAt': { '$gte': ?0, '$lt': ?1 } } }",
+            "{ '$group': { '_id': { '$dateTrunc': { 'date': { '$dateSubtract': { 'startDate': '$issuedAt', 'unit': 'month', 'amount': 3, 'timezone': ?2 } }, 'unit': 'year', 'timezone': ?2 } }, 'amount': { '$sum': '$total' }, 'count': { '$sum': 1 } } }",
+            "{ '$project': { '_id': 0, 'period': '$_id', 'amount': 1, 'count': 1 } }",
+            "{ '$sort': { 'period': 1 } }"
+    })
+    List<RevenueBucket> sumRevenueByFinancialYear(Instant from, Instant to, String timezone);
+
+    // 7. Client profile in one round trip: totals, pending (PENDING/UNPAID, any case) and count,
+    //    plus the newest invoices without their heavy items/attachments arrays
+    @Aggregation(pipeline = {
+            "{ '$match': { 'clientId': ?0 } }",
+            "{ '$facet': { "
+                    + "'totals': [ { '$group': { '_id': null, "
+                    + "'totalBilled': { '$sum': '$total' }, "
+                    + "'pendingAmount': { '$sum': { '$cond': [ { '$in': [ { '$toUpper': { '$ifNull': [ '$status', '' ] } }, [ 'PENDING', 'UNPAID' ] ] }, '$total', 0 ] } }, "
+                    + "'invoiceCount': { '$sum': 1 } } } ], "
+                    + "'recent': [ { '$sort': { 'issuedAt': -1, '_id': -1 } }, { '$limit': ?1 }, { '$project': { 'items': 0, 'attachments': 0 } } ] "
+                    + "} }"
+    })
+    ClientInvoiceSummary summarizeByClientId(String clientId, int recentLimit);
+}
@@ -3,6 +3,8 @@ package com.billingapp.service;
 import com.billingapp.dto.ClientDTO;
 import com.billingapp.dto.ClientProfileDTO; // 👈 Make sure to import this
 import com.billingapp.dto.CreateClientRequest;
+import com.billingapp.dto.CursorPage;
+import com.billingapp.entity.Invoice;
 import org.springframework.data.domain.Page;
 
 import java.util.List;
@@ -16,6 +18,15 @@ public interface ClientService {
 
     Page<ClientDTO> search(String q, int page, int size, String sort);
 
+    // Same filter as search(), keyset-paginated: pass nextCursor back as cursor; count is none, estimate or exact
+    CursorPage<ClientDTO> scroll(String q, String cursor, int size, String sort, String count);
+
     // 👇 NEW: Optimized Profile Endpoint
     ClientProfileDTO getClientProfile(String id);
-}
\ No newline at end of file
+
+    // Keyset-paginated invoice history for a client, newest first
+    CursorPage<Invoice> getClientInvoices(String clientId, String cursor, int size);
+
+    // Drops the cached profile of a client whose invoices changed
+    void evictProfile(String clientId);
+}
@@ -0,0 +1,168 @@
+package com.billingapp.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Full-history export of a collection as NDJSON (one JSON document per line) or CSV.
+ * <p>
+ * Documents are read through a Mongo cursor ({@code app.export.cursor-batch-size} per batch) and written to the
+ * response one at a time, so heap use does not depend on the collection size. Writes block while the client
+ * is slow to read, which in turn stops the cursor from fetching the next batch.
+ * The optional {@code from} / {@code to} days (inclusive, business timezone) filter on the document date.
+ */
+@Slf4j
+@Service
+public class CollectionExportService {
+
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_CSV = "csv";
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final ZoneId zone;
+    private final int cursorBatchSize;
+
+    public CollectionExportService(MongoTemplate mongoTemplate,
+                                   ObjectMapper objectMapper,
+                                   @Value("${app.dashboard.timezone:Asia/Kolkata}") String timezone,
+                                   @Value("${app.export.cursor-batch-size:500}") int cursorBatchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.zone = ZoneId.of(timezone);
+        this.cursorBatchSize = cursorBatchSize;
+    }
+
+    /**
+     * Download response for {@code type}; {@code dateField} is filtered with values built by {@code dateValue}
+     * from a day boundary, so the comparison uses the field's stored type (Instant, Date, LocalDate...).
+     */
+    public <T> ResponseEntity<StreamingResponseBody> download(Class<T> type, String name, String dateField,
+                                                              Function<LocalDate, Object> dateValue,
+                                                              String format, LocalDate from, LocalDate to) {
+        String fmt = format == null || format.isBlank() ? FORMAT_NDJSON : format.trim().toLowerCase();
+        if (!FORMAT_NDJSON.equals(fmt) && !FORMAT_CSV.equals(fmt)) {
+            throw new IllegalArgumentException("Unknown export format: " + format + " (expected ndjson or csv)");
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Export range is empty: from " + from + " is after to " + to);
+        }
+
+        Query query = new Query();
+        if (from != null || to != null) {
+            Criteria range = Criteria.where(dateField);
+            if (from != null) range = range.gte(dateValue.apply(from));
+            if (to != null) range = range.lt(dateValue.apply(to.plusDays(1)));
+            query.addCriteria(range);
+        }
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).cursorBatchSize(cursorBatchSize);
+
+        StreamingResponseBody body = out -> {
+            long startTime = System.currentTimeMillis();
+            long rows = FORMAT_CSV.equals(fmt) ? writeCsv(type, query, out) : writeNdjson(type, query, out);
+            log.info("Export of {} ({}, from {} to {}) streamed {} documents in {} ms",
+                    name, fmt, from, to, rows, System.currentTimeMillis() - startTime);
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + "." + fmt + "\"")
+                .contentType(FORMAT_CSV.equals(fmt)
+                        ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    /** Start of the given day in the business timezone, for Instant fields. */
+    public Object startOfDay(LocalDate day) {
+        return day.atStartOfDay(zone).toInstant();
+    }
+
+    /** Start of the given day in the business timezone, for java.util.Date fields. */
+    public Object startOfDayDate(LocalDate day) {
+        return Date.from(day.atStartOfDay(zone).toInstant());
+    }
+
+    private <T> long writeNdjson(Class<T> type, Query query, OutputStream out) throws IOException {
+        long rows = 0;
+        try (Stream<T> documents = mongoTemplate.stream(query, type);
+             SequenceWriter writer = objectMapper.writer()
+                     .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                     .withRootValueSeparator("\n")
+                     .writeValues(out)) {
+            Iterator<T> it = documents.iterator();
+            while (it.hasNext()) {
+                writer.write(it.next());
+                rows++;
+            }
+        }
+        if (rows > 0) {
+            out.write('\n');
+        }
+        out.flush();
+        return rows;
+    }
+
+    private <T> long writeCsv(Class<T> type, Query query, OutputStream out) throws IOException {
+        // Columns are the entity's JSON properties; nested objects and arrays go in as JSON text
+        List<String> columns = objectMapper.getSerializationConfig()
+                .introspect(objectMapper.constructType(type))
+                .findProperties().stream()
+                .filter(BeanPropertyDefinition::couldSerialize)
+                .map(BeanPropertyDefinition::getName)
+                .toList();
+        long rows = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(String.join(",", columns));
+        writer.write("\r\n");
+        try (Stream<T> documents = mongoTemplate.stream(query, type)) {
+            Iterator<T> it = documents.iterator();
+            while (it.hasNext()) {
+                JsonNode node = objectMapper.valueToTree(it.next());
+                for (int i = 0; i < columns.size(); i++) {
+                    if (i > 0) writer.write(',');
+                    writer.write(csvCell(node.get(columns.get(i))));
+                }
+                writer.write("\r\n");
+                rows++;
+            }
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private static String csvCell(JsonNode value) {
+        if (value == null || value.isNull()) return "";
+        String text = value.isValueNode() ? value.asText() : value.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+}
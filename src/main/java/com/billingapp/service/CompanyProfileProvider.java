@@ -0,0 +1,124 @@
+package com.billingapp.service;
+
+import com.billingapp.entity.Company;
+import com.billingapp.repository.CompanyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory snapshot of the company profile used by every document generator
+ * (invoice / challan / estimate / credit note PDFs, statements, exports, e-way bill JSON).
+ * <p>
+ * The profile is read from Mongo once, the letterhead defaults are applied once, and the result is
+ * swapped atomically when {@link #save} runs. Callers always get their own copy, so nothing can leak
+ * a change back into the shared snapshot. The snapshot is also re-read after
+ * {@code app.company.refresh-interval} so a save on another instance is picked up.
+ */
+@Slf4j
+@Service
+public class CompanyProfileProvider {
+
+    public static final String PROFILE_ID = "MY_COMPANY";
+
+    private final CompanyRepository companyRepository;
+    private final RenderedDocumentCache documentCache;
+    private final Duration refreshInterval;
+
+    private final AtomicReference<Loaded> current = new AtomicReference<>();
+
+    /**
+     * A defaulted company profile and its content version (a hash, stable across restarts,
+     * meant for cache keys of anything rendered from the profile).
+     */
+    public record Snapshot(Company company, String version) {}
+
+    private record Loaded(Company company, String version, Instant loadedAt) {}
+
+    public CompanyProfileProvider(CompanyRepository companyRepository,
+                                  RenderedDocumentCache documentCache,
+                                  @Value("${app.company.refresh-interval:5m}") Duration refreshInterval) {
+        this.companyRepository = companyRepository;
+        this.documentCache = documentCache;
+        this.refreshInterval = refreshInterval;
+    }
+
+    /** The current profile (defaults applied) with its version. */
+    public Snapshot snapshot() {
+        Loaded loaded = current.get();
+        if (loaded == null || loaded.loadedAt().plus(refreshInterval).isBefore(Instant.now())) {
+            loaded = reload();
+        }
+        return new Snapshot(copy(loaded.company()), loaded.version());
+    }
+
+    /** Shortcut for callers that do not need the version. */
+    public Company current() {
+        return snapshot().company();
+    }
+
+    public String version() {
+        return snapshot().version();
+    }
+
+    /** Saves the profile as entered (without defaults) and swaps the snapshot. */
+    public Company save(Company company) {
+        // Force the ID to be constant so we don't create multiple companies
+        company.setId(PROFILE_ID);
+        Company saved = companyRepository.save(company);
+        Loaded loaded = swap(saved);
+        log.info("Company profile saved; snapshot swapped to version {}", loaded.version().substring(0, 12));
+        return saved;
+    }
+
+    private synchronized Loaded reload() {
+        Loaded loaded = current.get();
+        if (loaded != null && !loaded.loadedAt().plus(refreshInterval).isBefore(Instant.now())) {
+            return loaded; // another thread reloaded while we waited
+        }
+        Company company = companyRepository.findById(PROFILE_ID).orElse(new Company());
+        Loaded fresh = swap(company);
+        if (loaded == null || !loaded.version().equals(fresh.version())) {
+            log.info("Company profile snapshot loaded (version {})", fresh.version().substring(0, 12));
+        }
+        return fresh;
+    }
+
+    private Loaded swap(Company stored) {
+        Company company = withDefaults(copy(stored));
+        Loaded loaded = new Loaded(company, documentCache.version(company), Instant.now());
+        current.set(loaded);
+        return loaded;
+    }
+
+    // Letterhead defaults for an installation whose profile was never filled in
+    private static Company withDefaults(Company company) {
+        if (company.getCompanyName() == null) {
+            company.setCompanyName("JMD DÉCOR");
+            company.setAddress("210 ASHIRWAD INDUSTRIAL ESTATE BLDG. NO.-5 RAM MANDIR ROAD, GOREGAON WEST MUMBAI 400104");
+            company.setPincode("400104");
+            company.setEmail("jmdecor.2010@gmail.com");
+            company.setSecondaryEmail("jmdsignage.2010@gmail.com");
+            company.setPhone("9819707090");
+            company.setSecondaryPhone("9322821737");
+            company.setGstin("27AAOPY8409R1ZD");
+            company.setUdyamRegNo("MH-19-0044729");
+            company.setBankName("Kotak Mahindra Bank");
+            company.setAccountNumber("9111365107");
+            company.setIfscCode("KKBK0000643");
+            company.setBranch("Jawahar Nagar Mumbai 400062");
+        }
+        return company;
+    }
+
+    private static Company copy(Company source) {
+        Company copy = new Company();
+        BeanUtils.copyProperties(source, copy);
+        return copy;
+    }
+}
@@ -1,5 +1,6 @@
 package com.billingapp.service;
 
+import com.billingapp.entity.Client;
 import com.billingapp.entity.CreditNote;
 import java.util.List;
 
@@ -10,4 +11,6 @@ public interface CreditNoteService {
     List<CreditNote> getAll();
     void delete(String id);
     byte[] generatePdf(String id) throws Exception;
+    RenderedDocumentCache.Rendered openPdf(String id) throws Exception;
+    RenderedDocumentCache.Rendered openPdf(CreditNote creditNote, Client client) throws Exception;
 }
\ No newline at end of file
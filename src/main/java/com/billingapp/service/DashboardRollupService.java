@@ -0,0 +1,304 @@
+package com.billingapp.service;
+
+import com.billingapp.entity.DashboardRollup;
+import com.billingapp.entity.Invoice;
+import com.billingapp.exception.RebuildInProgressException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Maintains the "dashboard_rollups" collection: per-month, per-status and per-client
+ * invoice counters updated with $inc deltas, so the dashboard never has to scan invoices.
+ */
+@Slf4j
+@Service
+public class DashboardRollupService {
+
+    // Marker document in the rollup collection held by the node running a rebuild (its type is not a bucket type)
+    private static final String REBUILD_MARKER_ID = "LOCK:rebuild";
+    private static final Duration BOOTSTRAP_MAX_WAIT = Duration.ofSeconds(30); // a dashboard request should not hang longer
+    private static final List<String> BUCKET_TYPES = List.of(DashboardRollup.TYPE_MONTH, DashboardRollup.TYPE_STATUS, DashboardRollup.TYPE_CLIENT);
+
+    private final MongoTemplate mongoTemplate;
+    private final ZoneId zone;
+    private final DateTimeFormatter monthKeyFormat;
+    private final Duration rebuildLease;
+    private final ReentrantLock bootstrapLock = new ReentrantLock();
+    private final String owner = UUID.randomUUID().toString();
+
+    public DashboardRollupService(MongoTemplate mongoTemplate,
+                                  @Value("${app.dashboard.timezone:Asia/Kolkata}") String timezone,
+                                  @Value("${app.dashboard.rollup-rebuild-lease:5m}") Duration rebuildLease) {
+        this.mongoTemplate = mongoTemplate;
+        this.rebuildLease = rebuildLease;
+        this.zone = ZoneId.of(timezone);
+        this.monthKeyFormat = DateTimeFormatter.ofPattern("yyyy-MM").withZone(zone);
+    }
+
+    /**
+     * The few invoice fields that feed the rollups, captured before a mutation
+     * so the old contribution can be subtracted afterwards.
+     */
+    public record Snapshot(String status, double total, Instant issuedAt, String clientId) {
+        public static Snapshot of(Invoice invoice) {
+            return invoice == null ? null
+                    : new Snapshot(invoice.getStatus(), invoice.getTotal(), invoice.getIssuedAt(), invoice.getClientId());
+        }
+    }
+
+    /** A single invoice transition; a null side means the invoice did not exist. */
+    public record Change(Snapshot before, Snapshot after) {}
+
+    public void recordCreate(Invoice created) {
+        apply(collectDeltas(List.of(new Change(null, Snapshot.of(created)))));
+    }
+
+    public void recordUpdate(Snapshot before, Invoice after) {
+        apply(collectDeltas(List.of(new Change(before, Snapshot.of(after)))));
+    }
+
+    public void recordDelete(Invoice deleted) {
+        apply(collectDeltas(List.of(new Change(Snapshot.of(deleted), null))));
+    }
+
+    /** Many transitions (a bulk status change) folded into one bulk upsert. */
+    public void recordBatch(List<Change> changes) {
+        apply(collectDeltas(changes));
+    }
+
+    public List<DashboardRollup> findByType(String type) {
+        Query query = new Query(Criteria.where("type").is(type)).with(Sort.by(Sort.Direction.ASC, "key"));
+        return mongoTemplate.find(query, DashboardRollup.class);
+    }
+
+    public List<DashboardRollup> findTopClients(int limit) {
+        Query query = new Query(Criteria.where("type").is(DashboardRollup.TYPE_CLIENT))
+                .with(Sort.by(Sort.Direction.DESC, "total"))
+                .limit(limit);
+        return mongoTemplate.find(query, DashboardRollup.class);
+    }
+
+    /**
+     * Repair command: recomputes every rollup bucket from the invoices collection
+     * with three server-side aggregations and overwrites the stored counters bucket by bucket.
+     * Only one rebuild runs at a time across nodes; a second one is rejected.
+     * Writes that land while the rebuild runs may need another rebuild to be reflected.
+     */
+    public Map<String, Object> rebuild() {
+        if (!claimRebuild()) {
+            throw new RebuildInProgressException("A dashboard rollup rebuild is already running");
+        }
+        try {
+            return recompute();
+        } finally {
+            releaseRebuild();
+        }
+    }
+
+    /**
+     * First-read bootstrap: rebuilds the counters if there are none yet. Concurrent callers on this node
+     * wait for the one doing the work, and a rebuild already running on another node is waited for
+     * (up to 30 s) instead of being started twice. Returns false if the counters are still missing.
+     */
+    public boolean rebuildIfEmpty() {
+        bootstrapLock.lock();
+        try {
+            Instant giveUpAt = Instant.now().plus(BOOTSTRAP_MAX_WAIT);
+            while (findByType(DashboardRollup.TYPE_STATUS).isEmpty()) {
+                if (claimRebuild()) {
+                    try {
+                        // Re-check under the marker: another node may have finished just before we claimed it
+                        if (findByType(DashboardRollup.TYPE_STATUS).isEmpty()) {
+                            log.info("Dashboard rollups are empty while invoices exist; rebuilding counters before first read");
+                            recompute();
+                        }
+                    } finally {
+                        releaseRebuild();
+                    }
+                    return true;
+                }
+                if (Instant.now().isAfter(giveUpAt)) {
+                    log.warn("Gave up waiting for the dashboard rollup rebuild running on another node");
+                    return false;
+                }
+                try {
+                    Thread.sleep(250);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            bootstrapLock.unlock();
+        }
+    }
+
+    private Map<String, Object> recompute() {
+        log.warn("Rebuilding dashboard rollup counters from the full invoices collection");
+        long startTime = System.currentTimeMillis();
+        Instant now = Instant.now();
+
+        List<DashboardRollup> rollups = new ArrayList<>();
+        rollups.addAll(aggregateBuckets(DashboardRollup.TYPE_MONTH, Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("issuedAt").ne(null)),
+                Aggregation.project("total")
+                        .and(DateOperators.dateOf("issuedAt").withTimezone(DateOperators.Timezone.valueOf(zone.getId())).toString("%Y-%m")).as("key"),
+                Aggregation.group("key").count().as("count").sum("total").as("total")
+        ), now));
+        rollups.addAll(aggregateBuckets(DashboardRollup.TYPE_STATUS, Aggregation.newAggregation(
+                Aggregation.project("total")
+                        .and(ConditionalOperators.ifNull("status").then("NONE")).as("key"),
+                Aggregation.group("key").count().as("count").sum("total").as("total")
+        ), now));
+        rollups.addAll(aggregateBuckets(DashboardRollup.TYPE_CLIENT, Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("clientId").ne(null)),
+                Aggregation.group("clientId").count().as("count").sum("total").as("total")
+        ), now));
+
+        // Upsert by _id instead of remove + insert: the collection is never empty mid-rebuild, and a
+        // concurrent $inc upsert of the same bucket cannot make the write fail with a duplicate key
+        List<String> ids = new ArrayList<>();
+        if (!rollups.isEmpty()) {
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DashboardRollup.class);
+            for (DashboardRollup rollup : rollups) {
+                ids.add(rollup.getId());
+                ops.upsert(new Query(Criteria.where("_id").is(rollup.getId())), new Update()
+                        .set("type", rollup.getType())
+                        .set("key", rollup.getKey())
+                        .set("count", rollup.getCount())
+                        .set("total", rollup.getTotal())
+                        .set("updatedAt", now));
+            }
+            ops.execute();
+        }
+        // Buckets nothing contributes to any more (e.g. a status no invoice has now)
+        long removed = mongoTemplate.remove(new Query(Criteria.where("type").in(BUCKET_TYPES).and("_id").nin(ids)),
+                DashboardRollup.class).getDeletedCount();
+
+        long duration = System.currentTimeMillis() - startTime;
+        log.info("Dashboard rollup rebuild finished: {} buckets written, {} stale removed in {} ms", rollups.size(), removed, duration);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("buckets", rollups.size());
+        result.put("removed", removed);
+        result.put("durationMs", duration);
+        return result;
+    }
+
+    // Takes the rebuild marker if it is free or its lease expired (a crashed node); false while another holds it
+    private boolean claimRebuild() {
+        Instant now = Instant.now();
+        Query free = new Query(Criteria.where("_id").is(REBUILD_MARKER_ID).and("leaseUntil").lt(now));
+        Update claim = new Update()
+                .set("type", "LOCK")
+                .set("owner", owner)
+                .set("leaseUntil", now.plus(rebuildLease))
+                .set("updatedAt", now);
+        try {
+            mongoTemplate.findAndModify(free, claim, FindAndModifyOptions.options().upsert(true), DashboardRollup.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // The marker exists with a live lease, so the upsert tried to insert a second one
+            return false;
+        }
+    }
+
+    private void releaseRebuild() {
+        mongoTemplate.remove(new Query(Criteria.where("_id").is(REBUILD_MARKER_ID).and("owner").is(owner)), DashboardRollup.class);
+    }
+
+    private List<DashboardRollup> aggregateBuckets(String type, Aggregation aggregation, Instant now) {
+        AggregationResults<org.bson.Document> results = mongoTemplate.aggregate(aggregation, Invoice.class, org.bson.Document.class);
+        List<DashboardRollup> rollups = new ArrayList<>();
+        for (org.bson.Document row : results.getMappedResults()) {
+            String key = String.valueOf(row.get("_id"));
+            rollups.add(DashboardRollup.builder()
+                    .id(type + ":" + key)
+                    .type(type)
+                    .key(key)
+                    .count(((Number) row.get("count")).longValue())
+                    .total(((Number) row.get("total")).doubleValue())
+                    .updatedAt(now)
+                    .build());
+        }
+        return rollups;
+    }
+
+    // --- Delta Helpers ---
+
+    /**
+     * Folds a list of invoice transitions into net per-bucket deltas.
+     * Buckets whose contribution nets to zero are dropped so unchanged fields cost no writes.
+     */
+    private Map<String, double[]> collectDeltas(List<Change> changes) {
+        Map<String, double[]> deltas = new LinkedHashMap<>();
+        for (Change change : changes) {
+            addContribution(deltas, change.before(), -1);
+            addContribution(deltas, change.after(), 1);
+        }
+        deltas.values().removeIf(d -> d[0] == 0 && d[1] == 0);
+        return deltas;
+    }
+
+    private void addContribution(Map<String, double[]> deltas, Snapshot s, int sign) {
+        if (s == null) return;
+        if (s.issuedAt() != null) {
+            accumulate(deltas, DashboardRollup.TYPE_MONTH + ":" + monthKeyFormat.format(s.issuedAt()), sign, s.total());
+        }
+        accumulate(deltas, DashboardRollup.TYPE_STATUS + ":" + (s.status() != null ? s.status() : "NONE"), sign, s.total());
+        if (s.clientId() != null) {
+            accumulate(deltas, DashboardRollup.TYPE_CLIENT + ":" + s.clientId(), sign, s.total());
+        }
+    }
+
+    private void accumulate(Map<String, double[]> deltas, String id, int sign, double total) {
+        double[] d = deltas.computeIfAbsent(id, k -> new double[2]);
+        d[0] += sign;
+        d[1] += sign * total;
+    }
+
+    private void apply(Map<String, double[]> deltas) {
+        if (deltas.isEmpty()) return;
+        Instant now = Instant.now();
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DashboardRollup.class);
+        for (Map.Entry<String, double[]> entry : deltas.entrySet()) {
+            String id = entry.getKey();
+            int sep = id.indexOf(':');
+            Update update = new Update()
+                    .inc("count", (long) entry.getValue()[0])
+                    .inc("total", entry.getValue()[1])
+                    .set("updatedAt", now)
+                    .setOnInsert("type", id.substring(0, sep))
+                    .setOnInsert("key", id.substring(sep + 1));
+            ops.upsert(new Query(Criteria.where("_id").is(id)), update);
+        }
+        try {
+            ops.execute();
+            log.debug("Applied {} dashboard rollup deltas", deltas.size());
+        } catch (Exception e) {
+            // Never fail the invoice write because of the dashboard; a rebuild repairs the counters
+            log.error("Failed to apply dashboard rollup deltas; run a rollup rebuild to repair counters: " + e.getMessage(), e);
+        }
+    }
+}
@@ -1,92 +1,114 @@
 package com.billingapp.service;
 
+import com.billingapp.config.FanoutExecutor;
+import com.billingapp.dto.RevenueBucket;
+import com.billingapp.entity.DashboardRollup;
 import com.billingapp.entity.Invoice;
 import com.billingapp.repository.ClientRepository;
 import com.billingapp.repository.InvoiceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import com.billingapp.util.FinancialYear;
+
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 
+@Slf4j
 @Service
 public class DashboardService {
 
+    private static final DateTimeFormatter MONTH_LABEL = DateTimeFormatter.ofPattern("MMM");
+
     private final InvoiceRepository invoiceRepository;
     private final ClientRepository clientRepository;
-
-    public DashboardService(InvoiceRepository invoiceRepository, ClientRepository clientRepository) {
+    private final DashboardRollupService rollupService;
+    private final FanoutExecutor fanout;
+    private final ZoneId zone;
+
+    public DashboardService(InvoiceRepository invoiceRepository,
+                            ClientRepository clientRepository,
+                            DashboardRollupService rollupService,
+                            FanoutExecutor fanout,
+                            @Value("${app.dashboard.timezone:Asia/Kolkata}") String timezone) {
         this.invoiceRepository = invoiceRepository;
         this.clientRepository = clientRepository;
+        this.rollupService = rollupService;
+        this.fanout = fanout;
+        this.zone = ZoneId.of(timezone);
     }
 
-    @Cacheable(value = "dashboard") // 🟢 Caches heavy, parallelized map aggregation blocks in JVM memory
+    @Cacheable(value = "dashboard") // 🟢 Caches the assembled rollup snapshot in JVM memory
     public Map<String, Object> getDashboardStats() {
-        // 1. Define all tasks to run in PARALLEL
-        
-        // Task A: Total Revenue
-        CompletableFuture<Double> revenueTask = CompletableFuture.supplyAsync(() -> 
-            invoiceRepository.sumTotalAmount()
-        );
+        // 0. Per-status counters (revenue, pending amount and invoice count all derive from these)
+        List<DashboardRollup> statusRollups = rollupService.findByType(DashboardRollup.TYPE_STATUS);
+        if (statusRollups.isEmpty() && invoiceRepository.count() > 0) {
+            // Bootstrap: first load after deployment (or after the collection was dropped).
+            // Single-flight: concurrent first reads wait for one rebuild instead of each starting their own
+            if (!rollupService.rebuildIfEmpty()) {
+                throw new IllegalStateException("Dashboard counters are being rebuilt; try again shortly");
+            }
+            statusRollups = rollupService.findByType(DashboardRollup.TYPE_STATUS);
+        }
 
-        // Task B: Unpaid Amount
-        CompletableFuture<Double> unpaidTask = CompletableFuture.supplyAsync(() -> 
-            invoiceRepository.sumTotalByStatus("UNPAID")
-        );
-        
-        // Task C: Pending Amount
-        CompletableFuture<Double> pendingTask = CompletableFuture.supplyAsync(() -> 
-            invoiceRepository.sumTotalByStatus("PENDING")
-        );
+        // 1. Define all tasks to run in PARALLEL (virtual threads, bounded by the fan-out executor)
 
-        // Task D: Invoice Count
-        CompletableFuture<Long> invoiceCountTask = CompletableFuture.supplyAsync(() -> 
-            invoiceRepository.count()
+        // Task A: Per-month counters (chart data)
+        CompletableFuture<List<DashboardRollup>> monthTask = fanout.supply(() ->
+            rollupService.findByType(DashboardRollup.TYPE_MONTH)
         );
 
-        // Task E: Client Count
-        CompletableFuture<Long> clientCountTask = CompletableFuture.supplyAsync(() -> 
+        // Task B: Client Count
+        CompletableFuture<Long> clientCountTask = fanout.supply(() ->
             clientRepository.count()
         );
 
-        // Task F: Recent Invoices (Top 5)
-        CompletableFuture<List<Invoice>> recentTask = CompletableFuture.supplyAsync(() -> 
+        // Task C: Recent Invoices (Top 5)
+        CompletableFuture<List<Invoice>> recentTask = fanout.supply(() ->
             invoiceRepository.findTop5ByOrderByCreatedAtDesc()
         );
 
-        // Task G: Chart Data (Fetch All)
-        CompletableFuture<List<Invoice>> allInvoicesTask = CompletableFuture.supplyAsync(() -> 
-            invoiceRepository.findAll()
+        // Task D: Top clients by billed amount
+        CompletableFuture<List<DashboardRollup>> topClientsTask = fanout.supply(() ->
+            rollupService.findTopClients(5)
         );
 
-        // 2. Wait for all tasks to finish
-        CompletableFuture.allOf(
-            revenueTask, unpaidTask, pendingTask, invoiceCountTask, 
-            clientCountTask, recentTask, allInvoicesTask
-        ).join();
+        // 2. Wait for all tasks to finish (times out and cancels the rest if one branch fails)
+        fanout.joinAll(monthTask, clientCountTask, recentTask, topClientsTask);
 
         // 3. Assemble the Response
         Map<String, Object> stats = new HashMap<>();
 
         try {
-            Double revenue = revenueTask.get();
-            stats.put("totalRevenue", revenue != null ? revenue : 0.0);
-
-            Double unpaid = unpaidTask.get();
-            Double pending = pendingTask.get();
-            stats.put("pendingAmount", (unpaid != null ? unpaid : 0.0) + (pending != null ? pending : 0.0));
+            double revenue = 0;
+            double pending = 0;
+            long invoiceCount = 0;
+            for (DashboardRollup r : statusRollups) {
+                revenue += r.getTotal();
+                invoiceCount += r.getCount();
+                if ("UNPAID".equals(r.getKey()) || "PENDING".equals(r.getKey())) {
+                    pending += r.getTotal();
+                }
+            }
 
-            stats.put("totalInvoices", invoiceCountTask.get());
+            stats.put("totalRevenue", revenue);
+            stats.put("pendingAmount", pending);
+            stats.put("totalInvoices", invoiceCount);
             stats.put("totalClients", clientCountTask.get());
             stats.put("recentInvoices", recentTask.get());
-            stats.put("monthlyStats", calculateMonthlyStats(allInvoicesTask.get()));
-            
+            stats.put("monthlyStats", toMonthlyStats(monthTask.get()));
+            stats.put("topClients", toClientStats(topClientsTask.get()));
+
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("Failed to assemble dashboard stats from rollups: " + e.getMessage(), e);
             throw new RuntimeException("Error fetching dashboard stats");
         }
 
@@ -103,30 +125,87 @@ public class DashboardService {
         // Method body can remain blank; annotation automatically cleans the target cache context space
     }
 
-    // --- Helper Method ---
-    private List<Map<String, Object>> calculateMonthlyStats(List<Invoice> invoices) {
-        Map<String, Double> tempMap = new LinkedHashMap<>();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM");
+    /**
+     * Month-by-month revenue for invoices issued between {@code from} and {@code to} (both inclusive),
+     * aggregated inside MongoDB, plus the totals per Indian financial year touched by the range.
+     * Each range is cached under its own key and dropped together with the rest of the dashboard cache.
+     */
+    @Cacheable(value = "dashboard", key = "'revenue:' + #from + ':' + #to")
+    public Map<String, Object> getRevenue(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        log.debug("Aggregating revenue series server-side for range {} .. {} in timezone {}", from, to, zone);
 
-        invoices.sort(Comparator.comparing(Invoice::getIssuedAt));
+        Instant start = from.atStartOfDay(zone).toInstant();
+        Instant end = to.plusDays(1).atStartOfDay(zone).toInstant();
 
-        for (Invoice inv : invoices) {
-            if (inv.getIssuedAt() != null) {
-                try {
-                    LocalDate date = inv.getIssuedAt().atZone(ZoneId.systemDefault()).toLocalDate();
-                    String monthName = date.format(formatter);
-                    tempMap.put(monthName, tempMap.getOrDefault(monthName, 0.0) + inv.getTotal());
-                } catch (Exception ignored) {}
-            }
+        List<Map<String, Object>> months = new ArrayList<>();
+        for (RevenueBucket bucket : invoiceRepository.sumRevenueByMonth(start, end, zone.getId())) {
+            LocalDate monthStart = bucket.getPeriod().atZone(zone).toLocalDate();
+            Map<String, Object> item = new HashMap<>();
+            item.put("period", YearMonth.from(monthStart).toString());
+            item.put("year", monthStart.getYear());
+            item.put("month", monthStart.getMonthValue());
+            item.put("label", monthStart.format(MONTH_LABEL) + " " + monthStart.getYear());
+            item.put("fy", FinancialYear.labelOf(monthStart));
+            item.put("amount", bucket.getAmount());
+            item.put("count", bucket.getCount());
+            months.add(item);
+        }
+
+        List<Map<String, Object>> financialYears = new ArrayList<>();
+        for (RevenueBucket bucket : invoiceRepository.sumRevenueByFinancialYear(start, end, zone.getId())) {
+            int startYear = bucket.getPeriod().atZone(zone).getYear();
+            Map<String, Object> item = new HashMap<>();
+            item.put("fy", FinancialYear.label(startYear));
+            item.put("amount", bucket.getAmount());
+            item.put("count", bucket.getCount());
+            financialYears.add(item);
         }
 
+        Map<String, Object> result = new HashMap<>();
+        result.put("from", from.toString());
+        result.put("to", to.toString());
+        result.put("timezone", zone.getId());
+        result.put("months", months);
+        result.put("financialYears", financialYears);
+        return result;
+    }
+
+    /**
+     * Repair entry point for the rollup store; also drops the cached dashboard snapshot.
+     */
+    @CacheEvict(value = "dashboard", allEntries = true)
+    public Map<String, Object> rebuildRollups() {
+        return rollupService.rebuild();
+    }
+
+    // --- Helper Methods ---
+    private List<Map<String, Object>> toMonthlyStats(List<DashboardRollup> months) {
+        // Rollup keys are "yyyy-MM", so the key order is already chronological
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (DashboardRollup r : months) {
+            YearMonth ym = YearMonth.parse(r.getKey());
+            Map<String, Object> item = new HashMap<>();
+            item.put("month", ym.format(MONTH_LABEL));
+            item.put("year", ym.getYear());
+            item.put("amount", r.getTotal());
+            item.put("count", r.getCount());
+            result.add(item);
+        }
+        return result;
+    }
+
+    private List<Map<String, Object>> toClientStats(List<DashboardRollup> clients) {
         List<Map<String, Object>> result = new ArrayList<>();
-        for (Map.Entry<String, Double> entry : tempMap.entrySet()) {
+        for (DashboardRollup r : clients) {
             Map<String, Object> item = new HashMap<>();
-            item.put("month", entry.getKey());
-            item.put("amount", entry.getValue());
+            item.put("clientId", r.getKey());
+            item.put("amount", r.getTotal());
+            item.put("count", r.getCount());
             result.add(item);
         }
         return result;
     }
-}
\ No newline at end of file
+}
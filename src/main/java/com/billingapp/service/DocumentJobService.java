@@ -0,0 +1,252 @@
+package com.billingapp.service;
+
+import com.billingapp.entity.DocumentJob;
+import com.billingapp.repository.DocumentJobRepository;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.result.UpdateResult;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Persistent queue for heavy document work ({@code document_jobs} collection, results in GridFS).
+ * <p>
+ * Web nodes {@link #enqueue} and return 202 with the job id; workers ({@code DocumentJobWorker})
+ * {@link #claim} jobs with a lease, then {@link #complete} or {@link #fail} them. Completion and failure
+ * only apply while the caller still holds the lease, so a worker that stalled past its lease cannot
+ * overwrite the outcome of the worker that took the job over.
+ */
+@Slf4j
+@Service
+public class DocumentJobService {
+
+    private final DocumentJobRepository jobRepository;
+    private final MongoTemplate mongoTemplate;
+    private final GridFsTemplate gridFsTemplate;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration retryBackoff;
+    private final Duration retention;
+
+    public DocumentJobService(DocumentJobRepository jobRepository,
+                              MongoTemplate mongoTemplate,
+                              GridFsTemplate gridFsTemplate,
+                              @Value("${app.jobs.max-attempts:3}") int maxAttempts,
+                              @Value("${app.jobs.lease:5m}") Duration lease,
+                              @Value("${app.jobs.retry-backoff:10s}") Duration retryBackoff,
+                              @Value("${app.jobs.retention:1d}") Duration retention) {
+        this.jobRepository = jobRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.gridFsTemplate = gridFsTemplate;
+        this.maxAttempts = maxAttempts;
+        this.lease = lease;
+        this.retryBackoff = retryBackoff;
+        this.retention = retention;
+    }
+
+    // --- Producer side (web nodes) ---
+
+    public DocumentJob enqueuePdf(String docType, String docId) {
+        return enqueue(DocumentJob.TYPE_RENDER_PDF, Map.of("docType", docType, "docId", docId), List.of());
+    }
+
+    private DocumentJob enqueue(String type, Map<String, String> params, List<String> inputFileIds) {
+        Instant now = Instant.now();
+        DocumentJob job = DocumentJob.builder()
+                .type(type)
+                .status(DocumentJob.STATUS_QUEUED)
+                .params(params)
+                .inputFileIds(inputFileIds)
+                .attempts(0)
+                .maxAttempts(maxAttempts)
+                .runAfter(now)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+        job = jobRepository.save(job);
+        log.info("Document job {} queued: {} {}", job.getId(), type, params);
+        return job;
+    }
+
+    public DocumentJob get(String id) {
+        return jobRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Job not found: " + id));
+    }
+
+    /** Status payload returned by the 202 responses and the polling endpoint. */
+    public Map<String, Object> describe(DocumentJob job) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("jobId", job.getId());
+        body.put("type", job.getType());
+        body.put("status", job.getStatus());
+        body.put("attempts", job.getAttempts());
+        body.put("maxAttempts", job.getMaxAttempts());
+        body.put("lastError", job.getLastError());
+        body.put("createdAt", job.getCreatedAt());
+        body.put("startedAt", job.getStartedAt());
+        body.put("finishedAt", job.getFinishedAt());
+        body.put("statusUrl", "/api/jobs/" + job.getId());
+        if (job.getResultFileId() != null) {
+            body.put("resultUrl", "/api/jobs/" + job.getId() + "/result");
+        }
+        return body;
+    }
+
+    /** The stored output of a finished job. */
+    public GridFsResource openResult(String id) {
+        DocumentJob job = get(id);
+        if (!DocumentJob.STATUS_SUCCEEDED.equals(job.getStatus()) || job.getResultFileId() == null) {
+            throw new IllegalArgumentException("Job " + id + " has no result (status " + job.getStatus() + ")");
+        }
+        return resource(job.getResultFileId());
+    }
+
+    // --- Consumer side (workers) ---
+
+    /**
+     * Atomically takes the oldest runnable job: queued and due, or running with an expired lease.
+     */
+    public DocumentJob claim(String workerId) {
+        Instant now = Instant.now();
+        Query query = new Query(new Criteria().orOperator(
+                where("status").is(DocumentJob.STATUS_QUEUED).and("runAfter").lte(now),
+                where("status").is(DocumentJob.STATUS_RUNNING).and("leaseUntil").lt(now)))
+                .with(Sort.by(Sort.Direction.ASC, "runAfter"));
+        Update update = new Update()
+                .set("status", DocumentJob.STATUS_RUNNING)
+                .set("leaseOwner", workerId)
+                .set("leaseUntil", now.plus(lease))
+                .set("startedAt", now)
+                .set("updatedAt", now)
+                .inc("attempts", 1);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), DocumentJob.class);
+    }
+
+    /** Marks the job done, storing its output (if any) in GridFS. Returns false if the lease was lost. */
+    public boolean complete(DocumentJob job, String workerId, InputStream result, String filename, String contentType, long length) {
+        String fileId = null;
+        if (result != null) {
+            fileId = gridFsTemplate.store(result, filename, contentType,
+                    new org.bson.Document("kind", "job-result").append("jobId", job.getId())).toHexString();
+        }
+        Instant now = Instant.now();
+        Update update = new Update()
+                .set("status", DocumentJob.STATUS_SUCCEEDED)
+                .set("finishedAt", now)
+                .set("updatedAt", now)
+                .set("lastError", null)
+                .unset("leaseOwner")
+                .unset("leaseUntil");
+        if (fileId != null) {
+            update.set("resultFileId", fileId)
+                    .set("resultFilename", filename)
+                    .set("resultContentType", contentType)
+                    .set("resultLength", length);
+        }
+        if (!updateHeld(job, workerId, update)) {
+            log.warn("Document job {} finished on {} after its lease was taken over; result discarded", job.getId(), workerId);
+            if (fileId != null) {
+                deleteFile(fileId);
+            }
+            return false;
+        }
+        deleteInputs(job);
+        return true;
+    }
+
+    /** Schedules a retry with exponential backoff, or fails the job for good after the last attempt. */
+    public void fail(DocumentJob job, String workerId, Exception error) {
+        Instant now = Instant.now();
+        String message = error.getClass().getSimpleName() + ": " + error.getMessage();
+        boolean retry = job.getAttempts() < job.getMaxAttempts() && !(error instanceof IllegalArgumentException);
+        Update update = new Update()
+                .set("lastError", message)
+                .set("updatedAt", now)
+                .unset("leaseOwner")
+                .unset("leaseUntil");
+        if (retry) {
+            Duration delay = retryBackoff.multipliedBy(1L << Math.min(job.getAttempts() - 1, 10));
+            update.set("status", DocumentJob.STATUS_QUEUED).set("runAfter", now.plus(delay));
+            log.warn("Document job {} attempt {}/{} failed, retrying in {} s: {}",
+                    job.getId(), job.getAttempts(), job.getMaxAttempts(), delay.toSeconds(), message);
+        } else {
+            update.set("status", DocumentJob.STATUS_FAILED).set("finishedAt", now);
+            log.error("Document job {} failed permanently after {} attempt(s): {}", job.getId(), job.getAttempts(), message);
+        }
+        if (updateHeld(job, workerId, update) && !retry) {
+            deleteInputs(job);
+        }
+    }
+
+    /** Deletes finished jobs (and their GridFS files) older than {@code app.jobs.retention}. */
+    public int purgeExpired() {
+        Instant cutoff = Instant.now().minus(retention);
+        Query query = new Query(where("status").in(DocumentJob.STATUS_SUCCEEDED, DocumentJob.STATUS_FAILED)
+                .and("finishedAt").lt(cutoff));
+        List<DocumentJob> expired = mongoTemplate.find(query, DocumentJob.class);
+        for (DocumentJob job : expired) {
+            if (job.getResultFileId() != null) {
+                deleteFile(job.getResultFileId());
+            }
+            deleteInputs(job);
+            jobRepository.deleteById(job.getId());
+        }
+        if (!expired.isEmpty()) {
+            log.info("Purged {} finished document job(s) older than {}", expired.size(), cutoff);
+        }
+        return expired.size();
+    }
+
+    public GridFsResource resource(String fileId) {
+        GridFSFile file = gridFsTemplate.findOne(new Query(where("_id").is(new ObjectId(fileId))));
+        if (file == null) {
+            throw new IllegalArgumentException("Stored file not found: " + fileId);
+        }
+        return gridFsTemplate.getResource(file);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (String status : List.of(DocumentJob.STATUS_QUEUED, DocumentJob.STATUS_RUNNING,
+                DocumentJob.STATUS_SUCCEEDED, DocumentJob.STATUS_FAILED)) {
+            stats.put(status.toLowerCase(), mongoTemplate.count(new Query(where("status").is(status)), DocumentJob.class));
+        }
+        return stats;
+    }
+
+    private boolean updateHeld(DocumentJob job, String workerId, Update update) {
+        Query held = new Query(where("_id").is(job.getId())
+                .and("status").is(DocumentJob.STATUS_RUNNING)
+                .and("leaseOwner").is(workerId));
+        UpdateResult result = mongoTemplate.updateFirst(held, update, DocumentJob.class);
+        return result.getModifiedCount() > 0;
+    }
+
+    private void deleteInputs(DocumentJob job) {
+        if (job.getInputFileIds() != null) {
+            job.getInputFileIds().forEach(this::deleteFile);
+        }
+    }
+
+    private void deleteFile(String fileId) {
+        gridFsTemplate.delete(new Query(where("_id").is(new ObjectId(fileId))));
+    }
+}
@@ -0,0 +1,198 @@
+package com.billingapp.service;
+
+import com.billingapp.entity.DocumentJob;
+import com.billingapp.service.impl.ChallanPdfServiceImpl;
+import com.billingapp.util.LatencyHistogram;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Consumer of the {@code document_jobs} queue ({@code app.jobs.worker.enabled}).
+ * <p>
+ * Each worker thread claims one job at a time, renders it, and records the outcome. Web nodes
+ * can run a thread or two of this next to the API; with the {@code worker} profile the application runs
+ * headless with only the worker, so render capacity scales independently of API capacity.
+ */
+@Slf4j
+@Service
+public class DocumentJobWorker implements DisposableBean {
+
+    private final boolean enabled;
+    private final int threads;
+    private final Duration pollInterval;
+    private final Duration purgeInterval;
+    private final DocumentJobService jobService;
+    private final PdfService pdfService;
+    private final ChallanPdfServiceImpl challanPdfService;
+    private final EstimateService estimateService;
+    private final CreditNoteService creditNoteService;
+
+    private final String workerId = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+    private volatile Instant lastPurge = Instant.EPOCH;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder leaseLost = new LongAdder(); // finished after another worker took the job over
+    private final LatencyHistogram queueWait = new LatencyHistogram(); // created -> claimed
+    private final LatencyHistogram runTime = new LatencyHistogram();
+
+    public DocumentJobWorker(@Value("${app.jobs.worker.enabled:true}") boolean enabled,
+                             @Value("${app.jobs.worker.threads:1}") int threads,
+                             @Value("${app.jobs.worker.poll-interval:1s}") Duration pollInterval,
+                             @Value("${app.jobs.purge-interval:1h}") Duration purgeInterval,
+                             DocumentJobService jobService,
+                             PdfService pdfService,
+                             ChallanPdfServiceImpl challanPdfService,
+                             EstimateService estimateService,
+                             CreditNoteService creditNoteService) {
+        this.enabled = enabled;
+        this.threads = threads;
+        this.pollInterval = pollInterval;
+        this.purgeInterval = purgeInterval;
+        this.jobService = jobService;
+        this.pdfService = pdfService;
+        this.challanPdfService = challanPdfService;
+        this.estimateService = estimateService;
+        this.creditNoteService = creditNoteService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Document job worker disabled on this node; queued jobs are left to worker nodes");
+            return;
+        }
+        running = true;
+        for (int i = 1; i <= threads; i++) {
+            Thread t = new Thread(this::loop, "doc-job-worker-" + i);
+            t.setDaemon(true);
+            t.start();
+            workers.add(t);
+        }
+        log.info("Document job worker {} started with {} thread(s), polling every {} ms", workerId, threads, pollInterval.toMillis());
+    }
+
+    private void loop() {
+        String owner = workerId + "#" + Thread.currentThread().getName();
+        while (running) {
+            try {
+                purgeIfDue();
+                DocumentJob job = jobService.claim(owner);
+                if (job == null) {
+                    Thread.sleep(pollInterval.toMillis());
+                    continue;
+                }
+                run(job, owner);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Mongo unavailable etc.: back off and keep the worker alive
+                log.error("Document job worker loop error: " + e.getMessage(), e);
+                try {
+                    Thread.sleep(pollInterval.multipliedBy(5).toMillis());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void run(DocumentJob job, String owner) {
+        active.incrementAndGet();
+        long startTime = System.currentTimeMillis();
+        if (job.getCreatedAt() != null && job.getAttempts() == 1) {
+            queueWait.record(Duration.between(job.getCreatedAt(), Instant.now()).toMillis());
+        }
+        log.info("Document job {} ({}) claimed by {}, attempt {}/{}", job.getId(), job.getType(), owner, job.getAttempts(), job.getMaxAttempts());
+        try {
+            if (job.getAttempts() > job.getMaxAttempts()) {
+                // Reclaimed after its lease expired on the last attempt (worker crashed mid-job)
+                throw new IllegalStateException("Lease expired on the final attempt");
+            }
+            boolean completed = switch (job.getType()) {
+                case DocumentJob.TYPE_RENDER_PDF -> renderPdf(job, owner);
+                default -> throw new IllegalArgumentException("Unknown job type: " + job.getType());
+            };
+            if (completed) {
+                succeeded.increment();
+                log.info("Document job {} ({}) succeeded in {} ms", job.getId(), job.getType(), System.currentTimeMillis() - startTime);
+            } else {
+                leaseLost.increment();
+                log.warn("Document job {} ({}) finished in {} ms but its lease was lost; the result was discarded",
+                        job.getId(), job.getType(), System.currentTimeMillis() - startTime);
+            }
+        } catch (Exception e) {
+            failed.increment();
+            jobService.fail(job, owner, e);
+        } finally {
+            runTime.record(System.currentTimeMillis() - startTime);
+            active.decrementAndGet();
+        }
+    }
+
+    // False if the job's lease was taken over meanwhile, in which case the result is discarded
+    private boolean renderPdf(DocumentJob job, String owner) throws Exception {
+        String type = job.getParams().get("docType");
+        String id = job.getParams().get("docId");
+        try (RenderedDocumentCache.Rendered pdf = switch (type) {
+            case RenderedDocumentCache.TYPE_INVOICE -> pdfService.openInvoicePdf(id);
+            case RenderedDocumentCache.TYPE_CHALLAN -> challanPdfService.openChallanPdf(id);
+            case RenderedDocumentCache.TYPE_ESTIMATE -> estimateService.openEstimatePdf(id);
+            case RenderedDocumentCache.TYPE_CREDIT_NOTE -> creditNoteService.openPdf(id);
+            default -> throw new IllegalArgumentException("Unknown document type: " + type);
+        }) {
+            return jobService.complete(job, owner, pdf.stream(), type + "-" + id + ".pdf", MediaType.APPLICATION_PDF_VALUE, pdf.length());
+        }
+    }
+
+    private void purgeIfDue() {
+        Instant now = Instant.now();
+        if (lastPurge.plus(purgeInterval).isAfter(now)) return;
+        synchronized (this) {
+            if (lastPurge.plus(purgeInterval).isAfter(now)) return;
+            lastPurge = now;
+        }
+        jobService.purgeExpired();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("workerId", workerId);
+        stats.put("threads", enabled ? threads : 0);
+        stats.put("active", active.get());
+        stats.put("succeeded", succeeded.sum());
+        stats.put("failed", failed.sum());
+        stats.put("leaseLost", leaseLost.sum());
+        stats.put("queueWait", queueWait.snapshot());
+        stats.put("runTime", runTime.snapshot());
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+    }
+}
@@ -0,0 +1,298 @@
+package com.billingapp.service;
+
+import com.billingapp.entity.Challan;
+import com.billingapp.entity.CreditNote;
+import com.billingapp.entity.DocumentCounter;
+import com.billingapp.entity.Estimate;
+import com.billingapp.entity.Invoice;
+import com.billingapp.entity.WorkCompletionCertificate;
+import com.billingapp.util.FinancialYear;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Document numbers ({@code JMD/2025-26/014}) from per-series counters in {@code document_counters}.
+ * <p>
+ * A series is a document type plus the financial-year prefix, so numbering restarts every April.
+ * Each allocation is one atomic findAndModify {@code $inc}, which is collision-free across app instances.
+ * The first use of a series seeds its counter from the highest number already stored (one index range scan),
+ * and numbers typed in or edited by hand are recorded with {@code $max} through {@link #observe}, so the counter
+ * never hands out a number that exists. Should an allocated number still be taken, {@link #saveNumbered}
+ * catches the counter up with the stored numbers and retries.
+ * <p>
+ * With {@code app.numbering.block-size} above 1 each node reserves a block of numbers per round trip (hi-lo).
+ * Numbers then stay unique but are no longer in creation order across nodes, and an unused block leaves a gap
+ * on restart, so keep the default of 1 wherever consecutive numbering is required (GST invoices).
+ */
+@Slf4j
+@Service
+public class DocumentNumberService {
+
+    public static final String INVOICE = "invoice";
+    public static final String CHALLAN = "challan";
+    public static final String ESTIMATE = "estimate";
+    public static final String CREDIT_NOTE = "credit-note";
+    public static final String WCC = "wcc";
+
+    // Saves retried with a fresh number after an allocated one turned out to be taken
+    public static final int MAX_ALLOCATION_ATTEMPTS = 5;
+
+    private record Series(Class<?> entity, String field) {}
+
+    private static final Map<String, Series> SERIES = Map.of(
+            INVOICE, new Series(Invoice.class, "invoiceNo"),
+            CHALLAN, new Series(Challan.class, "challanNo"),
+            ESTIMATE, new Series(Estimate.class, "estimateNo"),
+            CREDIT_NOTE, new Series(CreditNote.class, "creditNoteNo"),
+            WCC, new Series(WorkCompletionCertificate.class, "refNo")
+    );
+
+    // A node's reserved range of sequence numbers (hi-lo); package-private for the unit tests
+    static final class Block {
+        long next;
+        long end; // exclusive
+
+        boolean exhausted() {
+            return next >= end;
+        }
+
+        /** Takes over the range of {@code size} numbers starting at {@code first}. */
+        void refill(long first, int size) {
+            next = first;
+            end = first + size;
+        }
+
+        long take() {
+            return next++;
+        }
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final String prefixPattern;
+    private final Pattern numberPattern; // prefix pattern with any FY, then the sequence
+    private final int minWidth;
+    private final int blockSize;
+    private final ZoneId zone;
+
+    private final Map<String, DocumentCounter> seeded = new ConcurrentHashMap<>(); // as seeded; seq goes stale
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    public DocumentNumberService(MongoTemplate mongoTemplate,
+                                 @Value("${app.numbering.prefix:JMD/{fy}/}") String prefixPattern,
+                                 @Value("${app.numbering.min-width:2}") int minWidth,
+                                 @Value("${app.numbering.block-size:1}") int blockSize,
+                                 @Value("${app.dashboard.timezone:Asia/Kolkata}") String timezone) {
+        if (!prefixPattern.contains("{fy}")) {
+            throw new IllegalArgumentException("app.numbering.prefix must contain {fy}: " + prefixPattern);
+        }
+        this.mongoTemplate = mongoTemplate;
+        this.prefixPattern = prefixPattern;
+        this.numberPattern = numberPattern(prefixPattern);
+        this.minWidth = minWidth;
+        this.blockSize = Math.max(1, blockSize);
+        this.zone = ZoneId.of(timezone);
+    }
+
+    /** Allocates the next number of {@code type} in the financial year of {@code date} (default today). */
+    public String next(String type, LocalDate date) {
+        String prefix = prefix(date);
+        DocumentCounter counter = seed(type, prefix);
+        long seq = blockSize == 1 ? allocate(counter.getId(), 1) : fromBlock(counter.getId());
+        String number = prefix + String.format("%0" + counter.getWidth() + "d", seq);
+        log.info("Allocated {} number {}", type, number);
+        return number;
+    }
+
+    public String next(String type, Instant date) {
+        return next(type, date != null ? LocalDate.ofInstant(date, zone) : null);
+    }
+
+    /** The number {@link #next} would hand out now on a single node, without allocating it. */
+    public Map<String, Object> peek(String type, LocalDate date) {
+        String prefix = prefix(date);
+        DocumentCounter counter = seed(type, prefix);
+        DocumentCounter current = mongoTemplate.findById(counter.getId(), DocumentCounter.class);
+        long last = current != null ? current.getSeq() : 0;
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("type", type);
+        body.put("prefix", prefix);
+        body.put("last", last);
+        body.put("next", prefix + String.format("%0" + counter.getWidth() + "d", last + 1));
+        body.put("blockSize", blockSize);
+        return body;
+    }
+
+    /**
+     * Records a number that was entered by hand, so later allocations in its series continue after it.
+     * Numbers that do not follow the configured pattern are ignored.
+     */
+    public void observe(String type, String number) {
+        if (number == null) return;
+        Matcher matcher = numberPattern.matcher(number.trim());
+        if (!matcher.matches()) return;
+        String digits = matcher.group(1);
+        String prefix = number.trim().substring(0, matcher.start(1));
+        DocumentCounter counter = seed(type, prefix);
+        long seq = Long.parseLong(digits);
+        if (seq > counter.getSeq()) {
+            mongoTemplate.updateFirst(new Query(where("_id").is(counter.getId())),
+                    new Update().max("seq", seq).set("updatedAt", Instant.now()), DocumentCounter.class);
+        }
+    }
+
+    /**
+     * Saves a new document under {@code manualNumber}, or under a number from {@code nextNumber} when none was
+     * typed in. {@code save} sets the number on the document and inserts it. An allocated number rejected by the
+     * unique index (a number entered ahead of the counter) moves the counter past the stored numbers and the save
+     * is retried, so a {@link DuplicateKeyException} only reaches the caller for a typed-in number, or once
+     * {@value #MAX_ALLOCATION_ATTEMPTS} allocations in a row collided.
+     */
+    public <T> T saveNumbered(String type, String manualNumber, Supplier<String> nextNumber, Function<String, T> save) {
+        if (manualNumber != null && !manualNumber.isBlank()) {
+            T saved = save.apply(manualNumber);
+            observe(type, manualNumber);
+            return saved;
+        }
+        for (int attempt = 1; ; attempt++) {
+            String number = nextNumber.get();
+            try {
+                return save.apply(number);
+            } catch (DuplicateKeyException e) {
+                if (attempt >= MAX_ALLOCATION_ATTEMPTS) {
+                    throw e;
+                }
+                log.warn("Allocated {} number {} is already taken (attempt {}/{}); moving the counter past the stored numbers",
+                        type, number, attempt, MAX_ALLOCATION_ATTEMPTS);
+                catchUp(type, number);
+            }
+        }
+    }
+
+    // Raises the counter of the number's series to the highest number stored, and drops this node's block of it
+    private void catchUp(String type, String number) {
+        Matcher matcher = numberPattern.matcher(number);
+        if (!matcher.matches()) return;
+        String prefix = number.substring(0, matcher.start(1));
+        DocumentCounter counter = seed(type, prefix);
+        long max = Math.max(Long.parseLong(matcher.group(1)), maxStored(SERIES.get(type), prefix)[0]);
+        mongoTemplate.updateFirst(new Query(where("_id").is(counter.getId())),
+                new Update().max("seq", max).set("updatedAt", Instant.now()), DocumentCounter.class);
+        blocks.remove(counter.getId());
+    }
+
+    private String prefix(LocalDate date) {
+        LocalDate day = date != null ? date : LocalDate.now(zone);
+        return prefixPattern.replace("{fy}", FinancialYear.labelOf(day));
+    }
+
+    private long allocate(String counterId, int n) {
+        DocumentCounter counter = mongoTemplate.findAndModify(new Query(where("_id").is(counterId)),
+                new Update().inc("seq", n).set("updatedAt", Instant.now()),
+                FindAndModifyOptions.options().returnNew(true), DocumentCounter.class);
+        if (counter == null) {
+            seeded.remove(counterId); // dropped by hand: the next call seeds it again
+            throw new IllegalStateException("Document counter disappeared, retry: " + counterId);
+        }
+        return firstOfRange(counter.getSeq(), n);
+    }
+
+    /** First number of a range of {@code n} reserved by an {@code $inc} that left the counter at {@code seq}. */
+    static long firstOfRange(long seq, int n) {
+        return seq - n + 1;
+    }
+
+    private long fromBlock(String counterId) {
+        Block block = blocks.computeIfAbsent(counterId, k -> new Block());
+        synchronized (block) {
+            if (block.exhausted()) {
+                block.refill(allocate(counterId, blockSize), blockSize);
+                log.info("Reserved numbers {}..{} of {} on this node", block.next, block.end - 1, counterId);
+            }
+            return block.take();
+        }
+    }
+
+    // Creates the series counter on first use, starting after the highest number already stored
+    private DocumentCounter seed(String type, String prefix) {
+        Series series = SERIES.get(type);
+        if (series == null) {
+            throw new IllegalArgumentException("Unknown document type: " + type + " (expected one of " + SERIES.keySet() + ")");
+        }
+        String counterId = type + ":" + prefix;
+        DocumentCounter known = seeded.get(counterId);
+        if (known != null) {
+            return known;
+        }
+
+        long[] stored = maxStored(series, prefix);
+        long max = stored[0];
+        int width = (int) stored[1];
+
+        // Concurrent seeders compute the same starting point; only the first insert takes effect
+        Update update = new Update()
+                .setOnInsert("type", type)
+                .setOnInsert("prefix", prefix)
+                .setOnInsert("seq", max)
+                .setOnInsert("width", width)
+                .setOnInsert("updatedAt", Instant.now());
+        DocumentCounter counter = mongoTemplate.findAndModify(new Query(where("_id").is(counterId)), update,
+                FindAndModifyOptions.options().upsert(true).returnNew(true), DocumentCounter.class);
+        seeded.put(counterId, counter);
+        if (counter.getSeq() == max) {
+            log.info("Document counter {} ready at {} (width {})", counterId, max, counter.getWidth());
+        }
+        return counter;
+    }
+
+    /** Matches any number of the configured series, whatever its financial year; group 1 is the sequence. */
+    static Pattern numberPattern(String prefixPattern) {
+        return Pattern.compile(Pattern.quote(prefixPattern).replace("{fy}", "\\E\\d{4}-\\d{2}\\Q") + "(\\d+)");
+    }
+
+    /** Anchored regex for the stored numbers of one series: the literal prefix, then digits only. */
+    static String seriesRegex(String prefix) {
+        return "^" + prefix.replaceAll("\\W", "\\\\$0") + "\\d+$";
+    }
+
+    // Highest sequence stored under the prefix, and the digit width it was written with: {max, width}
+    private long[] maxStored(Series series, String prefix) {
+        long max = 0;
+        int width = minWidth;
+        // Anchored prefix regex: a range scan on the unique number index
+        Query existing = new Query(where(series.field()).regex(seriesRegex(prefix)));
+        existing.fields().include(series.field()).exclude("_id");
+        String collection = mongoTemplate.getCollectionName(series.entity());
+        try (Stream<Document> numbers = mongoTemplate.stream(existing, Document.class, collection)) {
+            for (Document doc : (Iterable<Document>) numbers::iterator) {
+                String digits = doc.getString(series.field()).substring(prefix.length());
+                long seq = Long.parseLong(digits);
+                if (seq > max) {
+                    max = seq;
+                    width = Math.max(minWidth, digits.length());
+                }
+            }
+        }
+        return new long[]{max, width};
+    }
+}
@@ -0,0 +1,248 @@
+package com.billingapp.service;
+
+import com.billingapp.entity.EmailOutbox;
+import com.billingapp.entity.Invoice;
+import com.billingapp.repository.InvoiceRepository;
+import com.billingapp.util.LatencyHistogram;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Background sender for the {@code email_outbox} ({@code app.email.dispatcher.enabled}).
+ * <p>
+ * Each round claims up to {@code batch-size} due messages, builds them, and hands the whole batch to
+ * {@link JavaMailSender#send(MimeMessage...)}, which opens one SMTP connection (one TLS handshake and
+ * login) for the batch instead of one per mail. Per-message failures reported by the sender are retried
+ * through the outbox; the rest of the batch is marked sent. {@code max-per-minute} paces all dispatcher threads
+ * of this node together, to stay under the mail provider's sending limits during bulk runs (payment reminders).
+ */
+@Slf4j
+@Service
+public class EmailDispatcher implements DisposableBean {
+
+    private final boolean enabled;
+    private final int threads;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final long sendIntervalNanos; // 0 = unlimited
+    private final EmailOutboxService outboxService;
+    private final EmailService emailService;
+    private final JavaMailSender mailSender;
+    private final PdfService pdfService;
+    private final InvoiceRepository invoiceRepository;
+
+    private final String dispatcherId = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+    private long nextSendAt = System.nanoTime(); // guarded by this
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder throttledMillis = new LongAdder();
+    private final LatencyHistogram batchSendTime = new LatencyHistogram(); // one SMTP session per batch
+
+    public EmailDispatcher(@Value("${app.email.dispatcher.enabled:true}") boolean enabled,
+                           @Value("${app.email.dispatcher.threads:1}") int threads,
+                           @Value("${app.email.dispatcher.batch-size:20}") int batchSize,
+                           @Value("${app.email.dispatcher.poll-interval:2s}") Duration pollInterval,
+                           @Value("${app.email.dispatcher.max-per-minute:60}") int maxPerMinute,
+                           EmailOutboxService outboxService,
+                           EmailService emailService,
+                           JavaMailSender mailSender,
+                           PdfService pdfService,
+                           InvoiceRepository invoiceRepository) {
+        this.enabled = enabled;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.sendIntervalNanos = maxPerMinute > 0 ? TimeUnit.MINUTES.toNanos(1) / maxPerMinute : 0;
+        this.outboxService = outboxService;
+        this.emailService = emailService;
+        this.mailSender = mailSender;
+        this.pdfService = pdfService;
+        this.invoiceRepository = invoiceRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Email dispatcher disabled on this node; outbox is drained by other nodes");
+            return;
+        }
+        running = true;
+        for (int i = 1; i <= threads; i++) {
+            Thread t = new Thread(this::loop, "email-dispatcher-" + i);
+            t.setDaemon(true);
+            t.start();
+            workers.add(t);
+        }
+        log.info("Email dispatcher {} started with {} thread(s), batches of {}", dispatcherId, threads, batchSize);
+    }
+
+    private void loop() {
+        String owner = dispatcherId + "#" + Thread.currentThread().getName();
+        while (running) {
+            try {
+                List<EmailOutbox> batch = outboxService.claimBatch(owner, batchSize);
+                if (batch.isEmpty()) {
+                    Thread.sleep(pollInterval.toMillis());
+                    continue;
+                }
+                dispatch(batch, owner);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Mongo unavailable etc.: back off and keep the dispatcher alive
+                log.error("Email dispatcher loop error: " + e.getMessage(), e);
+                try {
+                    Thread.sleep(pollInterval.multipliedBy(5).toMillis());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(List<EmailOutbox> batch, String owner) throws InterruptedException {
+        // Build every message first; one that cannot be built must not hold up the others
+        Map<MimeMessage, EmailOutbox> built = new IdentityHashMap<>();
+        List<MimeMessage> messages = new ArrayList<>();
+        for (EmailOutbox entry : batch) {
+            try {
+                if (entry.getAttempts() > entry.getMaxAttempts()) {
+                    // Reclaimed after its lease expired on the last attempt (dispatcher crashed composing or sending it);
+                    // failing it here stops a message that kills the dispatcher from being re-sent forever
+                    throw new IllegalStateException("Lease expired on the final attempt");
+                }
+                MimeMessage message = compose(entry);
+                built.put(message, entry);
+                messages.add(message);
+            } catch (Exception e) {
+                failed.increment();
+                outboxService.markFailed(entry, owner, e);
+            }
+        }
+        if (messages.isEmpty()) return;
+
+        throttle(messages.size());
+        long startTime = System.currentTimeMillis();
+        Map<Object, Exception> failures = Map.of();
+        try {
+            mailSender.send(messages.toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            // Holds the messages that did not go out; the others were accepted by the server
+            failures = e.getFailedMessages();
+            if (failures.isEmpty()) {
+                failures = allFailed(messages, e);
+            }
+        } catch (MailException e) {
+            // Authentication or connection failure: nothing was sent
+            failures = allFailed(messages, e);
+        }
+        batches.increment();
+        batchSendTime.record(System.currentTimeMillis() - startTime);
+
+        for (MimeMessage message : messages) {
+            EmailOutbox entry = built.get(message);
+            Exception error = failures.get(message);
+            if (error != null) {
+                failed.increment();
+                outboxService.markFailed(entry, owner, error);
+            } else {
+                sent.increment();
+                outboxService.markSent(entry, owner, messageId(message));
+            }
+        }
+        log.info("Email batch of {} dispatched in {} ms ({} failed)", messages.size(), System.currentTimeMillis() - startTime, failures.size());
+    }
+
+    private MimeMessage compose(EmailOutbox entry) throws Exception {
+        Map<String, InputStreamSource> attachments = new LinkedHashMap<>();
+        if (EmailOutbox.KIND_INVOICE.equals(entry.getKind())) {
+            attachments.putAll(outboxService.attachments(entry));
+            return emailService.composeInvoiceMail(entry.getInvoiceIds().get(0), entry.getToEmail(), attachments);
+        }
+        if (entry.isAttachInvoicePdfs()) {
+            for (Invoice invoice : invoiceRepository.findAllById(entry.getInvoiceIds())) {
+                attachments.put("Invoice_" + invoice.getInvoiceNo().replace("/", "-") + ".pdf",
+                        new ByteArrayResource(pdfService.generateInvoicePdf(invoice.getId())));
+            }
+        }
+        attachments.putAll(outboxService.attachments(entry));
+        return emailService.composeMail(entry.getToEmail(), entry.getSubject(), entry.getBody(), attachments);
+    }
+
+    // Reserves the next send slots for n messages and waits for the first one
+    private void throttle(int n) throws InterruptedException {
+        if (sendIntervalNanos == 0) return;
+        long start;
+        synchronized (this) {
+            start = Math.max(System.nanoTime(), nextSendAt);
+            nextSendAt = start + n * sendIntervalNanos;
+        }
+        long waitNanos = start - System.nanoTime();
+        if (waitNanos > 0) {
+            throttledMillis.add(TimeUnit.NANOSECONDS.toMillis(waitNanos));
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private static Map<Object, Exception> allFailed(List<MimeMessage> messages, Exception e) {
+        Map<Object, Exception> failures = new IdentityHashMap<>();
+        messages.forEach(m -> failures.put(m, e));
+        return failures;
+    }
+
+    private static String messageId(MimeMessage message) {
+        try {
+            return message.getMessageID();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("dispatcherId", dispatcherId);
+        stats.put("threads", enabled ? threads : 0);
+        stats.put("batchSize", batchSize);
+        stats.put("maxPerMinute", sendIntervalNanos > 0 ? TimeUnit.MINUTES.toNanos(1) / sendIntervalNanos : 0);
+        stats.put("throttledMillis", throttledMillis.sum());
+        stats.put("batches", batches.sum());
+        stats.put("sent", sent.sum());
+        stats.put("failed", failed.sum());
+        stats.put("batchSendTime", batchSendTime.snapshot());
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+    }
+}
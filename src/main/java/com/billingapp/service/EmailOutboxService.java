@@ -0,0 +1,264 @@
+package com.billingapp.service;
+
+import com.billingapp.entity.EmailOutbox;
+import com.billingapp.repository.EmailOutboxRepository;
+import com.billingapp.repository.InvoiceRepository;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Transactional email outbox ({@code email_outbox} collection, attachments in GridFS).
+ * <p>
+ * Request threads only {@link #enqueueInvoice} / {@link #enqueueMessage} and return; the
+ * {@code EmailDispatcher} claims due messages in batches, sends them and records the outcome.
+ * A transient SMTP failure is retried with exponential backoff instead of being lost.
+ */
+@Slf4j
+@Service
+public class EmailOutboxService {
+
+    private final EmailOutboxRepository outboxRepository;
+    private final InvoiceRepository invoiceRepository;
+    private final MongoTemplate mongoTemplate;
+    private final GridFsTemplate gridFsTemplate;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration retryBackoff;
+
+    public EmailOutboxService(EmailOutboxRepository outboxRepository,
+                              InvoiceRepository invoiceRepository,
+                              MongoTemplate mongoTemplate,
+                              GridFsTemplate gridFsTemplate,
+                              @Value("${app.email.outbox.max-attempts:6}") int maxAttempts,
+                              @Value("${app.email.outbox.lease:2m}") Duration lease,
+                              @Value("${app.email.outbox.retry-backoff:30s}") Duration retryBackoff) {
+        this.outboxRepository = outboxRepository;
+        this.invoiceRepository = invoiceRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.gridFsTemplate = gridFsTemplate;
+        this.maxAttempts = maxAttempts;
+        this.lease = lease;
+        this.retryBackoff = retryBackoff;
+    }
+
+    // --- Producer side (API) ---
+
+    /** The invoice mail with its PDF, plus any uploaded attachments. */
+    public EmailOutbox enqueueInvoice(String invoiceId, String toEmail, List<MultipartFile> attachments) throws IOException {
+        requireRecipient(toEmail);
+        if (!invoiceRepository.existsById(invoiceId)) {
+            throw new IllegalArgumentException("Invoice not found: " + invoiceId);
+        }
+        List<String> fileIds = new ArrayList<>();
+        if (attachments != null) {
+            for (MultipartFile file : attachments) {
+                if (!file.isEmpty()) {
+                    try (InputStream in = file.getInputStream()) {
+                        ObjectId fileId = gridFsTemplate.store(in, file.getOriginalFilename(), file.getContentType(),
+                                new org.bson.Document("kind", "email-attachment"));
+                        fileIds.add(fileId.toHexString());
+                    }
+                }
+            }
+        }
+        return append(EmailOutbox.builder()
+                .kind(EmailOutbox.KIND_INVOICE)
+                .toEmail(toEmail)
+                .invoiceIds(List.of(invoiceId))
+                .attachInvoicePdfs(true)
+                .attachmentFileIds(fileIds));
+    }
+
+    /** A free-form mail about the given invoices, optionally with their PDFs attached. */
+    public EmailOutbox enqueueMessage(String toEmail, String subject, String body, List<String> invoiceIds, boolean attachInvoicePdfs) {
+        requireRecipient(toEmail);
+        return append(EmailOutbox.builder()
+                .kind(EmailOutbox.KIND_MESSAGE)
+                .toEmail(toEmail)
+                .subject(subject)
+                .body(body)
+                .invoiceIds(invoiceIds != null ? invoiceIds : List.of())
+                .attachInvoicePdfs(attachInvoicePdfs)
+                .attachmentFileIds(List.of()));
+    }
+
+    private EmailOutbox append(EmailOutbox.EmailOutboxBuilder builder) {
+        Instant now = Instant.now();
+        EmailOutbox message = outboxRepository.save(builder
+                .status(EmailOutbox.STATUS_PENDING)
+                .attempts(0)
+                .maxAttempts(maxAttempts)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+        log.info("Email {} queued in outbox for {} (invoices {})", message.getId(), message.getToEmail(), message.getInvoiceIds());
+        return message;
+    }
+
+    private static void requireRecipient(String toEmail) {
+        if (toEmail == null || toEmail.isBlank()) {
+            throw new IllegalArgumentException("Recipient email is required");
+        }
+    }
+
+    public EmailOutbox get(String id) {
+        return outboxRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Outbox email not found: " + id));
+    }
+
+    public List<Map<String, Object>> forInvoice(String invoiceId) {
+        return outboxRepository.findByInvoiceIdsOrderByCreatedAtDesc(invoiceId).stream().map(this::describe).toList();
+    }
+
+    public Map<String, Object> describe(EmailOutbox message) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("id", message.getId());
+        body.put("status", message.getStatus());
+        body.put("toEmail", message.getToEmail());
+        body.put("subject", message.getSubject());
+        body.put("invoiceIds", message.getInvoiceIds());
+        body.put("attempts", message.getAttempts());
+        body.put("lastError", message.getLastError());
+        body.put("createdAt", message.getCreatedAt());
+        body.put("nextAttemptAt", EmailOutbox.STATUS_PENDING.equals(message.getStatus()) ? message.getNextAttemptAt() : null);
+        body.put("sentAt", message.getSentAt());
+        body.put("statusUrl", "/api/email/outbox/" + message.getId());
+        return body;
+    }
+
+    // --- Dispatcher side ---
+
+    /**
+     * Claims up to {@code limit} due messages (pending, or sending with an expired lease), oldest first.
+     * Each claim is an atomic findAndModify, so concurrent dispatchers never share a message.
+     */
+    public List<EmailOutbox> claimBatch(String owner, int limit) {
+        List<EmailOutbox> batch = new ArrayList<>();
+        while (batch.size() < limit) {
+            Instant now = Instant.now();
+            Query query = new Query(new Criteria().orOperator(
+                    where("status").is(EmailOutbox.STATUS_PENDING).and("nextAttemptAt").lte(now),
+                    where("status").is(EmailOutbox.STATUS_SENDING).and("leaseUntil").lt(now)))
+                    .with(Sort.by(Sort.Direction.ASC, "nextAttemptAt"));
+            Update update = new Update()
+                    .set("status", EmailOutbox.STATUS_SENDING)
+                    .set("leaseOwner", owner)
+                    .set("leaseUntil", now.plus(lease))
+                    .set("updatedAt", now)
+                    .inc("attempts", 1);
+            EmailOutbox message = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), EmailOutbox.class);
+            if (message == null) break;
+            batch.add(message);
+        }
+        return batch;
+    }
+
+    /** Extra attachments of a message, keyed by file name. */
+    public Map<String, InputStreamSource> attachments(EmailOutbox message) {
+        Map<String, InputStreamSource> files = new LinkedHashMap<>();
+        if (message.getAttachmentFileIds() != null) {
+            for (String fileId : message.getAttachmentFileIds()) {
+                GridFSFile file = gridFsTemplate.findOne(new Query(where("_id").is(new ObjectId(fileId))));
+                if (file == null) {
+                    throw new IllegalArgumentException("Attachment not found: " + fileId);
+                }
+                files.put(file.getFilename(), gridFsTemplate.getResource(file));
+            }
+        }
+        return files;
+    }
+
+    public void markSent(EmailOutbox message, String owner, String messageId) {
+        Instant now = Instant.now();
+        Update update = new Update()
+                .set("status", EmailOutbox.STATUS_SENT)
+                .set("sentAt", now)
+                .set("updatedAt", now)
+                .set("messageId", messageId)
+                .set("lastError", null)
+                .unset("leaseOwner")
+                .unset("leaseUntil");
+        // Even if the lease was lost the mail did go out, so record it unconditionally
+        mongoTemplate.updateFirst(new Query(where("_id").is(message.getId())), update, EmailOutbox.class);
+        deleteAttachments(message);
+    }
+
+    /** Schedules a retry with exponential backoff, or fails the message for good. */
+    public void markFailed(EmailOutbox message, String owner, Exception error) {
+        Instant now = Instant.now();
+        String reason = error.getClass().getSimpleName() + ": " + error.getMessage();
+        boolean retry = message.getAttempts() < message.getMaxAttempts() && !isPermanent(error);
+        Update update = new Update()
+                .set("lastError", reason)
+                .set("updatedAt", now)
+                .unset("leaseOwner")
+                .unset("leaseUntil");
+        if (retry) {
+            Duration delay = retryBackoff.multipliedBy(1L << Math.min(message.getAttempts() - 1, 10));
+            update.set("status", EmailOutbox.STATUS_PENDING).set("nextAttemptAt", now.plus(delay));
+            log.warn("Email {} to {} attempt {}/{} failed, retrying in {} s: {}",
+                    message.getId(), message.getToEmail(), message.getAttempts(), message.getMaxAttempts(), delay.toSeconds(), reason);
+        } else {
+            update.set("status", EmailOutbox.STATUS_FAILED);
+            log.error("Email {} to {} failed permanently after {} attempt(s): {}",
+                    message.getId(), message.getToEmail(), message.getAttempts(), reason);
+        }
+        Query held = new Query(where("_id").is(message.getId())
+                .and("status").is(EmailOutbox.STATUS_SENDING)
+                .and("leaseOwner").is(owner));
+        if (mongoTemplate.updateFirst(held, update, EmailOutbox.class).getModifiedCount() > 0 && !retry) {
+            deleteAttachments(message);
+        }
+    }
+
+    // Bad addresses and messages that cannot be built will not get better by retrying
+    private static boolean isPermanent(Exception error) {
+        return error instanceof IllegalArgumentException
+                || error instanceof MailParseException
+                || error instanceof MailPreparationException
+                || error instanceof jakarta.mail.internet.AddressException;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (String status : List.of(EmailOutbox.STATUS_PENDING, EmailOutbox.STATUS_SENDING,
+                EmailOutbox.STATUS_SENT, EmailOutbox.STATUS_FAILED)) {
+            stats.put(status.toLowerCase(), mongoTemplate.count(new Query(where("status").is(status)), EmailOutbox.class));
+        }
+        return stats;
+    }
+
+    private void deleteAttachments(EmailOutbox message) {
+        if (message.getAttachmentFileIds() != null) {
+            for (String fileId : message.getAttachmentFileIds()) {
+                gridFsTemplate.delete(new Query(where("_id").is(new ObjectId(fileId))));
+            }
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.billingapp.service;
 
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.web.multipart.MultipartFile;
 import java.util.List;
+import java.util.Map;
 
 public interface EmailService {
     // Existing simple method (keep this to satisfy the contract)
@@ -9,4 +12,9 @@ public interface EmailService {
 
     // 👇 ADD THIS NEW METHOD
     void sendInvoiceWithAttachments(String invoiceId, String toEmail, List<MultipartFile> attachments);
-}
\ No newline at end of file
+
+    // Builders used by the outbox dispatcher, which sends many messages over one SMTP connection
+    MimeMessage composeInvoiceMail(String invoiceId, String toEmail, Map<String, InputStreamSource> attachments) throws Exception;
+
+    MimeMessage composeMail(String to, String subject, String body, Map<String, InputStreamSource> attachments) throws Exception;
+}
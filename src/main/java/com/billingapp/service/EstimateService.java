@@ -15,4 +15,6 @@ public interface EstimateService {
     void deleteEstimate(String id);
 
     byte[] generateEstimatePdf(String id) throws Exception;
+
+    RenderedDocumentCache.Rendered openEstimatePdf(String id) throws Exception;
 }
\ No newline at end of file
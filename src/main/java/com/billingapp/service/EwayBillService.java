@@ -5,7 +5,6 @@ import com.billingapp.entity.Client;
 import com.billingapp.entity.Company;
 import com.billingapp.entity.Invoice;
 import com.billingapp.repository.ClientRepository;
-import com.billingapp.repository.CompanyRepository;
 import com.billingapp.repository.InvoiceRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.stereotype.Service;
@@ -21,13 +20,13 @@ import java.util.regex.Pattern;
 public class EwayBillService {
 
     private final InvoiceRepository invoiceRepository;
-    private final CompanyRepository companyRepository;
+    private final CompanyProfileProvider companyProfile;
     private final ClientRepository clientRepository;
     private final ObjectMapper objectMapper;
 
-    public EwayBillService(InvoiceRepository invoiceRepository, CompanyRepository companyRepository, ClientRepository clientRepository) {
+    public EwayBillService(InvoiceRepository invoiceRepository, CompanyProfileProvider companyProfile, ClientRepository clientRepository) {
         this.invoiceRepository = invoiceRepository;
-        this.companyRepository = companyRepository;
+        this.companyProfile = companyProfile;
         this.clientRepository = clientRepository;
         this.objectMapper = new ObjectMapper();
     }
@@ -46,7 +45,7 @@ public class EwayBillService {
         // 1. Fetch Data
         Invoice invoice = invoiceRepository.findById(invoiceId).orElseThrow();
         Client client = clientRepository.findById(invoice.getClientId()).orElseThrow();
-        Company company = companyRepository.findById("MY_COMPANY").orElse(new Company());
+        Company company = companyProfile.current();
 
         // 2. Map to E-Way Schema
         EwayBillRequest req = new EwayBillRequest();
@@ -0,0 +1,161 @@
+package com.billingapp.service;
+
+import com.billingapp.entity.Client;
+import com.billingapp.entity.Invoice;
+import com.billingapp.repository.ClientRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Month-end bulk export: every invoice PDF matching the search filters, streamed into one ZIP.
+ * <p>
+ * Invoices are read through a Mongo cursor and rendered on a bounded pool shared by all exports.
+ * At most {@code window} renders are in flight per export, and each finished PDF is copied into the
+ * ZIP as soon as it completes, so memory stays flat regardless of how many invoices match.
+ * The clients are loaded once per export instead of once per invoice (the company profile is an in-memory snapshot).
+ */
+@Slf4j
+@Service
+public class InvoiceExportService implements DisposableBean {
+
+    private final InvoiceService invoiceService;
+    private final PdfService pdfService;
+    private final ClientRepository clientRepository;
+    private final MongoTemplate mongoTemplate;
+    private final ThreadPoolExecutor renderPool;
+    private final int window;
+
+    private record Job(Invoice invoice, RenderedDocumentCache.Rendered pdf, Exception error) {}
+
+    public InvoiceExportService(InvoiceService invoiceService,
+                                PdfService pdfService,
+                                ClientRepository clientRepository,
+                                MongoTemplate mongoTemplate,
+                                @Value("${app.export.pdf-threads:4}") int threads) {
+        this.invoiceService = invoiceService;
+        this.pdfService = pdfService;
+        this.clientRepository = clientRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.window = threads * 2;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.renderPool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "pdf-export-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.renderPool.allowCoreThreadTimeOut(true);
+    }
+
+    public void exportPdfZip(String clientId, String status, String fromIso, String toIso,
+                             Double minTotal, Double maxTotal, OutputStream out) throws IOException {
+        long startTime = System.currentTimeMillis();
+        Query query = invoiceService.buildSearchQuery(clientId, status, fromIso, toIso, minTotal, maxTotal);
+
+        // Prefetch everything shared between invoices once
+        Map<String, Client> clients = new HashMap<>();
+        List<String> clientIds = mongoTemplate.findDistinct(query, "clientId", Invoice.class, String.class);
+        clientRepository.findAllById(clientIds).forEach(c -> clients.put(c.getId(), c));
+        log.info("Starting bulk invoice PDF export: {} clients prefetched, window {} renders", clients.size(), window);
+
+        CompletionService<Job> completion = new ExecutorCompletionService<>(renderPool);
+        List<Future<Job>> inFlight = new ArrayList<>();
+        Set<String> usedNames = new HashSet<>();
+        List<String> failures = new ArrayList<>();
+        int exported = 0;
+
+        ZipOutputStream zip = new ZipOutputStream(out);
+        try (Stream<Invoice> invoices = mongoTemplate.stream(query.with(Sort.by(Sort.Direction.ASC, "createdAt")), Invoice.class)) {
+            Iterator<Invoice> it = invoices.iterator();
+            while (it.hasNext() || !inFlight.isEmpty()) {
+                while (it.hasNext() && inFlight.size() < window) {
+                    Invoice invoice = it.next();
+                    Client client = clients.getOrDefault(invoice.getClientId(), new Client());
+                    inFlight.add(completion.submit(() -> {
+                        try {
+                            return new Job(invoice, pdfService.openInvoicePdf(invoice, client), null);
+                        } catch (Exception e) {
+                            return new Job(invoice, null, e);
+                        }
+                    }));
+                }
+
+                Future<Job> done = completion.take();
+                inFlight.remove(done);
+                Job job = done.get();
+                if (job.error() != null) {
+                    log.error("Bulk export could not render invoice " + job.invoice().getId() + ": " + job.error().getMessage(), job.error());
+                    failures.add(job.invoice().getInvoiceNo() + " (" + job.invoice().getId() + "): " + job.error().getMessage());
+                    continue;
+                }
+                try (RenderedDocumentCache.Rendered pdf = job.pdf()) {
+                    zip.putNextEntry(new ZipEntry(entryName(job.invoice(), usedNames)));
+                    pdf.stream().transferTo(zip);
+                    zip.closeEntry();
+                }
+                exported++;
+            }
+
+            if (!failures.isEmpty()) {
+                zip.putNextEntry(new ZipEntry("ERRORS.txt"));
+                zip.write(String.join("\n", failures).getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+            zip.finish();
+            log.info("Bulk invoice PDF export finished: {} PDFs, {} failures in {} ms", exported, failures.size(), System.currentTimeMillis() - startTime);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Bulk export interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Bulk export failed", e.getCause());
+        } finally {
+            // Client went away or something failed: stop pending renders and release open files
+            for (Future<Job> future : inFlight) {
+                if (!future.cancel(true)) {
+                    closeQuietly(future);
+                }
+            }
+        }
+    }
+
+    private String entryName(Invoice invoice, Set<String> usedNames) {
+        String base = invoice.getInvoiceNo() != null ? invoice.getInvoiceNo() : invoice.getId();
+        String name = "Invoice_" + base.replaceAll("[^A-Za-z0-9._-]", "-");
+        if (!usedNames.add(name)) {
+            name = name + "_" + invoice.getId();
+            usedNames.add(name);
+        }
+        return name + ".pdf";
+    }
+
+    private void closeQuietly(Future<Job> future) {
+        try {
+            Job job = future.get();
+            if (job.pdf() != null) job.pdf().close();
+        } catch (Exception ignored) {
+            // nothing left to release
+        }
+    }
+
+    @Override
+    public void destroy() {
+        renderPool.shutdownNow();
+    }
+}
@@ -1,20 +1,48 @@
 package com.billingapp.service;
 
+import com.billingapp.dto.BulkInvoiceStatusRequest;
 import com.billingapp.dto.CreateInvoiceRequest;
+import com.billingapp.dto.CursorPage;
 import com.billingapp.dto.InvoiceDTO;
-import org.springframework.data.domain.Page;
+import com.billingapp.dto.InvoiceSearchPage;
+import com.billingapp.dto.InvoiceSummaryDTO;
+import com.billingapp.entity.Attachment;
+import com.billingapp.util.FieldSelector;
+import org.springframework.data.mongodb.core.query.Query;
 
 import java.util.List;
+import java.util.Map;
 
 public interface InvoiceService {
     InvoiceDTO create(CreateInvoiceRequest req);
     InvoiceDTO getById(String id);
     List<InvoiceDTO> getAll();
+
+    // List rows read through a projection (no items / attachments)
+    List<InvoiceSummaryDTO> getAllSummaries();
+
+    // Only the given InvoiceDTO properties (plus id) of every invoice
+    List<Map<String, Object>> getAll(List<String> fields);
     InvoiceDTO update(String id, CreateInvoiceRequest req);
     void delete(String id);
 
-    // new:
-    Page<InvoiceDTO> search(
+    // Single $set of a few scalar fields (status, dates, e-way bill, addresses...); an optional "version" key
+    // makes it conditional on the invoice not having changed since it was read
+    Map<String, Object> patch(String id, Map<String, Object> changes);
+
+    // Status / due-date change of many invoices in one bulk write; per-id results (UPDATED, NOT_FOUND, CONFLICT...)
+    // and a single cache / rollup invalidation for the whole batch
+    Map<String, Object> bulkUpdateStatus(BulkInvoiceStatusRequest req);
+
+    // Appends to the attachments array in place; returns all attachments of the invoice
+    List<Attachment> addAttachments(String id, List<Attachment> attachments);
+
+    // Drops the cached copy of an invoice that was written outside this service
+    void evictFromCache(String id);
+
+    // new: one $facet round trip; withSum adds the sum of total over all matches.
+    // Items are InvoiceDTO, InvoiceSummaryDTO or property maps depending on the field selection
+    InvoiceSearchPage<?> search(
             String clientId,
             String status,
             String fromIso,    // ISO instant string or null
@@ -23,6 +51,15 @@ public interface InvoiceService {
             Double maxTotal,
             int page,
             int size,
-            String sort        // e.g. "createdAt,desc" or "total,asc"
+            String sort,       // e.g. "createdAt,desc" or "total,asc"
+            boolean withSum,
+            FieldSelector fields
     );
+
+    // Same filters as search(), keyset-paginated: pass nextCursor back as cursor; count is none, estimate or exact
+    CursorPage<InvoiceDTO> scroll(String clientId, String status, String fromIso, String toIso,
+                                  Double minTotal, Double maxTotal, String cursor, int size, String sort, String count);
+
+    // Same filters as search(), for callers that page or stream the matches themselves
+    Query buildSearchQuery(String clientId, String status, String fromIso, String toIso, Double minTotal, Double maxTotal);
 }
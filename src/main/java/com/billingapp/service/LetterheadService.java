@@ -0,0 +1,215 @@
+package com.billingapp.service;
+
+import com.billingapp.entity.Company;
+import com.lowagie.text.Document;
+import com.lowagie.text.Element;
+import com.lowagie.text.ExceptionConverter;
+import com.lowagie.text.Font;
+import com.lowagie.text.FontFactory;
+import com.lowagie.text.Image;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.PdfContentByte;
+import com.lowagie.text.pdf.PdfImportedPage;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfPageEventHelper;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.PdfWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Company letterhead shared by every generated PDF (invoice, challan, estimate, credit note).
+ * <p>
+ * The header band (company block, GST / UDYAM, logo) and the footer band (bank details) are laid out
+ * once per company-profile version and side margin into a one-page template PDF, so the bands line up with
+ * the body of each renderer (invoices and challans use 20pt, estimates and credit notes 15pt). Renderers reserve the bands through
+ * {@link #apply} and the template is stamped under each page as a single imported page (a form XObject),
+ * so its content is written once per document no matter how many pages it has.
+ */
+@Slf4j
+@Service
+public class LetterheadService {
+
+    /** Height reserved at the top of every page for the header band. */
+    public static final float HEADER_HEIGHT = 88f;
+    /** Height reserved at the bottom of every page for the footer band. */
+    public static final float FOOTER_HEIGHT = 30f;
+
+    private static final float MARGIN = 20f; // top / bottom of the bands
+    private static final float GAP = 6f;
+
+    private static final Font FONT_COMPANY_NAME = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12, Color.BLACK);
+    private static final Font FONT_BOLD = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 8, Color.BLACK);
+    private static final Font FONT_NORMAL = FontFactory.getFont(FontFactory.HELVETICA, 8, Color.BLACK);
+    private static final Font FONT_BOLD_BIG = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16, Color.BLACK);
+
+    private final PdfAssetService assetService;
+
+    private final AtomicReference<Letterhead> current = new AtomicReference<>();
+    private final AtomicLong builds = new AtomicLong();
+
+    /** Compiled letterheads of one profile / asset version: the template page per side margin. */
+    private record Letterhead(String version, Map<Float, byte[]> pdfs) {}
+
+    public LetterheadService(PdfAssetService assetService) {
+        this.assetService = assetService;
+    }
+
+    /**
+     * Reserves the letterhead bands on {@code document} and stamps the template onto every page.
+     * Must be called after {@link PdfWriter#getInstance} and before {@link Document#open()}.
+     */
+    public void apply(PdfWriter writer, Document document, CompanyProfileProvider.Snapshot profile, float margin) {
+        Company company = profile.company();
+        byte[] template = get(profile).pdfs().computeIfAbsent(margin, m -> compile(company, m));
+        document.setMargins(margin, margin, MARGIN + HEADER_HEIGHT + GAP, MARGIN + FOOTER_HEIGHT + GAP);
+        writer.setPageEvent(new Stamp(template));
+    }
+
+    public Map<String, Object> stats() {
+        Letterhead lh = current.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("builds", builds.get());
+        stats.put("version", lh != null ? lh.version() : null);
+        stats.put("margins", lh != null ? lh.pdfs().keySet() : null);
+        stats.put("templateBytes", lh != null ? lh.pdfs().values().stream().mapToInt(pdf -> pdf.length).sum() : 0);
+        return stats;
+    }
+
+    private Letterhead get(CompanyProfileProvider.Snapshot profile) {
+        // Saving the profile or refreshing the logo changes the key, so the template is rebuilt on the next render
+        String version = profile.version() + ":" + assetService.fingerprint();
+        Letterhead lh = current.get();
+        if (lh != null && lh.version().equals(version)) {
+            return lh;
+        }
+        synchronized (this) {
+            lh = current.get();
+            if (lh == null || !lh.version().equals(version)) {
+                // Templates are compiled per margin on first use
+                lh = new Letterhead(version, new ConcurrentHashMap<>());
+                current.set(lh);
+            }
+            return lh;
+        }
+    }
+
+    private byte[] compile(Company company, float margin) {
+        long start = System.currentTimeMillis();
+        byte[] pdf = build(company, margin);
+        builds.incrementAndGet();
+        log.info("Letterhead template compiled for a {}pt margin ({} bytes) in {} ms", margin, pdf.length, System.currentTimeMillis() - start);
+        return pdf;
+    }
+
+    private byte[] build(Company company, float margin) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(16 * 1024);
+        Document document = new Document(PageSize.A4, margin, margin, MARGIN, MARGIN);
+        PdfWriter writer = PdfWriter.getInstance(document, buffer);
+        document.open();
+
+        PdfContentByte canvas = writer.getDirectContent();
+        float width = PageSize.A4.getWidth() - 2 * margin;
+        float top = PageSize.A4.getHeight() - MARGIN;
+
+        // --- HEADER BAND (Company & Logo) ---
+        PdfPTable header = new PdfPTable(2);
+        header.setTotalWidth(width);
+        header.setLockedWidth(true);
+        try {
+            header.setWidths(new float[]{3.5f, 1});
+        } catch (Exception e) {
+            throw new ExceptionConverter(e);
+        }
+
+        PdfPCell companyCell = new PdfPCell();
+        companyCell.setBorder(Rectangle.BOX);
+        companyCell.setPadding(5);
+        companyCell.setFixedHeight(HEADER_HEIGHT);
+        companyCell.addElement(new Paragraph(company.getCompanyName(), FONT_COMPANY_NAME));
+        companyCell.addElement(new Paragraph(company.getAddress(), FONT_NORMAL));
+        companyCell.addElement(new Paragraph("Phone: " + company.getPhone() + "  |  Email: " + company.getEmail(), FONT_NORMAL));
+        String udyam = company.getUdyamRegNo() != null ? company.getUdyamRegNo() : "-";
+        companyCell.addElement(new Paragraph("GST: " + company.getGstin() + "   UDYAM REG NO: " + udyam, FONT_BOLD));
+        header.addCell(companyCell);
+
+        PdfPCell logoCell = new PdfPCell();
+        logoCell.setBorder(Rectangle.BOX);
+        logoCell.setFixedHeight(HEADER_HEIGHT);
+        logoCell.setHorizontalAlignment(Element.ALIGN_CENTER);
+        logoCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
+        Image img = assetService.image(PdfAssetService.LOGO, 100, 60);
+        if (img != null) {
+            img.setAlignment(Element.ALIGN_CENTER);
+            logoCell.addElement(img);
+        } else {
+            Paragraph p = new Paragraph("JMD\nDÉCOR", FONT_BOLD_BIG);
+            p.setAlignment(Element.ALIGN_CENTER);
+            logoCell.addElement(p);
+        }
+        header.addCell(logoCell);
+        header.writeSelectedRows(0, -1, margin, top, canvas);
+
+        // --- FOOTER BAND (Bank Details) ---
+        PdfPTable footer = new PdfPTable(1);
+        footer.setTotalWidth(width);
+        footer.setLockedWidth(true);
+
+        Phrase bank = new Phrase();
+        bank.add(new Phrase("Bank Details: ", FONT_BOLD));
+        bank.add(new Phrase(company.getBankName() + "  |  Account No: " + company.getAccountNumber()
+                + "  |  IFSC Code: " + company.getIfscCode()
+                + (company.getBranch() != null ? "  |  Branch: " + company.getBranch() : ""), FONT_NORMAL));
+        PdfPCell bankCell = new PdfPCell(bank);
+        bankCell.setBorder(Rectangle.BOX);
+        bankCell.setFixedHeight(FOOTER_HEIGHT);
+        bankCell.setHorizontalAlignment(Element.ALIGN_CENTER);
+        bankCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
+        footer.addCell(bankCell);
+        footer.writeSelectedRows(0, -1, margin, MARGIN + FOOTER_HEIGHT, canvas);
+
+        // Template pages need some body content to be emitted; the bands are drawn directly on the canvas
+        writer.setPageEmpty(false);
+        document.close();
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Page event drawing the template under each page's content. The page is imported once per
+     * document, so every page references the same XObject.
+     */
+    private static final class Stamp extends PdfPageEventHelper {
+
+        private final byte[] template;
+        private PdfImportedPage page;
+
+        private Stamp(byte[] template) {
+            this.template = template;
+        }
+
+        @Override
+        public void onEndPage(PdfWriter writer, Document document) {
+            if (page == null) {
+                try {
+                    page = writer.getImportedPage(new PdfReader(template), 1);
+                } catch (IOException e) {
+                    throw new ExceptionConverter(e);
+                }
+            }
+            writer.getDirectContentUnder().addTemplate(page, 0, 0);
+        }
+    }
+}
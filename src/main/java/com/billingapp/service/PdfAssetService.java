@@ -0,0 +1,347 @@
+package com.billingapp.service;
+
+import com.billingapp.entity.Company;
+import com.lowagie.text.Image;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Branding images for generated PDFs (company logo and signature).
+ * <p>
+ * Images are fetched from the URLs on the company profile with strict connect / overall timeouts,
+ * decoded and pre-scaled to print size once, then kept in memory and mirrored to disk so a restart
+ * does not need the image host. Fetching only happens in the background (at startup and after the
+ * profile is saved); renderers only ever read the in-memory copy, so PDF generation does no network I/O.
+ */
+@Slf4j
+@Service
+public class PdfAssetService {
+
+    public static final String LOGO = "logo";
+    public static final String SIGNATURE = "signature";
+
+    private static final List<String> KINDS = List.of(LOGO, SIGNATURE);
+
+    // Pixel bounds of the pre-scaled copies: about 4x the largest size they are printed at
+    private static final Map<String, int[]> MAX_PIXELS = Map.of(
+            LOGO, new int[]{400, 240},
+            SIGNATURE, new int[]{400, 160});
+
+    private final CompanyProfileProvider companyProfile;
+    private final HttpClient http;
+    private final Duration fetchTimeout;
+    private final long maxBytes;
+    private final Path dir;
+
+    private final Map<String, Asset> assets = new ConcurrentHashMap<>();
+    private final byte[] defaultLogo;
+    private volatile String fingerprint;
+
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "pdf-assets");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AtomicLong fetches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile Instant lastRefresh;
+
+    /** A decoded, pre-scaled image: the URL it came from and the PNG bytes handed to renderers. */
+    private record Asset(String source, byte[] png, int width, int height) {}
+
+    public PdfAssetService(CompanyProfileProvider companyProfile,
+                           @Value("${app.pdf-assets.dir:pdf-assets}") String dir,
+                           @Value("${app.pdf-assets.connect-timeout:2s}") Duration connectTimeout,
+                           @Value("${app.pdf-assets.fetch-timeout:5s}") Duration fetchTimeout,
+                           @Value("${app.pdf-assets.max-size:5MB}") DataSize maxSize) {
+        this.companyProfile = companyProfile;
+        this.dir = Paths.get(dir).toAbsolutePath().normalize();
+        this.fetchTimeout = fetchTimeout;
+        this.maxBytes = maxSize.toBytes();
+        this.http = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.defaultLogo = loadDefaultLogo();
+        this.fingerprint = computeFingerprint();
+    }
+
+    /**
+     * Pre-scaled image ready to be placed in a PDF, or {@code null} when none is available
+     * (the logo falls back to the bundled /logo.png). Never blocks on I/O.
+     */
+    public Image image(String kind, float maxWidth, float maxHeight) {
+        Asset asset = assets.get(kind);
+        byte[] png = asset != null ? asset.png() : (LOGO.equals(kind) ? defaultLogo : null);
+        if (png == null) {
+            return null;
+        }
+        try {
+            Image img = Image.getInstance(png);
+            img.scaleToFit(maxWidth, maxHeight);
+            return img;
+        } catch (Exception e) {
+            log.warn("Cached {} image could not be decoded: {}", kind, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Hash over the images currently served; part of every rendered document's version so a replaced
+     * logo or signature (even behind an unchanged URL) re-renders cached PDFs.
+     */
+    public String fingerprint() {
+        return fingerprint;
+    }
+
+    /** Re-fetches the images of {@code company} in the background. */
+    public void refreshAsync(Company company) {
+        refresher.execute(() -> refresh(company));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        for (String kind : KINDS) {
+            loadFromDisk(kind);
+        }
+        fingerprint = computeFingerprint();
+        log.info("PDF asset store initialized at {}: {} cached image(s) restored from disk", dir, assets.size());
+
+        refresher.execute(() -> {
+            try {
+                refresh(companyProfile.current());
+            } catch (Exception e) {
+                log.warn("Startup refresh of PDF assets skipped: company profile could not be loaded: {}", e.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        for (String kind : KINDS) {
+            Asset a = assets.get(kind);
+            stats.put(kind, a == null ? null : Map.of("source", a.source(), "bytes", a.png().length,
+                    "width", a.width(), "height", a.height()));
+        }
+        stats.put("fingerprint", fingerprint);
+        stats.put("fetches", fetches.get());
+        stats.put("failures", failures.get());
+        stats.put("lastRefresh", lastRefresh);
+        return stats;
+    }
+
+    // --- Refresh (background thread only) ---
+
+    private void refresh(Company company) {
+        refreshOne(LOGO, company.getLogoUrl());
+        refreshOne(SIGNATURE, company.getSignatureUrl());
+        fingerprint = computeFingerprint();
+        lastRefresh = Instant.now();
+    }
+
+    private void refreshOne(String kind, String url) {
+        if (url == null || url.isBlank()) {
+            if (assets.remove(kind) != null) {
+                deleteFromDisk(kind);
+                log.info("PDF {} removed: company profile no longer has a {} URL", kind, kind);
+            }
+            return;
+        }
+        long start = System.currentTimeMillis();
+        fetches.incrementAndGet();
+        try {
+            byte[] raw = fetch(url.trim());
+            Asset asset = scale(kind, url.trim(), raw);
+            assets.put(kind, asset);
+            saveToDisk(kind, asset);
+            log.info("PDF {} refreshed from {}: {} bytes fetched, {}x{} px cached ({} bytes) in {} ms",
+                    kind, url, raw.length, asset.width(), asset.height(), asset.png().length, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            // Keep serving the previous copy; a broken image host must never break PDF generation
+            log.warn("PDF {} could not be refreshed from {} after {} ms, keeping the cached copy: {}",
+                    kind, url, System.currentTimeMillis() - start, e.toString());
+        }
+    }
+
+    private byte[] fetch(String url) throws Exception {
+        if (url.startsWith("http://") || url.startsWith("https://")) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(fetchTimeout)
+                    .GET()
+                    .build();
+            // The body is streamed and cut off past max-size, so a huge or hostile URL never gets buffered whole
+            AtomicReference<InputStream> stream = new AtomicReference<>();
+            CompletableFuture<byte[]> body = http.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+                    .thenApply(response -> {
+                        stream.set(response.body());
+                        try (InputStream in = response.body()) {
+                            if (response.statusCode() / 100 != 2) {
+                                throw new IOException("HTTP " + response.statusCode());
+                            }
+                            long declared = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+                            if (declared > maxBytes) {
+                                throw new IOException("Image is larger than " + maxBytes + " bytes (Content-Length " + declared + ")");
+                            }
+                            byte[] bytes = in.readNBytes((int) maxBytes + 1);
+                            if (bytes.length > maxBytes) {
+                                throw new IOException("Image is larger than " + maxBytes + " bytes");
+                            }
+                            return bytes;
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+            try {
+                // Overall deadline covers the body as well, not just the response headers
+                return body.get(fetchTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                InputStream in = stream.get();
+                if (in != null) in.close(); // unblocks a body read stuck on a slow host
+                throw new IOException("Timed out after " + fetchTimeout.toMillis() + " ms");
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof UncheckedIOException io ? io.getCause() : e;
+            }
+        }
+        Path path = url.startsWith("file:") ? Paths.get(URI.create(url)) : Paths.get(url);
+        if (Files.size(path) > maxBytes) {
+            throw new IOException("Image is larger than " + maxBytes + " bytes");
+        }
+        return Files.readAllBytes(path);
+    }
+
+    private Asset scale(String kind, String source, byte[] raw) throws IOException {
+        BufferedImage src = ImageIO.read(new ByteArrayInputStream(raw));
+        if (src == null) {
+            throw new IOException("Unsupported image format");
+        }
+        int[] max = MAX_PIXELS.get(kind);
+        double ratio = Math.min(1.0, Math.min((double) max[0] / src.getWidth(), (double) max[1] / src.getHeight()));
+        int width = Math.max(1, (int) Math.round(src.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(src.getHeight() * ratio));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(src, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(scaled, "png", png);
+        return new Asset(source, png.toByteArray(), width, height);
+    }
+
+    // --- Disk mirror: <dir>/<kind>.png plus <kind>.src holding the source URL ---
+
+    private void saveToDisk(String kind, Asset asset) {
+        try {
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, kind, ".tmp");
+            Files.write(tmp, asset.png());
+            Files.move(tmp, dir.resolve(kind + ".png"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.writeString(dir.resolve(kind + ".src"), asset.source(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.warn("PDF {} could not be written to {}: {}", kind, dir, e.getMessage());
+        }
+    }
+
+    private void loadFromDisk(String kind) {
+        Path png = dir.resolve(kind + ".png");
+        Path src = dir.resolve(kind + ".src");
+        if (!Files.isReadable(png) || !Files.isReadable(src)) {
+            return;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(png);
+            BufferedImage img = ImageIO.read(new ByteArrayInputStream(bytes));
+            if (img != null) {
+                assets.put(kind, new Asset(Files.readString(src, StandardCharsets.UTF_8), bytes, img.getWidth(), img.getHeight()));
+            }
+        } catch (IOException e) {
+            log.warn("Cached PDF {} at {} is unreadable and will be fetched again: {}", kind, png, e.getMessage());
+        }
+    }
+
+    private void deleteFromDisk(String kind) {
+        try {
+            Files.deleteIfExists(dir.resolve(kind + ".png"));
+            Files.deleteIfExists(dir.resolve(kind + ".src"));
+        } catch (IOException e) {
+            log.warn("Cached PDF {} could not be deleted from {}: {}", kind, dir, e.getMessage());
+        }
+    }
+
+    private byte[] loadDefaultLogo() {
+        try (InputStream in = getClass().getResourceAsStream("/logo.png")) {
+            return in != null ? in.readAllBytes() : null;
+        } catch (IOException e) {
+            log.debug("Bundled /logo.png could not be read", e);
+            return null;
+        }
+    }
+
+    private String computeFingerprint() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String kind : KINDS) {
+                Asset a = assets.get(kind);
+                digest.update(kind.getBytes(StandardCharsets.UTF_8));
+                if (a != null) {
+                    digest.update(a.png());
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest()).substring(0, 16);
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+}
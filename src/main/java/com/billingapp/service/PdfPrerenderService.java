@@ -0,0 +1,150 @@
+package com.billingapp.service;
+
+import com.billingapp.event.DocumentSavedEvent;
+import com.billingapp.service.impl.ChallanPdfServiceImpl;
+import com.billingapp.util.LatencyHistogram;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in background PDF rendering ({@code app.pdf.prerender.enabled=true}).
+ * <p>
+ * Every document save queues a render on a small bounded pool; the output lands in the
+ * {@link RenderedDocumentCache}, so the next download or email is a file read. Several saves of the
+ * same document before the worker gets to it collapse into one render of the latest version.
+ * If the queue is full the job is dropped and the document is simply rendered inline on first use.
+ */
+@Slf4j
+@Service
+public class PdfPrerenderService implements DisposableBean {
+
+    private final boolean enabled;
+    private final PdfService pdfService;
+    private final ChallanPdfServiceImpl challanPdfService;
+    private final EstimateService estimateService;
+    private final CreditNoteService creditNoteService;
+
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentHashMap<String, Instant> pending = new ConcurrentHashMap<>();
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LatencyHistogram lag = new LatencyHistogram();        // save -> PDF stored
+    private final LatencyHistogram renderTime = new LatencyHistogram(); // render only
+
+    public PdfPrerenderService(@Value("${app.pdf.prerender.enabled:false}") boolean enabled,
+                               @Value("${app.pdf.prerender.threads:2}") int threads,
+                               @Value("${app.pdf.prerender.queue-capacity:200}") int queueCapacity,
+                               PdfService pdfService,
+                               ChallanPdfServiceImpl challanPdfService,
+                               EstimateService estimateService,
+                               CreditNoteService creditNoteService) {
+        this.enabled = enabled;
+        this.pdfService = pdfService;
+        this.challanPdfService = challanPdfService;
+        this.estimateService = estimateService;
+        this.creditNoteService = creditNoteService;
+
+        if (enabled) {
+            AtomicInteger counter = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    r -> {
+                        Thread t = new Thread(r, "pdf-prerender-" + counter.incrementAndGet());
+                        t.setDaemon(true);
+                        t.setPriority(Thread.NORM_PRIORITY - 1); // never compete with request threads
+                        return t;
+                    });
+            log.info("PDF pre-rendering enabled: {} worker threads, queue capacity {}", threads, queueCapacity);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    @EventListener
+    public void onDocumentSaved(DocumentSavedEvent event) {
+        if (!enabled) return;
+
+        String key = event.type() + "/" + event.id();
+        // Keep the earliest save time so the lag metric covers the whole wait
+        if (pending.putIfAbsent(key, event.savedAt()) != null) {
+            coalesced.increment();
+            return;
+        }
+        try {
+            executor.execute(() -> render(key, event.type(), event.id()));
+            queued.increment();
+        } catch (RejectedExecutionException e) {
+            pending.remove(key);
+            dropped.increment();
+            log.warn("PDF pre-render queue is full; {} {} will be rendered on first download", event.type(), event.id());
+        }
+    }
+
+    private void render(String key, String type, String id) {
+        Instant savedAt = pending.remove(key);
+        active.incrementAndGet();
+        long startTime = System.currentTimeMillis();
+        try {
+            // Opening renders into the cache on a miss; the content itself is not needed here
+            RenderedDocumentCache.Rendered pdf = switch (type) {
+                case RenderedDocumentCache.TYPE_INVOICE -> pdfService.openInvoicePdf(id);
+                case RenderedDocumentCache.TYPE_CHALLAN -> challanPdfService.openChallanPdf(id);
+                case RenderedDocumentCache.TYPE_ESTIMATE -> estimateService.openEstimatePdf(id);
+                case RenderedDocumentCache.TYPE_CREDIT_NOTE -> creditNoteService.openPdf(id);
+                default -> throw new IllegalArgumentException("Unknown document type: " + type);
+            };
+            pdf.close();
+            completed.increment();
+            renderTime.record(System.currentTimeMillis() - startTime);
+            if (savedAt != null) {
+                lag.record(Duration.between(savedAt, Instant.now()).toMillis());
+            }
+            log.debug("Pre-rendered {} {} in {} ms", type, id, System.currentTimeMillis() - startTime);
+        } catch (IllegalArgumentException e) {
+            // Deleted between save and render; nothing to do
+            log.debug("Skipping pre-render of {} {}: {}", type, id, e.getMessage());
+        } catch (Exception e) {
+            failed.increment();
+            log.error("Background PDF pre-render failed for " + type + " " + id + ": " + e.getMessage(), e);
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        if (!enabled) return stats;
+        stats.put("queueDepth", executor.getQueue().size());
+        stats.put("active", active.get());
+        stats.put("queued", queued.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("completed", completed.sum());
+        stats.put("failed", failed.sum());
+        stats.put("renderLag", lag.snapshot());
+        stats.put("renderTime", renderTime.snapshot());
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) executor.shutdownNow();
+    }
+}
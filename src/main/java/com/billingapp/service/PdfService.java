@@ -1,6 +1,15 @@
 package com.billingapp.service;
 
+import com.billingapp.entity.Client;
+import com.billingapp.entity.Invoice;
+
 public interface PdfService {
    
     byte[] generateInvoicePdf(String invoiceId) throws Exception;
+
+    // Streaming variant: the caller copies the cached file to its output and must close it
+    RenderedDocumentCache.Rendered openInvoicePdf(String invoiceId) throws Exception;
+
+    // Bulk variant: the caller has already loaded the invoice and its client
+    RenderedDocumentCache.Rendered openInvoicePdf(Invoice invoice, Client client) throws Exception;
 } 
\ No newline at end of file
@@ -0,0 +1,297 @@
+package com.billingapp.service;
+
+import com.billingapp.entity.Client;
+import com.billingapp.entity.Invoice;
+import com.billingapp.repository.ClientRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Payment-reminder run: one email per client listing all of their overdue invoices, with the PDFs attached.
+ * <p>
+ * Overdue invoices are selected with a single query on the {@code status_dueDate} index and grouped per client.
+ * A dry run only returns the plan. A real run renders each client's PDFs on a small low-priority pool
+ * ({@code app.reminders.render-threads}) and queues the client's mail in the outbox once they are in the
+ * PDF cache; the outbox dispatcher then sends at its configured rate. The run returns as soon as the plan is
+ * made, so the API is never blocked on rendering or SMTP.
+ * <p>
+ * Runs are idempotent within {@code app.reminders.min-interval}: each invoice whose reminder was queued is
+ * stamped with {@code lastReminderAt} and left out of later runs until the interval has passed, and a real
+ * run is refused while the previous one is still queueing.
+ */
+@Slf4j
+@Service
+public class ReminderService implements DisposableBean {
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    private final MongoTemplate mongoTemplate;
+    private final ClientRepository clientRepository;
+    private final PdfService pdfService;
+    private final EmailOutboxService outboxService;
+    private final List<String> statuses;
+    private final ZoneId zone;
+    private final Duration minInterval;
+    private final ThreadPoolExecutor renderPool;
+
+    private final AtomicReference<Map<String, Object>> lastRun = new AtomicReference<>();
+
+    private record Group(Client client, List<Invoice> invoices) {}
+
+    public ReminderService(MongoTemplate mongoTemplate,
+                           ClientRepository clientRepository,
+                           PdfService pdfService,
+                           EmailOutboxService outboxService,
+                           @Value("${app.reminders.statuses:PENDING,UNPAID}") List<String> statuses,
+                           @Value("${app.reminders.render-threads:2}") int renderThreads,
+                           @Value("${app.reminders.min-interval:7d}") Duration minInterval,
+                           @Value("${app.dashboard.timezone:Asia/Kolkata}") String timezone) {
+        this.mongoTemplate = mongoTemplate;
+        this.clientRepository = clientRepository;
+        this.pdfService = pdfService;
+        this.outboxService = outboxService;
+        this.zone = ZoneId.of(timezone);
+        this.minInterval = minInterval;
+
+        // Stored statuses are not case-normalised ("Pending", "UNPAID"...); match the common spellings exactly
+        // so the query stays an index range scan instead of a regex
+        Set<String> variants = new LinkedHashSet<>();
+        for (String s : statuses) {
+            String upper = s.trim().toUpperCase();
+            variants.add(upper);
+            variants.add(upper.toLowerCase());
+            variants.add(upper.charAt(0) + upper.substring(1).toLowerCase());
+        }
+        this.statuses = List.copyOf(variants);
+
+        AtomicInteger counter = new AtomicInteger();
+        this.renderPool = new ThreadPoolExecutor(renderThreads, renderThreads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "reminder-render-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY); // API request threads win any CPU contention
+                    return t;
+                });
+        this.renderPool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Plans (and unless {@code dryRun}, starts) a reminder run for invoices due before {@code asOf}
+     * (default today, in the business timezone). Returns the per-client report.
+     */
+    public Map<String, Object> run(LocalDate asOf, boolean dryRun) {
+        if (dryRun) {
+            return plan(asOf, true);
+        }
+        // Planning is quick; serialising it makes the in-flight check and the start of a run one step
+        synchronized (this) {
+            Map<String, Object> previous = lastRun.get();
+            if (previous != null && inFlight(previous)) {
+                throw new IllegalArgumentException("The previous reminder run (started " + previous.get("startedAt")
+                        + ") is still queueing emails; check /api/reminders/last-run");
+            }
+            return plan(asOf, false);
+        }
+    }
+
+    private Map<String, Object> plan(LocalDate asOf, boolean dryRun) {
+        long startTime = System.currentTimeMillis();
+        Instant cutoff = (asOf != null ? asOf : LocalDate.now(zone)).atStartOfDay(zone).toInstant();
+        List<Group> groups = overdueByClient(cutoff);
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        List<Group> toSend = new ArrayList<>();
+        int invoiceCount = 0;
+        double totalOverdue = 0;
+        for (Group group : groups) {
+            double amount = group.invoices().stream().mapToDouble(Invoice::getTotal).sum();
+            invoiceCount += group.invoices().size();
+            totalOverdue += amount;
+
+            Client client = group.client();
+            boolean hasEmail = client.getEmail() != null && !client.getEmail().isBlank();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("clientId", client.getId());
+            row.put("clientName", client.getName());
+            row.put("email", client.getEmail());
+            row.put("invoiceNos", group.invoices().stream().map(Invoice::getInvoiceNo).toList());
+            row.put("amount", amount);
+            row.put("oldestDueDate", group.invoices().get(0).getDueDate());
+            row.put("action", !hasEmail ? "SKIPPED_NO_EMAIL" : dryRun ? "WOULD_SEND" : "QUEUED");
+            rows.add(row);
+            if (hasEmail) {
+                toSend.add(group);
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("dryRun", dryRun);
+        report.put("asOf", cutoff);
+        report.put("skipRemindedWithin", minInterval.toString());
+        report.put("clients", groups.size());
+        report.put("emails", toSend.size());
+        report.put("skipped", groups.size() - toSend.size());
+        report.put("invoices", invoiceCount);
+        report.put("totalOverdue", totalOverdue);
+        report.put("startedAt", Instant.now());
+        report.put("clientsReport", rows);
+
+        if (!dryRun) {
+            AtomicInteger queued = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            report.put("queued", queued);
+            report.put("failed", failed);
+            toSend.forEach(group -> dispatch(group, queued, failed));
+            lastRun.set(report);
+        }
+        log.info("Reminder run{} as of {}: {} overdue invoices across {} clients, {} emails, planned in {} ms",
+                dryRun ? " (dry run)" : "", cutoff, invoiceCount, groups.size(), toSend.size(), System.currentTimeMillis() - startTime);
+        return report;
+    }
+
+    private static boolean inFlight(Map<String, Object> report) {
+        int done = ((AtomicInteger) report.get("queued")).get() + ((AtomicInteger) report.get("failed")).get();
+        return done < (int) report.get("emails");
+    }
+
+    /** Report of the last real run; its queued / failed counters keep moving while the PDFs render. */
+    public Map<String, Object> lastRun() {
+        Map<String, Object> report = lastRun.get();
+        if (report == null) {
+            throw new IllegalArgumentException("No reminder run since startup");
+        }
+        return report;
+    }
+
+    private List<Group> overdueByClient(Instant cutoff) {
+        // One query on { status, dueDate }; heavy arrays are not needed for the plan.
+        // Invoices reminded within the interval are skipped, so a repeated run does not mail them again
+        Instant remindedSince = Instant.now().minus(minInterval);
+        Query query = new Query(where("status").in(statuses).and("dueDate").lt(cutoff)
+                .orOperator(where("lastReminderAt").is(null), where("lastReminderAt").lt(remindedSince)))
+                .with(Sort.by("clientId", "dueDate"));
+        query.fields().exclude("items").exclude("attachments");
+        List<Invoice> overdue = mongoTemplate.find(query, Invoice.class);
+
+        Map<String, List<Invoice>> byClient = new LinkedHashMap<>();
+        for (Invoice invoice : overdue) {
+            if (invoice.getClientId() != null) {
+                byClient.computeIfAbsent(invoice.getClientId(), k -> new ArrayList<>()).add(invoice);
+            }
+        }
+        Map<String, Client> clients = new HashMap<>();
+        clientRepository.findAllById(byClient.keySet()).forEach(c -> clients.put(c.getId(), c));
+
+        List<Group> groups = new ArrayList<>();
+        byClient.forEach((clientId, invoices) -> {
+            Client client = clients.get(clientId);
+            if (client == null) {
+                log.warn("Reminder run: {} overdue invoice(s) reference missing client {}", invoices.size(), clientId);
+                return;
+            }
+            groups.add(new Group(client, invoices));
+        });
+        return groups;
+    }
+
+    private void dispatch(Group group, AtomicInteger queued, AtomicInteger failed) {
+        // Warm the PDF cache in parallel (bounded by the pool), then queue the mail; the dispatcher
+        // attaches the cached PDFs instead of rendering them one by one on its own thread
+        CompletableFuture<?>[] renders = group.invoices().stream()
+                .map(invoice -> CompletableFuture.runAsync(() -> prerender(invoice.getId()), renderPool))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(renders).whenComplete((ignored, error) -> {
+            try {
+                Client client = group.client();
+                List<String> invoiceIds = group.invoices().stream().map(Invoice::getId).toList();
+                outboxService.enqueueMessage(client.getEmail(), subject(group), body(group), invoiceIds, true);
+                queued.incrementAndGet();
+                stampReminded(invoiceIds);
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                log.error("Reminder for client {} could not be queued: {}", group.client().getId(), e.getMessage(), e);
+            }
+        });
+    }
+
+    private void stampReminded(List<String> invoiceIds) {
+        try {
+            mongoTemplate.updateMulti(new Query(where("_id").in(invoiceIds)),
+                    new Update().set("lastReminderAt", Instant.now()), Invoice.class);
+        } catch (Exception e) {
+            // The mail is queued either way; these invoices just stay eligible for the next run
+            log.warn("Could not stamp lastReminderAt on invoices {}: {}", invoiceIds, e.getMessage());
+        }
+    }
+
+    private void prerender(String invoiceId) {
+        try (RenderedDocumentCache.Rendered ignored = pdfService.openInvoicePdf(invoiceId)) {
+            // rendered into the document cache
+        } catch (Exception e) {
+            // The dispatcher renders (and retries) it when the mail is sent
+            log.warn("Reminder pre-render of invoice {} failed: {}", invoiceId, e.getMessage());
+        }
+    }
+
+    private static String subject(Group group) {
+        int n = group.invoices().size();
+        return "Payment reminder: " + n + " overdue invoice" + (n == 1 ? "" : "s") + " - JMD Decor";
+    }
+
+    private String body(Group group) {
+        LocalDate today = LocalDate.now(zone);
+        StringBuilder html = new StringBuilder();
+        html.append("Dear ").append(escape(group.client().getName())).append(",<br/><br/>")
+                .append("Our records show the following invoice(s) are past their due date:<br/><br/>")
+                .append("<table style=\"border-collapse:collapse\" cellpadding=\"4\" border=\"1\">")
+                .append("<tr><th>Invoice No</th><th>Invoice Date</th><th>Due Date</th><th>Days Overdue</th><th>Amount (₹)</th></tr>");
+        double total = 0;
+        for (Invoice invoice : group.invoices()) {
+            total += invoice.getTotal();
+            html.append("<tr><td>").append(escape(invoice.getInvoiceNo())).append("</td>")
+                    .append("<td>").append(format(invoice.getIssuedAt())).append("</td>")
+                    .append("<td>").append(format(invoice.getDueDate())).append("</td>")
+                    .append("<td>").append(invoice.getDueDate() != null ? ChronoUnit.DAYS.between(invoice.getDueDate().atZone(zone).toLocalDate(), today) : 0).append("</td>")
+                    .append("<td style=\"text-align:right\">").append(String.format("%,.2f", invoice.getTotal())).append("</td></tr>");
+        }
+        html.append("<tr><td colspan=\"4\"><b>Total</b></td><td style=\"text-align:right\"><b>")
+                .append(String.format("%,.2f", total)).append("</b></td></tr></table><br/>")
+                .append("The invoice PDFs are attached. Kindly arrange the payment at the earliest, ")
+                .append("or ignore this reminder if it has already been made.");
+        return html.toString();
+    }
+
+    private String format(Instant instant) {
+        return instant != null ? DATE.format(instant.atZone(zone)) : "-";
+    }
+
+    private static String escape(String value) {
+        if (value == null) return "";
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    @Override
+    public void destroy() {
+        renderPool.shutdownNow();
+    }
+}
@@ -0,0 +1,58 @@
+package com.billingapp.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Shared cache for rendered documents (invoice, challan, estimate and credit-note PDFs).
+ * Entries are keyed by document type, id and a content version; a changed version
+ * (edit to the document, client or company profile) is always a miss, so stale output is never served.
+ */
+public interface RenderedDocumentCache {
+
+    String TYPE_INVOICE = "invoice";
+    String TYPE_CHALLAN = "challan";
+    String TYPE_ESTIMATE = "estimate";
+    String TYPE_CREDIT_NOTE = "credit-note";
+
+    @FunctionalInterface
+    interface Renderer {
+        void render(OutputStream out) throws Exception;
+    }
+
+    /**
+     * Content version of a rendered document: a hash over every input that affects the output.
+     */
+    String version(Object... inputs);
+
+    /**
+     * An open, already-rendered document. The stream stays readable even if the cache evicts
+     * the underlying file meanwhile; callers must close it.
+     */
+    record Rendered(InputStream stream, long length) implements AutoCloseable {
+
+        /** For callers that genuinely need the whole document in memory (e.g. mail attachments). */
+        public byte[] readAllBytes() throws IOException {
+            return stream.readNBytes((int) length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
+    }
+
+    /**
+     * Opens the cached output for (type, id, version), rendering it straight to disk on a miss.
+     */
+    Rendered open(String type, String id, String version, Renderer renderer) throws Exception;
+
+    /**
+     * Drops every cached version of a document (e.g. after it was deleted).
+     */
+    void evict(String type, String id);
+
+    Map<String, Object> stats();
+}
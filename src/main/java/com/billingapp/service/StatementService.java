@@ -0,0 +1,138 @@
+package com.billingapp.service;
+
+import com.billingapp.entity.Client;
+import com.billingapp.entity.CreditNote;
+import com.billingapp.entity.Invoice;
+import com.billingapp.repository.ClientRepository;
+import com.billingapp.repository.CreditNoteRepository;
+import com.billingapp.repository.InvoiceRepository;
+import com.lowagie.text.Document;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.PdfSmartCopy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Client statements: every invoice and credit note of a client in a date range, merged into one PDF.
+ * <p>
+ * Source PDFs come from the rendered-document cache one at a time and are appended with
+ * {@link PdfSmartCopy}, which stores identical streams (logo image, embedded fonts) only once.
+ * Each source reader is freed right after its pages are copied and pages go straight to the
+ * response, so only a single source document is held in memory at any point.
+ */
+@Slf4j
+@Service
+public class StatementService {
+
+    private final ClientRepository clientRepository;
+    private final InvoiceRepository invoiceRepository;
+    private final CreditNoteRepository creditNoteRepository;
+    private final PdfService pdfService;
+    private final CreditNoteService creditNoteService;
+    private final ZoneId zone;
+
+    /** One document on the statement, in date order. */
+    public record Entry(Instant date, Invoice invoice, CreditNote creditNote) {}
+
+    /** Everything needed to write the statement; built up front so an empty range fails before streaming. */
+    public record Statement(Client client, LocalDate from, LocalDate to, List<Entry> entries) {
+
+        /** The client's name, or its id for a client saved without one (filenames, messages). */
+        public String clientLabel() {
+            return label(client);
+        }
+    }
+
+    private static String label(Client client) {
+        return client.getName() != null && !client.getName().isBlank() ? client.getName() : client.getId();
+    }
+
+    public StatementService(ClientRepository clientRepository,
+                            InvoiceRepository invoiceRepository,
+                            CreditNoteRepository creditNoteRepository,
+                            PdfService pdfService,
+                            CreditNoteService creditNoteService,
+                            @Value("${app.dashboard.timezone:Asia/Kolkata}") String timezone) {
+        this.clientRepository = clientRepository;
+        this.invoiceRepository = invoiceRepository;
+        this.creditNoteRepository = creditNoteRepository;
+        this.pdfService = pdfService;
+        this.creditNoteService = creditNoteService;
+        this.zone = ZoneId.of(timezone);
+    }
+
+    public Statement prepare(String clientId, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        Client client = clientRepository.findById(clientId)
+                .orElseThrow(() -> new IllegalArgumentException("Client not found: " + clientId));
+
+        Instant start = from.atStartOfDay(zone).toInstant();
+        Instant end = to.plusDays(1).atStartOfDay(zone).toInstant();
+
+        List<Entry> entries = new ArrayList<>();
+        for (Invoice invoice : invoiceRepository.findByClientIdInRange(clientId, start, end, Sort.by("issuedAt"))) {
+            entries.add(new Entry(invoice.getIssuedAt(), invoice, null));
+        }
+        for (CreditNote cn : creditNoteRepository.findByClientIdInRange(clientId, start, end, Sort.by("creditNoteDate"))) {
+            entries.add(new Entry(cn.getCreditNoteDate(), null, cn));
+        }
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("No invoices or credit notes for client " + label(client) + " between " + from + " and " + to);
+        }
+        entries.sort(Comparator.comparing(Entry::date, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        log.info("Statement prepared for client [{}] {} .. {}: {} documents", label(client), from, to, entries.size());
+        return new Statement(client, from, to, entries);
+    }
+
+    public void write(Statement statement, OutputStream out) throws IOException {
+        long startTime = System.currentTimeMillis();
+
+        Document document = new Document();
+        PdfSmartCopy copy = new PdfSmartCopy(document, out);
+        copy.setCloseStream(false); // the servlet container owns the response stream
+        copy.setFullCompression();
+        document.open();
+
+        int pages = 0;
+        try {
+            for (Entry entry : statement.entries()) {
+                try (RenderedDocumentCache.Rendered pdf = entry.invoice() != null
+                        ? pdfService.openInvoicePdf(entry.invoice(), statement.client())
+                        : creditNoteService.openPdf(entry.creditNote(), statement.client())) {
+                    PdfReader reader = new PdfReader(pdf.stream());
+                    try {
+                        for (int i = 1; i <= reader.getNumberOfPages(); i++) {
+                            copy.addPage(copy.getImportedPage(reader, i));
+                            pages++;
+                        }
+                        copy.freeReader(reader);
+                    } finally {
+                        reader.close();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to build statement for client " + statement.client().getId() + ": " + e.getMessage(), e);
+        } finally {
+            document.close();
+        }
+        log.info("Statement for client [{}] written: {} documents, {} pages in {} ms",
+                statement.clientLabel(), statement.entries().size(), pages, System.currentTimeMillis() - startTime);
+    }
+}
@@ -1,9 +1,11 @@
 package com.billingapp.service.impl;
 
 import com.billingapp.entity.Challan;
-import com.billingapp.entity.Company;
 import com.billingapp.repository.ChallanRepository;
-import com.billingapp.repository.CompanyRepository;
+import com.billingapp.service.CompanyProfileProvider;
+import com.billingapp.service.LetterheadService;
+import com.billingapp.service.PdfAssetService;
+import com.billingapp.service.RenderedDocumentCache;
 import com.lowagie.text.*;
 import com.lowagie.text.Font;
 import com.lowagie.text.Image;
@@ -15,8 +17,7 @@ import lombok.extern.slf4j.Slf4j;
 import java.awt.Color;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
-import java.net.URL;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 
 @Slf4j
@@ -24,19 +25,32 @@ import java.text.SimpleDateFormat;
 public class ChallanPdfServiceImpl {
 
     private final ChallanRepository challanRepository;
-    private final CompanyRepository companyRepository;
+    private final CompanyProfileProvider companyProfile;
+    private final RenderedDocumentCache documentCache;
+    private final LetterheadService letterheadService;
+    private final PdfAssetService assetService;
 
     // Fonts
     private static final Font FONT_HEADER = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14, Color.BLACK);
     private static final Font FONT_BOLD = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10, Color.BLACK);
     private static final Font FONT_NORMAL = FontFactory.getFont(FontFactory.HELVETICA, 9, Color.BLACK);
 
-    public ChallanPdfServiceImpl(ChallanRepository challanRepository, CompanyRepository companyRepository) {
+    public ChallanPdfServiceImpl(ChallanRepository challanRepository, CompanyProfileProvider companyProfile, RenderedDocumentCache documentCache,
+                                 LetterheadService letterheadService, PdfAssetService assetService) {
         this.challanRepository = challanRepository;
-        this.companyRepository = companyRepository;
+        this.companyProfile = companyProfile;
+        this.documentCache = documentCache;
+        this.letterheadService = letterheadService;
+        this.assetService = assetService;
     }
 
     public byte[] generateChallanPdf(String challanId) throws Exception {
+        try (RenderedDocumentCache.Rendered pdf = openChallanPdf(challanId)) {
+            return pdf.readAllBytes();
+        }
+    }
+
+    public RenderedDocumentCache.Rendered openChallanPdf(String challanId) throws Exception {
         log.info("Initiating structural PDF generation engine context pipeline for Challan token ID: {}", challanId);
 
         Challan challan = challanRepository.findById(challanId)
@@ -45,42 +59,23 @@ public class ChallanPdfServiceImpl {
                     return new IllegalArgumentException("Challan not found");
                 });
 
-        Company company = companyRepository.findById("MY_COMPANY").orElse(new Company());
+        CompanyProfileProvider.Snapshot profile = companyProfile.snapshot();
+
+        String version = documentCache.version(challan, profile.version(), assetService.fingerprint());
+        return documentCache.open(RenderedDocumentCache.TYPE_CHALLAN, challanId, version,
+                out -> renderChallan(challan, profile, out));
+    }
 
+    private void renderChallan(Challan challan, CompanyProfileProvider.Snapshot profile, OutputStream out) throws Exception {
         Document document = new Document(PageSize.A4, 20, 20, 20, 20);
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        PdfWriter.getInstance(document, out);
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+
+        // --- 1. TOP HEADER (Company & Logo): shared letterhead template stamped on every page ---
+        letterheadService.apply(writer, document, profile, 20);
 
         document.open();
         SimpleDateFormat sdf = new SimpleDateFormat("dd-MM-yyyy");
 
-        // --- 1. TOP HEADER (Logo & Title) ---
-        PdfPTable topTable = new PdfPTable(1);
-        topTable.setWidthPercentage(100);
-        
-        PdfPCell logoCell = new PdfPCell();
-        logoCell.setBorder(Rectangle.NO_BORDER);
-        logoCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
-        try {
-            Image img = null;
-            if (company.getLogoUrl() != null && !company.getLogoUrl().isBlank()) {
-                try { img = Image.getInstance(company.getLogoUrl()); } catch (Exception e) {}
-            }
-            if (img == null) {
-                URL resource = getClass().getResource("/logo.png");
-                if(resource != null) img = Image.getInstance(resource);
-            }
-            if (img != null) {
-                img.scaleToFit(100, 50);
-                img.setAlignment(Element.ALIGN_RIGHT);
-                logoCell.addElement(img);
-            }
-        } catch (Exception e) {
-            log.debug("Bypassing brand layout graphic insertion: exception encountered during asset extraction", e);
-        }
-        topTable.addCell(logoCell);
-        document.add(topTable);
-
         Paragraph title = new Paragraph("DELIVERY CHALLAN", FONT_HEADER);
         title.setAlignment(Element.ALIGN_CENTER);
         title.setSpacingAfter(10);
@@ -92,30 +87,14 @@ public class ChallanPdfServiceImpl {
         mainTable.setWidths(new float[]{1.5f, 1}); 
 
         // ==========================================
-        // ROW 1: COMPANY INFO (Left) + CHALLAN META (Right)
+        // ROW 1: CHALLAN META (company info is part of the letterhead)
         // ==========================================
-        PdfPCell companyCell = new PdfPCell();
-        companyCell.setBorder(Rectangle.BOX);
-        companyCell.setPadding(5);
-        companyCell.addElement(new Paragraph(company.getCompanyName(), FONT_BOLD));
-        companyCell.addElement(new Paragraph(company.getAddress(), FONT_NORMAL));
-        companyCell.addElement(new Paragraph(company.getEmail(), new Font(Font.HELVETICA, 9, Font.NORMAL, Color.BLUE)));
-        
-        Paragraph pGst = new Paragraph();
-        pGst.add(new Chunk("GST: " + company.getGstin(), FONT_BOLD));
-        companyCell.addElement(pGst);
-
-        String udyam = company.getUdyamRegNo() != null ? company.getUdyamRegNo() : "-";
-        Paragraph pUdyam = new Paragraph();
-        pUdyam.add(new Chunk("UDYAM- " + udyam, FONT_BOLD));
-        companyCell.addElement(pUdyam);
-        mainTable.addCell(companyCell);
-
         PdfPCell metaCell1 = new PdfPCell();
         metaCell1.setBorder(Rectangle.BOX);
+        metaCell1.setColspan(2);
         metaCell1.setPadding(0);
         
-        PdfPTable metaTable1 = new PdfPTable(2);
+        PdfPTable metaTable1 = new PdfPTable(4);
         metaTable1.setWidthPercentage(100);
         metaTable1.addCell(createCell("Challan No:", challan.getChallanNo()));
         metaTable1.addCell(createCell("Date:", challan.getChallanDate() != null ? sdf.format(challan.getChallanDate()) : "-"));
@@ -225,9 +204,15 @@ public class ChallanPdfServiceImpl {
         pFor.setAlignment(Element.ALIGN_RIGHT); 
         prop.addElement(pFor);
         
-        prop.addElement(Chunk.NEWLINE);
-        prop.addElement(Chunk.NEWLINE);
-        prop.addElement(Chunk.NEWLINE);
+        Image signature = assetService.image(PdfAssetService.SIGNATURE, 90, 36);
+        if (signature != null) {
+            signature.setAlignment(Element.ALIGN_RIGHT);
+            prop.addElement(signature);
+        } else {
+            prop.addElement(Chunk.NEWLINE);
+            prop.addElement(Chunk.NEWLINE);
+            prop.addElement(Chunk.NEWLINE);
+        }
         
         Paragraph pProp = new Paragraph("PROPRIETOR", FONT_BOLD);
         pProp.setAlignment(Element.ALIGN_RIGHT); 
@@ -237,8 +222,7 @@ public class ChallanPdfServiceImpl {
         document.add(footer);
         document.close();
         
-        log.info("PDF generation successfully completed for Delivery Challan ID: {}", challanId);
-        return out.toByteArray();
+        log.info("PDF generation successfully completed for Delivery Challan ID: {}", challan.getId());
     }
 
     // Helpers
@@ -1,8 +1,12 @@
 package com.billingapp.service.impl;
 
+import com.billingapp.config.FanoutExecutor;
+import com.billingapp.config.CacheVersions;
 import com.billingapp.dto.ClientDTO;
+import com.billingapp.dto.ClientInvoiceSummary;
 import com.billingapp.dto.ClientProfileDTO;
 import com.billingapp.dto.CreateClientRequest;
+import com.billingapp.dto.CursorPage;
 import com.billingapp.entity.Client;
 import com.billingapp.entity.Invoice;
 import com.billingapp.entity.WorkCompletionCertificate;
@@ -11,10 +15,14 @@ import com.billingapp.repository.ClientRepository;
 import com.billingapp.repository.InvoiceRepository;
 import com.billingapp.repository.WorkCompletionCertificateRepository;
 import com.billingapp.service.ClientService;
+import com.billingapp.util.QueryCounts;
+import com.billingapp.util.SortKeyCursor;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.*;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
@@ -32,26 +40,38 @@ import java.util.stream.Collectors;
 @Transactional
 public class ClientServiceImpl implements ClientService {
 
+    private static final int RECENT_INVOICE_LIMIT = 10;
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    private static final int MAX_SCROLL_PAGE_SIZE = 200;
+    private static final int ESTIMATE_COUNT_CAP = 10_000;
+    private static final Set<String> SCROLL_SORT_KEYS = Set.of("createdAt", "name");
+
     private final ClientRepository clientRepository;
     private final InvoiceRepository invoiceRepository;
     private final WorkCompletionCertificateRepository wccRepository;
     private final ClientMapper mapper;
     private final MongoTemplate mongoTemplate;
+    private final FanoutExecutor fanout;
+    private final CacheVersions cacheVersions;
 
     public ClientServiceImpl(ClientRepository clientRepository,
                              InvoiceRepository invoiceRepository,
                              WorkCompletionCertificateRepository wccRepository,
                              ClientMapper mapper,
-                             MongoTemplate mongoTemplate) {
+                             MongoTemplate mongoTemplate,
+                             FanoutExecutor fanout,
+                             CacheVersions cacheVersions) {
         this.clientRepository = clientRepository;
         this.invoiceRepository = invoiceRepository;
         this.wccRepository = wccRepository;
         this.mapper = mapper;
         this.mongoTemplate = mongoTemplate;
+        this.fanout = fanout;
+        this.cacheVersions = cacheVersions;
     }
 
     @Override
-    @CacheEvict(value = "clients", allEntries = true) // Flushes master list cache entries on change
+    @CachePut(value = "clients", key = "#result.id") // Seeds the by-id cache; the list cache moves to a new version
     public ClientDTO create(CreateClientRequest req) {
         log.info("Attempting to create Client profile record with name: {}", req.getName());
         Client client = Client.builder()
@@ -70,11 +90,15 @@ public class ClientServiceImpl implements ClientService {
 
         Client saved = clientRepository.save(client);
         log.info("Client tracking token successfully written to collection persistence layer with inner record ID: {}", saved.getId());
+        cacheVersions.bump(CacheVersions.CLIENTS);
         return mapper.toDto(saved);
     }
 
     @Override
-    @CacheEvict(value = "clients", allEntries = true) // Evicts old cache data on profile changes
+    @Caching(
+            put = @CachePut(value = "clients", key = "#id"), // Refreshes only this client's cached entry
+            evict = @CacheEvict(value = "client_profiles", key = "#id")
+    )
     public ClientDTO update(String id, CreateClientRequest req) {
         log.info("Attempting to commit transaction modification delta configurations on Client reference ID: {}", id);
         Client client = clientRepository.findById(id)
@@ -96,6 +120,7 @@ public class ClientServiceImpl implements ClientService {
         
         Client saved = clientRepository.save(client);
         log.info("Client state modifications for target profile identity matching ID {} successfully persisted", id);
+        cacheVersions.bump(CacheVersions.CLIENTS);
         return mapper.toDto(saved);
     }
 
@@ -112,7 +137,7 @@ public class ClientServiceImpl implements ClientService {
     }
 
     @Override
-    @Cacheable(value = "clients", key = "'profile-' + #clientId") // Bypasses heavy multi-repo threads if loaded recently
+    @Cacheable(value = "client_profiles", key = "#clientId") // Bypasses heavy multi-repo threads if loaded recently
     public ClientProfileDTO getClientProfile(String clientId) {
         log.info("Assembling dynamic complex metrics profile aggregation maps for client: {}", clientId);
         long startTime = System.currentTimeMillis();
@@ -123,11 +148,12 @@ public class ClientServiceImpl implements ClientService {
                     return new IllegalArgumentException("Client not found: " + clientId);
                 });
 
-        CompletableFuture<List<Invoice>> invoicesTask = CompletableFuture.supplyAsync(() -> 
-            invoiceRepository.findByClientId(clientId)
+        // One $facet aggregation: totals + projected recent slice, constant cost per client
+        CompletableFuture<ClientInvoiceSummary> invoicesTask = fanout.supply(() ->
+            invoiceRepository.summarizeByClientId(clientId, RECENT_INVOICE_LIMIT)
         );
 
-        CompletableFuture<List<WorkCompletionCertificate>> wccTask = CompletableFuture.supplyAsync(() -> {
+        CompletableFuture<List<WorkCompletionCertificate>> wccTask = fanout.supply(() -> {
             List<WorkCompletionCertificate> byId = wccRepository.findByClientId(clientId);
             if (byId != null && !byId.isEmpty()) {
                 return byId;
@@ -136,35 +162,26 @@ public class ClientServiceImpl implements ClientService {
             return wccRepository.findByStoreNameIgnoreCase(client.getName());
         });
 
-        CompletableFuture.allOf(invoicesTask, wccTask).join();
+        fanout.joinAll(invoicesTask, wccTask);
 
         ClientProfileDTO dto = new ClientProfileDTO();
         dto.setClient(client);
 
         try {
-            List<Invoice> invoices = invoicesTask.get();
+            ClientInvoiceSummary summary = invoicesTask.get();
             List<WorkCompletionCertificate> wccs = wccTask.get();
 
-            if (invoices != null) {
-                invoices.sort(Comparator.comparing(Invoice::getIssuedAt).reversed());
-                dto.setRecentInvoices(invoices.stream().limit(10).collect(Collectors.toList()));
-            } else {
-                dto.setRecentInvoices(Collections.emptyList());
-                invoices = Collections.emptyList();
-            }
+            ClientInvoiceSummary.Totals totals = (summary != null && summary.getTotals() != null && !summary.getTotals().isEmpty())
+                    ? summary.getTotals().get(0)
+                    : new ClientInvoiceSummary.Totals();
 
+            dto.setRecentInvoices(summary != null && summary.getRecent() != null ? summary.getRecent() : Collections.emptyList());
             dto.setRecentCertificates(wccs != null ? wccs : Collections.emptyList());
 
-            double totalBilled = invoices.stream().mapToDouble(Invoice::getTotal).sum();
-            double pending = invoices.stream()
-                    .filter(inv -> "PENDING".equalsIgnoreCase(inv.getStatus()) || "UNPAID".equalsIgnoreCase(inv.getStatus()))
-                    .mapToDouble(Invoice::getTotal)
-                    .sum();
-
             Map<String, Object> stats = new HashMap<>();
-            stats.put("totalBilled", totalBilled);
-            stats.put("pendingAmount", pending);
-            stats.put("invoiceCount", invoices.size());
+            stats.put("totalBilled", totals.getTotalBilled());
+            stats.put("pendingAmount", totals.getPendingAmount());
+            stats.put("invoiceCount", totals.getInvoiceCount());
             stats.put("wccCount", wccs != null ? wccs.size() : 0);
 
             dto.setStats(stats);
@@ -181,7 +198,36 @@ public class ClientServiceImpl implements ClientService {
     }
 
     @Override
-    @Cacheable(value = "clients")
+    public CursorPage<Invoice> getClientInvoices(String clientId, String cursor, int size) {
+        if (size <= 0) size = 20;
+        if (size > MAX_HISTORY_PAGE_SIZE) size = MAX_HISTORY_PAGE_SIZE;
+        if (!clientRepository.existsById(clientId)) {
+            throw new IllegalArgumentException("Client not found: " + clientId);
+        }
+        SortKeyCursor after = SortKeyCursor.decode(cursor, "issuedAt", Sort.Direction.DESC);
+        log.debug("Client invoice history page requested: client={}, cursor={}, size={}", clientId, after, size);
+
+        // Keyset on (issuedAt desc, _id desc); invoices without issuedAt sort last
+        Query query = new Query(Criteria.where("clientId").is(clientId));
+        if (after != null) {
+            query.addCriteria(after.seek());
+        }
+        query.with(SortKeyCursor.sort("issuedAt", Sort.Direction.DESC)).limit(size + 1);
+        query.fields().exclude("items").exclude("attachments");
+
+        List<Invoice> rows = mongoTemplate.find(query, Invoice.class);
+        boolean hasMore = rows.size() > size;
+        List<Invoice> items = hasMore ? new ArrayList<>(rows.subList(0, size)) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            Invoice last = items.get(items.size() - 1);
+            nextCursor = new SortKeyCursor("issuedAt", Sort.Direction.DESC, last.getIssuedAt(), last.getId()).encode();
+        }
+        return new CursorPage<>(items, nextCursor, hasMore);
+    }
+
+    @Override
+    @Cacheable(value = "client_lists", key = "'all:v' + @cacheVersions.current('clients')")
     public List<ClientDTO> getAll() {
         log.debug("Executing collective relational dump vector lookup query against Client transactional datasets");
         return clientRepository.findAll().stream()
@@ -190,11 +236,21 @@ public class ClientServiceImpl implements ClientService {
     }
 
     @Override
-    @CacheEvict(value = "clients", allEntries = true) // Invalidates cache keys entirely upon deletion
+    @Caching(evict = {
+            @CacheEvict(value = "clients", key = "#id"), // Drops only the removed client's entries
+            @CacheEvict(value = "client_profiles", key = "#id")
+    })
     public void delete(String id) {
         log.warn("Initiating structural row cache eviction and physical deletion sequence for Client entity element key ID: {}", id);
         clientRepository.deleteById(id);
         log.info("Client structural row block reference ID: {} successfully purged from system persistence collections", id);
+        cacheVersions.bump(CacheVersions.CLIENTS);
+    }
+
+    @Override
+    @CacheEvict(value = "client_profiles", key = "#clientId", condition = "#clientId != null")
+    public void evictProfile(String clientId) {
+        log.debug("Client profile cache entry dropped for client {} after an invoice change", clientId);
     }
 
     @Override
@@ -207,16 +263,7 @@ public class ClientServiceImpl implements ClientService {
         Sort s = parseSort(sort, Sort.by(Sort.Direction.DESC, "createdAt"));
         Pageable pageable = PageRequest.of(page, size, s);
 
-        Query query = new Query(); 
-
-        if (q != null && !q.isBlank()) {
-            String regex = ".*" + q.trim() + ".*";
-            Criteria criteria = new Criteria().orOperator(
-                    Criteria.where("name").regex(regex, "i"),
-                    Criteria.where("email").regex(regex, "i")
-            );
-            query.addCriteria(criteria);
-        }
+        Query query = searchQuery(q);
 
         long total = mongoTemplate.count(query, Client.class);
         query.with(pageable);
@@ -228,6 +275,54 @@ public class ClientServiceImpl implements ClientService {
         return new PageImpl<>(dtos, pageable, total);
     }
 
+    @Override
+    public CursorPage<ClientDTO> scroll(String q, String cursor, int size, String sort, String count) {
+        if (size <= 0) size = 20;
+        if (size > MAX_SCROLL_PAGE_SIZE) size = MAX_SCROLL_PAGE_SIZE;
+        Sort.Order order = parseSort(sort, Sort.by(Sort.Direction.DESC, "createdAt")).iterator().next();
+        if (!SCROLL_SORT_KEYS.contains(order.getProperty())) {
+            throw new IllegalArgumentException("Cannot scroll clients by " + order.getProperty() + "; sort by one of " + SCROLL_SORT_KEYS);
+        }
+        SortKeyCursor after = SortKeyCursor.decode(cursor, order.getProperty(), order.getDirection());
+        log.debug("Client scroll page requested: q='{}', sort={}, cursor={}, size={}", q, order, after, size);
+
+        QueryCounts.Count total = after == null
+                ? QueryCounts.count(mongoTemplate, searchQuery(q), Client.class, count, ESTIMATE_COUNT_CAP)
+                : null;
+
+        Query query = searchQuery(q);
+        if (after != null) {
+            query.addCriteria(after.seek());
+        }
+        query.with(SortKeyCursor.sort(order.getProperty(), order.getDirection())).limit(size + 1);
+
+        List<Client> rows = mongoTemplate.find(query, Client.class);
+        boolean hasMore = rows.size() > size;
+        List<Client> page = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            Client last = page.get(page.size() - 1);
+            Object value = "name".equals(order.getProperty()) ? last.getName() : last.getCreatedAt();
+            nextCursor = new SortKeyCursor(order.getProperty(), order.getDirection(), value, last.getId()).encode();
+        }
+        List<ClientDTO> dtos = page.stream().map(mapper::toDto).collect(Collectors.toList());
+        return new CursorPage<>(dtos, nextCursor, hasMore,
+                total != null ? total.total() : null, total != null ? total.exact() : null);
+    }
+
+    private Query searchQuery(String q) {
+        Query query = new Query();
+        if (q != null && !q.isBlank()) {
+            String regex = ".*" + q.trim() + ".*";
+            Criteria criteria = new Criteria().orOperator(
+                    Criteria.where("name").regex(regex, "i"),
+                    Criteria.where("email").regex(regex, "i")
+            );
+            query.addCriteria(criteria);
+        }
+        return query;
+    }
+
     private Sort parseSort(String sort, Sort defaultSort) {
         if (sort == null || sort.isBlank()) return defaultSort;
         try {
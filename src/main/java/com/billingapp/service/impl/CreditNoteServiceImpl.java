@@ -1,25 +1,30 @@
 package com.billingapp.service.impl;
 
 import com.billingapp.entity.Client;
-import com.billingapp.entity.Company;
 import com.billingapp.entity.CreditNote;
+import com.billingapp.event.DocumentSavedEvent;
 import com.billingapp.repository.ClientRepository;
-import com.billingapp.repository.CompanyRepository;
 import com.billingapp.repository.CreditNoteRepository;
+import com.billingapp.service.CompanyProfileProvider;
 import com.billingapp.service.CreditNoteService;
 import com.billingapp.service.DashboardService;
+import com.billingapp.service.DocumentNumberService;
+import com.billingapp.service.LetterheadService;
+import com.billingapp.service.PdfAssetService;
+import com.billingapp.service.RenderedDocumentCache;
 import com.lowagie.text.*;
 import com.lowagie.text.pdf.*;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.awt.Color;
-import java.io.ByteArrayOutputStream;
-import java.net.URL;
+import java.io.OutputStream;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
@@ -32,36 +37,55 @@ public class CreditNoteServiceImpl implements CreditNoteService {
 
     private final CreditNoteRepository creditNoteRepository;
     private final ClientRepository clientRepository;
-    private final CompanyRepository companyRepository;
+    private final CompanyProfileProvider companyProfile;
     private final DashboardService dashboardService;
+    private final RenderedDocumentCache documentCache;
+    private final LetterheadService letterheadService;
+    private final PdfAssetService assetService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DocumentNumberService numberService;
 
     public CreditNoteServiceImpl(CreditNoteRepository creditNoteRepository,
                                  ClientRepository clientRepository,
-                                 CompanyRepository companyRepository,
-                                 DashboardService dashboardService) {
+                                 CompanyProfileProvider companyProfile,
+                                 DashboardService dashboardService,
+                                 RenderedDocumentCache documentCache,
+                                 LetterheadService letterheadService,
+                                 PdfAssetService assetService,
+                                 ApplicationEventPublisher eventPublisher,
+                                 DocumentNumberService numberService) {
         this.creditNoteRepository = creditNoteRepository;
         this.clientRepository = clientRepository;
-        this.companyRepository = companyRepository;
+        this.companyProfile = companyProfile;
         this.dashboardService = dashboardService;
+        this.documentCache = documentCache;
+        this.letterheadService = letterheadService;
+        this.assetService = assetService;
+        this.eventPublisher = eventPublisher;
+        this.numberService = numberService;
     }
 
     @Override
     @CacheEvict(value = "credit_notes", allEntries = true)
     public CreditNote create(CreditNote cn) {
         log.info("Attempting to create Credit Note profile record: {}", cn.getCreditNoteNo());
-        if (cn.getCreditNoteNo() == null || cn.getCreditNoteNo().isBlank()) {
-            log.warn("Credit Note creation aborted: missing transaction document reference code");
-            throw new IllegalArgumentException("Credit Note number is required");
-        }
-        if (creditNoteRepository.existsByCreditNoteNo(cn.getCreditNoteNo())) {
+        cn.setCreatedAt(Instant.now());
+        cn.setUpdatedAt(Instant.now());
+        CreditNote saved;
+        try {
+            saved = numberService.saveNumbered(DocumentNumberService.CREDIT_NOTE, cn.getCreditNoteNo(),
+                    () -> numberService.next(DocumentNumberService.CREDIT_NOTE, cn.getCreditNoteDate()),
+                    number -> {
+                        cn.setCreditNoteNo(number);
+                        return creditNoteRepository.save(cn); // the unique creditNoteNo index rejects duplicates
+                    });
+        } catch (DuplicateKeyException e) {
             log.warn("Credit Note creation aborted: tracking identifier target code {} already exists", cn.getCreditNoteNo());
             throw new IllegalArgumentException("Credit Note number already exists");
         }
-        cn.setCreatedAt(Instant.now());
-        cn.setUpdatedAt(Instant.now());
-        CreditNote saved = creditNoteRepository.save(cn);
         log.info("Credit Note tracking token successfully written to storage layer with inner record ID: {}", saved.getId());
         dashboardService.clearDashboardCache();
+        eventPublisher.publishEvent(DocumentSavedEvent.of(RenderedDocumentCache.TYPE_CREDIT_NOTE, saved.getId()));
         return saved;
     }
 
@@ -75,12 +99,9 @@ public class CreditNoteServiceImpl implements CreditNoteService {
                     return new IllegalArgumentException("Credit Note not found: " + id);
                 });
 
-        if (data.getCreditNoteNo() != null && !data.getCreditNoteNo().equals(existing.getCreditNoteNo())) {
-            if (creditNoteRepository.existsByCreditNoteNo(data.getCreditNoteNo())) {
-                log.warn("Update mutation failed: collision vector triggered for modification code {}", data.getCreditNoteNo());
-                throw new IllegalArgumentException("New Credit Note number already exists");
-            }
-            existing.setCreditNoteNo(data.getCreditNoteNo());
+        boolean numberChanged = data.getCreditNoteNo() != null && !data.getCreditNoteNo().equals(existing.getCreditNoteNo());
+        if (numberChanged) {
+            existing.setCreditNoteNo(data.getCreditNoteNo()); // uniqueness enforced by the index on save
         }
 
         existing.setStatus(data.getStatus());
@@ -109,9 +130,19 @@ public class CreditNoteServiceImpl implements CreditNoteService {
         existing.setRupeesInWords(data.getRupeesInWords());
         existing.setUpdatedAt(Instant.now());
 
-        CreditNote saved = creditNoteRepository.save(existing);
+        CreditNote saved;
+        try {
+            saved = creditNoteRepository.save(existing);
+        } catch (DuplicateKeyException e) {
+            log.warn("Update mutation failed: collision vector triggered for modification code {}", data.getCreditNoteNo());
+            throw new IllegalArgumentException("New Credit Note number already exists");
+        }
         log.info("Credit Note state modifications for target document identity matching ID {} successfully persisted", id);
+        if (numberChanged) {
+            numberService.observe(DocumentNumberService.CREDIT_NOTE, saved.getCreditNoteNo());
+        }
         dashboardService.clearDashboardCache();
+        eventPublisher.publishEvent(DocumentSavedEvent.of(RenderedDocumentCache.TYPE_CREDIT_NOTE, saved.getId()));
         return saved;
     }
 
@@ -137,38 +168,44 @@ public class CreditNoteServiceImpl implements CreditNoteService {
     public void delete(String id) {
         log.info("Initiating structural row cache eviction sequence for Credit Note token code ID: {}", id);
         creditNoteRepository.deleteById(id);
+        documentCache.evict(RenderedDocumentCache.TYPE_CREDIT_NOTE, id);
         log.info("Credit Note index successfully dropped for row ID: {}", id);
         dashboardService.clearDashboardCache();
     }
 
     @Override
-    @Cacheable(value = "credit_notes", key = "'pdf-' + #id")
     public byte[] generatePdf(String id) throws Exception {
+        try (RenderedDocumentCache.Rendered pdf = openPdf(id)) {
+            return pdf.readAllBytes();
+        }
+    }
+
+    @Override
+    public RenderedDocumentCache.Rendered openPdf(String id) throws Exception {
         log.info("Initiating structural PDF generation engine context pipeline for Credit Note token ID: {}", id);
         CreditNote cn = creditNoteRepository.findById(id).orElseThrow(() -> {
             log.error("PDF engine pipeline aborted: document reference entity mapping code ID {} non-existent", id);
             return new IllegalArgumentException("Credit Note not found");
         });
         Client client = clientRepository.findById(cn.getClientId()).orElse(new Client());
-        Company company = companyRepository.findById("MY_COMPANY").orElse(new Company());
-
-        if (company.getCompanyName() == null) {
-            company.setCompanyName("JMD DÉCOR");
-            company.setAddress("210 ASHIRWAD INDUSTRIAL ESTATE BLDG. NO.-5 RAM MANDIR ROAD, GOREGAON WEST MUMBAI 400104");
-            company.setEmail("jmdsignage.2010@gmail.com");
-            company.setGstin("27AAOPY8409R1ZD");
-            company.setUdyamRegNo("MH-19-0044729");
-            company.setPhone("9819707090/9322821737");
-            company.setBankName("Kotak Mahindra Bank");
-            company.setAccountNumber("9111365107");
-            company.setIfscCode("KKBK0000643");
-            company.setBranch("Jawahar Nagar Mumbai 400062");
-        }
+        return openPdf(cn, client);
+    }
+
+    @Override
+    public RenderedDocumentCache.Rendered openPdf(CreditNote cn, Client client) throws Exception {
+        CompanyProfileProvider.Snapshot profile = companyProfile.snapshot();
 
+        String version = documentCache.version(cn, client, profile.version(), assetService.fingerprint());
+        return documentCache.open(RenderedDocumentCache.TYPE_CREDIT_NOTE, cn.getId(), version,
+                out -> renderCreditNote(cn, client, profile, out));
+    }
+
+    private void renderCreditNote(CreditNote cn, Client client, CompanyProfileProvider.Snapshot profile, OutputStream out) throws Exception {
         // Setup Document parameters
         Document document = new Document(PageSize.A4, 15, 15, 15, 15);
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        PdfWriter.getInstance(document, out);
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+        // Company block, logo and bank details come from the shared letterhead template
+        letterheadService.apply(writer, document, profile, 15);
         document.open();
 
         // Canvas Palette
@@ -179,7 +216,6 @@ public class CreditNoteServiceImpl implements CreditNoteService {
         Font fontNormal = FontFactory.getFont(FontFactory.HELVETICA, 8, Color.BLACK);
         Font fontHeader = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12, Color.BLACK);
         Font fontRed = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 9, redText);
-        Font fontBoldBig = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16, Color.BLACK);
 
         DateTimeFormatter dtf = DateTimeFormatter.ofPattern("dd-MM-yyyy").withZone(ZoneId.systemDefault());
 
@@ -196,48 +232,6 @@ public class CreditNoteServiceImpl implements CreditNoteService {
         // UNIFIED MASTER ARCHITECTURE: Strict 10-column framework tracking
         float[] masterColumnWidths = {0.5f, 4.5f, 1f, 0.8f, 0.6f, 1f, 1.2f, 1.1f, 1.1f, 1.5f};
         
-        // --- SECTION 1: COMPANY MATRICES & BRAND LOGO GRAPHIC ---
-        PdfPTable mainTable = new PdfPTable(masterColumnWidths);
-        mainTable.setWidthPercentage(100);
-
-        PdfPCell compCell = new PdfPCell();
-        compCell.setColspan(7); 
-        compCell.setPadding(6);
-        compCell.addElement(new Paragraph(company.getCompanyName(), fontHeader));
-        compCell.addElement(new Paragraph(company.getAddress(), fontNormal));
-        compCell.addElement(new Paragraph(company.getPhone() + "  |  " + company.getEmail(), fontNormal));
-        compCell.addElement(new Paragraph("GST: " + company.getGstin() + "   UADYAM- " + company.getUdyamRegNo(), fontBold));
-        mainTable.addCell(compCell);
-
-        PdfPCell logoCell = new PdfPCell();
-        logoCell.setColspan(3); 
-        logoCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-        logoCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-        try {
-            Image img = null;
-            if (company.getLogoUrl() != null && !company.getLogoUrl().isBlank()) {
-                try { img = Image.getInstance(company.getLogoUrl()); } catch (Exception ignored) {}
-            }
-            if (img == null) {
-                URL logoResource = getClass().getResource("/logo.png");
-                if (logoResource != null) img = Image.getInstance(logoResource);
-            }
-            if (img != null) {
-                img.scaleToFit(90, 55);
-                img.setAlignment(Element.ALIGN_CENTER);
-                logoCell.addElement(img);
-            } else {
-                throw new RuntimeException();
-            }
-        } catch (Exception e) {
-            log.debug("Bypassing brand layout graphic insertion: exception encountered during asset extraction", e);
-            Paragraph p = new Paragraph("JMD\nDÉCOR", fontBoldBig);
-            p.setAlignment(Element.ALIGN_CENTER);
-            logoCell.addElement(p);
-        }
-        mainTable.addCell(logoCell);
-        document.add(mainTable);
-
         // --- SECTION 2: METADATA SEGMENTATION FIELDS ---
         PdfPTable metaTable = new PdfPTable(masterColumnWidths);
         metaTable.setWidthPercentage(100);
@@ -401,19 +395,9 @@ public class CreditNoteServiceImpl implements CreditNoteService {
         PdfPTable innerFooterTable = new PdfPTable(1);
         innerFooterTable.setWidthPercentage(100);
 
-        // Part 1: Top Cell containing Bank details
-        PdfPCell innerBankCell = new PdfPCell();
-        innerBankCell.setBorder(Rectangle.NO_BORDER);
-        innerBankCell.setPadding(6);
-        innerBankCell.addElement(new Paragraph("Bank: " + company.getBankName() + " Account No: " + company.getAccountNumber() + " IFSC Code: " + company.getIfscCode(), fontBold));
-        innerBankCell.addElement(new Paragraph("Branch: " + company.getBranch(), fontBold));
-        innerFooterTable.addCell(innerBankCell);
-
-        // Part 2: Bottom Cell containing Declaration note (with top line border separator active)
+        // Declaration note (bank details are printed in the letterhead footer band)
         PdfPCell innerDecCell = new PdfPCell();
-        innerDecCell.setBorder(Rectangle.TOP); 
-        innerDecCell.setBorderWidthTop(0.5f);
-        innerDecCell.setBorderColorTop(Color.BLACK);
+        innerDecCell.setBorder(Rectangle.NO_BORDER);
         innerDecCell.setPadding(6);
         innerDecCell.addElement(new Paragraph("Declaration: We Declare that this Credit Note shows the actual price of the Goods Described and that all particulars are true and correct.", fontNormal));
         innerFooterTable.addCell(innerDecCell);
@@ -427,16 +411,27 @@ public class CreditNoteServiceImpl implements CreditNoteService {
         signCell.setHorizontalAlignment(Element.ALIGN_CENTER);
         signCell.setVerticalAlignment(Element.ALIGN_BOTTOM);
         signCell.setPaddingBottom(10);
-        Paragraph pProp = new Paragraph("For JMD DÉCOR\n\n\n\nPROPRIETOR", fontBold);
-        pProp.setAlignment(Element.ALIGN_CENTER);
-        signCell.addElement(pProp);
+        Image signature = assetService.image(PdfAssetService.SIGNATURE, 90, 36);
+        if (signature != null) {
+            Paragraph pFor = new Paragraph("For JMD DÉCOR", fontBold);
+            pFor.setAlignment(Element.ALIGN_CENTER);
+            signCell.addElement(pFor);
+            signature.setAlignment(Element.ALIGN_CENTER);
+            signCell.addElement(signature);
+            Paragraph pProp = new Paragraph("PROPRIETOR", fontBold);
+            pProp.setAlignment(Element.ALIGN_CENTER);
+            signCell.addElement(pProp);
+        } else {
+            Paragraph pProp = new Paragraph("For JMD DÉCOR\n\n\n\nPROPRIETOR", fontBold);
+            pProp.setAlignment(Element.ALIGN_CENTER);
+            signCell.addElement(pProp);
+        }
         finalFooter.addCell(signCell);
         
         document.add(finalFooter);
         document.close();
         
-        log.info("PDF generation successfully completed for Credit Note ID: {}", id);
-        return out.toByteArray();
+        log.info("PDF generation successfully completed for Credit Note ID: {}", cn.getId());
     }
 
     private void addUnifiedMetaRow(PdfPTable table, String l1, String v1, String l2, String v2, Font b, Font n) {
@@ -0,0 +1,285 @@
+package com.billingapp.service.impl;
+
+import com.billingapp.service.RenderedDocumentCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import jakarta.annotation.PostConstruct;
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Rendered-document cache on local disk.
+ * Files live at {@code <dir>/<type>/<id>@<version>.pdf}; the in-memory index is rebuilt from the
+ * directory at startup and evicts least-recently-used files once the total exceeds {@code max-size}.
+ */
+@Slf4j
+@Service
+public class DiskRenderedDocumentCache implements RenderedDocumentCache {
+
+    private static final String EXTENSION = ".pdf";
+
+    private final ObjectMapper objectMapper;
+    private final Path root;
+    private final long maxBytes;
+    private final String layoutVersion;
+
+    // Access-ordered: iteration starts at the least recently used file
+    private final LinkedHashMap<Path, Long> index = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    private final ConcurrentHashMap<String, ReentrantLock> renderLocks = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+
+    public DiskRenderedDocumentCache(ObjectMapper objectMapper,
+                                     @Value("${app.pdf-cache.dir:pdf-cache}") String dir,
+                                     @Value("${app.pdf-cache.max-size:256MB}") DataSize maxSize,
+                                     @Value("${app.pdf-cache.layout-version:1}") String layoutVersion) {
+        this.objectMapper = objectMapper;
+        this.root = Paths.get(dir).toAbsolutePath().normalize();
+        this.maxBytes = maxSize.toBytes();
+        this.layoutVersion = layoutVersion;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            Files.createDirectories(root);
+        } catch (IOException e) {
+            log.error("Unable to create rendered PDF cache directory " + root + "; documents will be rendered on every request", e);
+            return;
+        }
+
+        // Rebuild the index oldest-first so the LRU order survives restarts
+        List<Map.Entry<Path, BasicFileAttributes>> found = new ArrayList<>();
+        // Only <root>/<type>/ files are the cache's own; anything else under the root is left alone
+        try (Stream<Path> files = Files.walk(root, 2)) {
+            files.filter(file -> root.equals(file.getParent() != null ? file.getParent().getParent() : null))
+                    .filter(Files::isRegularFile).forEach(file -> {
+                try {
+                    String name = file.getFileName().toString();
+                    if (name.endsWith(EXTENSION + ".tmp")) {
+                        Files.deleteIfExists(file); // half-written temp files from a crash
+                        return;
+                    }
+                    if (!name.endsWith(EXTENSION)) {
+                        return;
+                    }
+                    found.add(Map.entry(file, Files.readAttributes(file, BasicFileAttributes.class)));
+                } catch (IOException e) {
+                    log.warn("Skipping unreadable PDF cache file {}: {}", file, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            log.error("Failed to scan rendered PDF cache directory " + root, e);
+        }
+        found.sort(Comparator.comparing(entry -> entry.getValue().lastModifiedTime()));
+
+        synchronized (index) {
+            for (Map.Entry<Path, BasicFileAttributes> entry : found) {
+                index.put(entry.getKey(), entry.getValue().size());
+                totalBytes += entry.getValue().size();
+            }
+            trim();
+        }
+        log.info("Rendered PDF cache ready at {}: {} files, {} bytes (limit {} bytes)", root, index.size(), totalBytes, maxBytes);
+    }
+
+    @Override
+    public String version(Object... inputs) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(layoutVersion.getBytes());
+            for (Object input : inputs) {
+                digest.update((byte) 0);
+                digest.update(objectMapper.writeValueAsBytes(input));
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to compute rendered document version", e);
+        }
+    }
+
+    @Override
+    public Rendered open(String type, String id, String version, Renderer renderer) throws Exception {
+        Path file = fileFor(type, id, version);
+
+        Rendered cached = openCached(file);
+        if (cached != null) {
+            hits.increment();
+            log.debug("Rendered PDF cache hit for {} {} (version {})", type, id, version);
+            return cached;
+        }
+
+        // One render per document at a time; concurrent requests wait and then open the file
+        String lockKey = type + "/" + id;
+        ReentrantLock lock = renderLocks.computeIfAbsent(lockKey, k -> new ReentrantLock());
+        lock.lock();
+        try {
+            cached = openCached(file);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+            misses.increment();
+            return renderToFile(type, id, version, file, renderer);
+        } finally {
+            lock.unlock();
+            if (!lock.hasQueuedThreads()) renderLocks.remove(lockKey, lock);
+        }
+    }
+
+    @Override
+    public void evict(String type, String id) {
+        removeVersions(type, id, null);
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (index) {
+            stats.put("files", index.size());
+            stats.put("bytes", totalBytes);
+        }
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        long lookups = hits.sum() + misses.sum();
+        stats.put("hitRatio", lookups == 0 ? 0.0 : (double) hits.sum() / lookups);
+        stats.put("evictions", evictions.sum());
+        stats.put("writeFailures", writeFailures.sum());
+        return stats;
+    }
+
+    // --- File Helpers ---
+
+    private Path fileFor(String type, String id, String version) {
+        return root.resolve(safe(type)).resolve(safe(id) + "@" + version + EXTENSION);
+    }
+
+    private static String safe(String value) {
+        return value.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    private Rendered openCached(Path file) {
+        Long size;
+        synchronized (index) {
+            size = index.get(file); // also refreshes the LRU position
+        }
+        if (size == null) return null;
+        try {
+            return new Rendered(new BufferedInputStream(Files.newInputStream(file)), size);
+        } catch (NoSuchFileException e) {
+            forget(file);
+            return null;
+        } catch (IOException e) {
+            log.warn("Failed to open cached PDF {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Renders straight into a temp file next to the target (no in-memory copy of the document),
+     * publishes it with an atomic move and returns it already opened, so a concurrent LRU trim
+     * cannot pull the file away before the caller reads it.
+     */
+    private Rendered renderToFile(String type, String id, String version, Path file, Renderer renderer) throws Exception {
+        long startTime = System.currentTimeMillis();
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        OutputStream out;
+        try {
+            Files.createDirectories(file.getParent());
+            out = new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024);
+        } catch (IOException e) {
+            // Cache directory unusable: still serve the document, just without caching it
+            writeFailures.increment();
+            log.error("Failed to open rendered PDF cache file " + tmp + "; rendering in memory: " + e.getMessage(), e);
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+            renderer.render(buffer);
+            return new Rendered(new ByteArrayInputStream(buffer.toByteArray()), buffer.size());
+        }
+
+        long size;
+        Rendered opened;
+        try {
+            try (out) {
+                renderer.render(out);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            size = Files.size(file);
+            opened = new Rendered(new BufferedInputStream(Files.newInputStream(file)), size);
+        } catch (Exception e) {
+            deleteQuietly(tmp);
+            throw e;
+        }
+        log.info("Rendered {} {} (version {}) in {} ms, {} bytes", type, id, version, System.currentTimeMillis() - startTime, size);
+
+        // Older versions of the same document can never be served again
+        removeVersions(type, id, file);
+        synchronized (index) {
+            Long previous = index.put(file, size);
+            totalBytes += size - (previous != null ? previous : 0);
+            trim();
+        }
+        return opened;
+    }
+
+    private void removeVersions(String type, String id, Path keep) {
+        String prefix = safe(id) + "@";
+        Path dir = root.resolve(safe(type));
+        List<Path> stale = new ArrayList<>();
+        synchronized (index) {
+            for (Path path : index.keySet()) {
+                if (path.getParent().equals(dir) && path.getFileName().toString().startsWith(prefix) && !path.equals(keep)) {
+                    stale.add(path);
+                }
+            }
+        }
+        stale.forEach(this::delete);
+    }
+
+    // Caller holds the index lock
+    private void trim() {
+        Iterator<Map.Entry<Path, Long>> it = index.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<Path, Long> eldest = it.next();
+            it.remove();
+            totalBytes -= eldest.getValue();
+            evictions.increment();
+            deleteQuietly(eldest.getKey());
+        }
+    }
+
+    private void delete(Path file) {
+        forget(file);
+        deleteQuietly(file);
+    }
+
+    private void forget(Path file) {
+        synchronized (index) {
+            Long size = index.remove(file);
+            if (size != null) totalBytes -= size;
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete cached PDF {}: {}", file, e.getMessage());
+        }
+    }
+}
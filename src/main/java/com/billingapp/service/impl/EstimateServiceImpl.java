@@ -3,20 +3,26 @@ package com.billingapp.service.impl;
 import com.billingapp.entity.Client;
 import com.billingapp.entity.Company;
 import com.billingapp.entity.Estimate;
+import com.billingapp.event.DocumentSavedEvent;
 import com.billingapp.repository.ClientRepository;
-import com.billingapp.repository.CompanyRepository;
 import com.billingapp.repository.EstimateRepository;
+import com.billingapp.service.CompanyProfileProvider;
+import com.billingapp.service.DocumentNumberService;
 import com.billingapp.service.EstimateService;
+import com.billingapp.service.LetterheadService;
+import com.billingapp.service.PdfAssetService;
+import com.billingapp.service.RenderedDocumentCache;
 import com.lowagie.text.*;
 import com.lowagie.text.pdf.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
 import java.awt.Color;
-import java.io.ByteArrayOutputStream;
-import java.net.URL;
+import java.io.OutputStream;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
@@ -27,22 +33,31 @@ public class EstimateServiceImpl implements EstimateService {
 
     private final EstimateRepository estimateRepository;
     private final ClientRepository clientRepository;
-    private final CompanyRepository companyRepository;
+    private final CompanyProfileProvider companyProfile;
+    private final RenderedDocumentCache documentCache;
+    private final LetterheadService letterheadService;
+    private final PdfAssetService assetService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DocumentNumberService numberService;
 
     // --- FONTS ---
-    private static final Font FONT_COMPANY_NAME = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12, Color.BLACK);
     private static final Font FONT_HEADER_RED = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 9, new Color(180, 50, 50));
     private static final Font FONT_BOLD = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 9, Color.BLACK);
     private static final Font FONT_NORMAL = FontFactory.getFont(FontFactory.HELVETICA, 8, Color.BLACK);
     private static final Font FONT_SMALL_BOLD = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 8, Color.BLACK);
     private static final Font FONT_SIGNATURE_RED = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10, new Color(200, 0, 0));
-    private static final Font FONT_BANK_BLUE = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 9, new Color(0, 50, 150));
-    private static final Font FONT_BOLD_BIG = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16, Color.BLACK);
 
-    public EstimateServiceImpl(EstimateRepository estimateRepository, ClientRepository clientRepository, CompanyRepository companyRepository) {
+    public EstimateServiceImpl(EstimateRepository estimateRepository, ClientRepository clientRepository, CompanyProfileProvider companyProfile,
+                               RenderedDocumentCache documentCache, LetterheadService letterheadService, PdfAssetService assetService,
+                               ApplicationEventPublisher eventPublisher, DocumentNumberService numberService) {
         this.estimateRepository = estimateRepository;
         this.clientRepository = clientRepository;
-        this.companyRepository = companyRepository;
+        this.companyProfile = companyProfile;
+        this.documentCache = documentCache;
+        this.letterheadService = letterheadService;
+        this.assetService = assetService;
+        this.eventPublisher = eventPublisher;
+        this.numberService = numberService;
     }
 
     @Override
@@ -71,6 +86,7 @@ public class EstimateServiceImpl implements EstimateService {
             throw new IllegalArgumentException("Estimate not found: " + id);
         }
         estimateRepository.deleteById(id);
+        documentCache.evict(RenderedDocumentCache.TYPE_ESTIMATE, id);
         log.info("Estimate index successfully dropped for row ID: {}", id);
     }
 
@@ -79,18 +95,21 @@ public class EstimateServiceImpl implements EstimateService {
     public Estimate createEstimate(Estimate estimate) {
         log.info("Attempting to create Estimate document record: {}", estimate.getEstimateNo());
         
-        if (estimate.getEstimateNo() == null || estimate.getEstimateNo().isBlank()) {
-            log.warn("Estimate creation aborted: missing alphanumeric identifier entry reference code");
-            throw new IllegalArgumentException("Estimate number is required for manual entry");
-        }
-
-        if (estimateRepository.existsByEstimateNo(estimate.getEstimateNo())) {
+        Estimate saved;
+        try {
+            saved = numberService.saveNumbered(DocumentNumberService.ESTIMATE, estimate.getEstimateNo(),
+                    () -> numberService.next(DocumentNumberService.ESTIMATE,
+                            estimate.getEstimateDate() != null ? estimate.getEstimateDate().toLocalDate() : null),
+                    number -> {
+                        estimate.setEstimateNo(number);
+                        return estimateRepository.save(estimate); // the unique estimateNo index rejects duplicates
+                    });
+        } catch (DuplicateKeyException e) {
             log.warn("Estimate creation aborted: tracking identifier target code {} already exists", estimate.getEstimateNo());
             throw new IllegalArgumentException("Estimate number " + estimate.getEstimateNo() + " already exists");
         }
-
-        Estimate saved = estimateRepository.save(estimate);
         log.info("Estimate tracking token successfully written to storage layer with inner record ID: {}", saved.getId());
+        eventPublisher.publishEvent(DocumentSavedEvent.of(RenderedDocumentCache.TYPE_ESTIMATE, saved.getId()));
         return saved;
     }
 
@@ -104,12 +123,9 @@ public class EstimateServiceImpl implements EstimateService {
             return new IllegalArgumentException("Estimate not found: " + id);
         });
         
-        if (data.getEstimateNo() != null && !data.getEstimateNo().equals(existing.getEstimateNo())) {
-            if (estimateRepository.existsByEstimateNo(data.getEstimateNo())) {
-                log.warn("Update mutation failed: collision vector triggered for modification code {}", data.getEstimateNo());
-                throw new IllegalArgumentException("New estimate number already exists");
-            }
-            existing.setEstimateNo(data.getEstimateNo());
+        boolean numberChanged = data.getEstimateNo() != null && !data.getEstimateNo().equals(existing.getEstimateNo());
+        if (numberChanged) {
+            existing.setEstimateNo(data.getEstimateNo()); // uniqueness enforced by the index on save
         }
 
         existing.setEstimateDate(data.getEstimateDate());
@@ -129,14 +145,31 @@ public class EstimateServiceImpl implements EstimateService {
         existing.setStatus(data.getStatus());
         existing.setNotes(data.getNotes());
         
-        Estimate saved = estimateRepository.save(existing);
+        Estimate saved;
+        try {
+            saved = estimateRepository.save(existing);
+        } catch (DuplicateKeyException e) {
+            log.warn("Update mutation failed: collision vector triggered for modification code {}", data.getEstimateNo());
+            throw new IllegalArgumentException("New estimate number already exists");
+        }
         log.info("Estimate state modifications for target document identity matching ID {} successfully persisted", id);
+        if (numberChanged) {
+            numberService.observe(DocumentNumberService.ESTIMATE, saved.getEstimateNo());
+        }
+        eventPublisher.publishEvent(DocumentSavedEvent.of(RenderedDocumentCache.TYPE_ESTIMATE, saved.getId()));
         return saved;
     }
 
     @Override
-    @Cacheable(value = "estimates", key = "'pdf-' + #id") // Highly Optimized: Caches the heavy compiled PDF byte arrays to drastically speed up repeated viewings/downloads
+    // Served from the versioned disk cache; an edit to the estimate, client or company changes the version
     public byte[] generateEstimatePdf(String id) throws Exception {
+        try (RenderedDocumentCache.Rendered pdf = openEstimatePdf(id)) {
+            return pdf.readAllBytes();
+        }
+    }
+
+    @Override
+    public RenderedDocumentCache.Rendered openEstimatePdf(String id) throws Exception {
         log.info("Initiating structural PDF generation engine context pipeline for Estimate token ID: {}", id);
         
         Estimate estimate = estimateRepository.findById(id).orElseThrow(() -> {
@@ -144,67 +177,22 @@ public class EstimateServiceImpl implements EstimateService {
             return new IllegalArgumentException("Estimate not found: " + id);
         });
         Client client = clientRepository.findById(estimate.getClientId()).orElse(new Client());
-        Company company = companyRepository.findById("MY_COMPANY").orElse(new Company());
-
-        if(company.getCompanyName() == null) {
-            company.setCompanyName("JMD DÉCOR");
-            company.setAddress("210 ASHIRWAD INDUSTRIAL ESTATE BLDG. NO. -5 RAM MANDIR ROAD GOREGAON WEST MUMBAI 400104");
-            company.setEmail("JMDSIGNAGE.2010@GMAIL.COM");
-            company.setGstin("27AAOPY8409R1ZD");
-            company.setPhone("9819707090 / 9322821737");
-            company.setBankName("KOTAK MAHINDRA BANK");
-            company.setAccountNumber("9111365107");
-            company.setIfscCode("KKBK0000643");
-        }
+        CompanyProfileProvider.Snapshot profile = companyProfile.snapshot();
+
+        String version = documentCache.version(estimate, client, profile.version(), assetService.fingerprint());
+        return documentCache.open(RenderedDocumentCache.TYPE_ESTIMATE, id, version,
+                out -> renderEstimate(estimate, client, profile, out));
+    }
 
+    private void renderEstimate(Estimate estimate, Client client, CompanyProfileProvider.Snapshot profile, OutputStream out) throws Exception {
+        Company company = profile.company();
         Document document = new Document(PageSize.A4, 15, 15, 15, 15);
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        PdfWriter.getInstance(document, out);
+        PdfWriter writer = PdfWriter.getInstance(document, out);
 
-        document.open();
+        // 1. HEADER & BANK DETAILS: shared letterhead template stamped on every page
+        letterheadService.apply(writer, document, profile, 15);
 
-        // 1. HEADER
-        PdfPTable headerTable = new PdfPTable(2);
-        headerTable.setWidthPercentage(100);
-        headerTable.setWidths(new float[]{3.5f, 1});
-
-        PdfPCell companyCell = new PdfPCell();
-        companyCell.setBorder(Rectangle.BOX);
-        companyCell.setPadding(5);
-        companyCell.addElement(new Paragraph(company.getCompanyName(), FONT_COMPANY_NAME));
-        companyCell.addElement(new Paragraph(company.getAddress(), FONT_NORMAL));
-        companyCell.addElement(new Paragraph(company.getPhone() + " / " + company.getEmail(), FONT_NORMAL));
-        companyCell.addElement(new Paragraph("GST No.- " + company.getGstin(), FONT_NORMAL));
-        headerTable.addCell(companyCell);
-
-        PdfPCell logoCell = new PdfPCell();
-        logoCell.setBorder(Rectangle.BOX);
-        logoCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-        logoCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-        
-        try {
-            Image img = null;
-            if (company.getLogoUrl() != null && !company.getLogoUrl().isBlank()) {
-                try { img = Image.getInstance(company.getLogoUrl()); } catch (Exception e) {}
-            }
-            if (img == null) {
-                URL logoResource = getClass().getResource("/logo.png");
-                if (logoResource != null) img = Image.getInstance(logoResource);
-            }
-            if (img != null) {
-                img.scaleToFit(80, 50);
-                img.setAlignment(Element.ALIGN_CENTER);
-                logoCell.addElement(img);
-            } else { 
-                throw new RuntimeException("No img"); 
-            }
-        } catch (Exception e) {
-            Paragraph p = new Paragraph("JMD\nSIGNAGE", FONT_BOLD_BIG);
-            p.setAlignment(Element.ALIGN_CENTER);
-            logoCell.addElement(p);
-        }
-        headerTable.addCell(logoCell);
-        document.add(headerTable);
+        document.open();
 
         // 2. CLIENT & REF DETAILS
         PdfPTable infoTable = new PdfPTable(4);
@@ -351,24 +339,6 @@ public class EstimateServiceImpl implements EstimateService {
         }
         
         leftContainer.addElement(termsTable);
-
-        PdfPTable bankTable = new PdfPTable(1);
-        bankTable.setWidthPercentage(100);
-        
-        PdfPCell bankCell = new PdfPCell();
-        bankCell.setBorder(Rectangle.TOP);
-        bankCell.setPadding(5);
-        
-        Paragraph bankP = new Paragraph();
-        bankP.setAlignment(Element.ALIGN_LEFT);
-        bankP.add(new Paragraph("BANK DETAILS:", FONT_BOLD));
-        bankP.add(new Paragraph(company.getBankName(), FONT_BANK_BLUE));
-        bankP.add(new Paragraph("ACC NO. " + company.getAccountNumber(), FONT_BANK_BLUE));
-        bankP.add(new Paragraph("IFSC: " + company.getIfscCode(), FONT_BANK_BLUE));
-        bankCell.addElement(bankP);
-        
-        bankTable.addCell(bankCell);
-        leftContainer.addElement(bankTable);
         
         footerTable.addCell(leftContainer);
 
@@ -391,9 +361,15 @@ public class EstimateServiceImpl implements EstimateService {
         signP.setAlignment(Element.ALIGN_CENTER);
         signP.add(new Paragraph("YOUR'S FAITHFULLY", FONT_BOLD));
         signP.add(new Paragraph(company.getCompanyName(), FONT_SIGNATURE_RED));
-        signP.add(Chunk.NEWLINE);
-        signP.add(Chunk.NEWLINE);
-        signP.add(Chunk.NEWLINE);
+        Image signature = assetService.image(PdfAssetService.SIGNATURE, 90, 36);
+        if (signature != null) {
+            signP.add(new Chunk(signature, 0, 0, true));
+            signP.add(Chunk.NEWLINE);
+        } else {
+            signP.add(Chunk.NEWLINE);
+            signP.add(Chunk.NEWLINE);
+            signP.add(Chunk.NEWLINE);
+        }
         signP.add(new Paragraph("RAMESH YADAV", FONT_NORMAL));
         signP.add(new Paragraph("9819707090", FONT_NORMAL));
         
@@ -406,8 +382,7 @@ public class EstimateServiceImpl implements EstimateService {
         document.add(footerTable);
 
         document.close();
-        log.info("PDF generation successfully completed for Estimate ID: {}", id);
-        return out.toByteArray();
+        log.info("PDF generation successfully completed for Estimate ID: {}", estimate.getId());
     }
 
     private void addCell(PdfPTable table, String text, Font font, Color bg, int colspan) {
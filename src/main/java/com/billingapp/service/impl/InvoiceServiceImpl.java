@@ -1,27 +1,64 @@
 package com.billingapp.service.impl;
 
+import com.billingapp.config.CacheVersions;
+import com.billingapp.dto.BulkInvoiceStatusRequest;
 import com.billingapp.dto.CreateInvoiceRequest;
+import com.billingapp.dto.CursorPage;
 import com.billingapp.dto.InvoiceDTO;
 import com.billingapp.dto.InvoiceItemRequest;
+import com.billingapp.dto.InvoiceSearchFacets;
+import com.billingapp.dto.InvoiceSearchPage;
+import com.billingapp.dto.InvoiceSummaryDTO;
+import com.billingapp.entity.Attachment;
 import com.billingapp.entity.Invoice;
+import com.billingapp.event.DocumentSavedEvent;
 import com.billingapp.mapper.InvoiceMapper;
 import com.billingapp.repository.InvoiceRepository;
+import com.billingapp.service.DashboardRollupService;
+import com.billingapp.service.ClientService;
 import com.billingapp.service.DashboardService; // 👈 Added import
+import com.billingapp.service.DocumentNumberService;
 import com.billingapp.service.InvoiceService;
+import com.billingapp.service.RenderedDocumentCache;
+import com.billingapp.util.FieldSelector;
+import com.billingapp.util.QueryCounts;
+import com.billingapp.util.SortKeyCursor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.*;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.GroupOperation;
+import org.springframework.data.mongodb.core.aggregation.ProjectionOperation;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -29,24 +66,69 @@ import java.util.stream.Collectors;
 @Transactional
 public class InvoiceServiceImpl implements InvoiceService {
 
+    private static final int MAX_SCROLL_PAGE_SIZE = 200;
+    // Scalar fields a PATCH may $set directly (true = ISO instant); anything feeding totals goes through update()
+    private static final Map<String, Boolean> PATCHABLE_FIELDS = Map.ofEntries(
+            Map.entry("status", false), Map.entry("dueDate", true), Map.entry("issuedAt", true),
+            Map.entry("ewayBillNo", false), Map.entry("transportMode", false),
+            Map.entry("billingAddress", false), Map.entry("shippingAddress", false), Map.entry("clientGst", false),
+            Map.entry("poNumber", false), Map.entry("poDate", true),
+            Map.entry("challanNo", false), Map.entry("challanDate", true), Map.entry("createdBy", false)
+    );
+    private static final String[] ROLLUP_FIELDS = {"status", "total", "issuedAt", "clientId", "version"};
+    private static final int MAX_BULK_SIZE = 1000;
+
+    private static final int MAX_SEARCH_PAGE_SIZE = 500; // the whole $facet result must fit in one 16 MB document
+    private static final int ESTIMATE_COUNT_CAP = 10_000;
+
+    // Sort keys a cursor can seek on, with the value each one takes from the last row of a page
+    private static final Map<String, Function<Invoice, Object>> SCROLL_SORT_KEYS = Map.of(
+            "createdAt", Invoice::getCreatedAt,
+            "issuedAt", Invoice::getIssuedAt,
+            "dueDate", Invoice::getDueDate,
+            "total", Invoice::getTotal,
+            "invoiceNo", Invoice::getInvoiceNo
+    );
+
     private final InvoiceRepository invoiceRepository;
     private final InvoiceMapper mapper;
     private final MongoTemplate mongoTemplate;
     private final DashboardService dashboardService; // 👈 Added Dashboard Service dependency
+    private final DashboardRollupService rollupService;
+    private final ClientService clientService;
+    private final CacheVersions cacheVersions;
+    private final RenderedDocumentCache documentCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DocumentNumberService numberService;
+    private final CacheManager cacheManager;
 
     // 👈 Updated Constructor to inject DashboardService
     public InvoiceServiceImpl(InvoiceRepository invoiceRepository, 
                               InvoiceMapper mapper, 
                               MongoTemplate mongoTemplate,
-                              DashboardService dashboardService) {
+                              DashboardService dashboardService,
+                              DashboardRollupService rollupService,
+                              ClientService clientService,
+                              CacheVersions cacheVersions,
+                              RenderedDocumentCache documentCache,
+                              ApplicationEventPublisher eventPublisher,
+                              DocumentNumberService numberService,
+                              CacheManager cacheManager) {
         this.invoiceRepository = invoiceRepository;
         this.mapper = mapper;
         this.mongoTemplate = mongoTemplate;
         this.dashboardService = dashboardService;
+        this.rollupService = rollupService;
+        this.clientService = clientService;
+        this.cacheVersions = cacheVersions;
+        this.documentCache = documentCache;
+        this.eventPublisher = eventPublisher;
+        this.numberService = numberService;
+        this.cacheManager = cacheManager;
     }
 
     @Override
-    @CacheEvict(value = "invoices", allEntries = true) // Flushes invoice lists on new creation
+    @CachePut(value = "invoices", key = "#result.id") // Seeds the by-id cache; lists are invalidated via their version
     public InvoiceDTO create(CreateInvoiceRequest req) {
         log.info("Attempting to create Invoice document record: {}", req.getInvoiceNo());
         
@@ -55,18 +137,7 @@ public class InvoiceServiceImpl implements InvoiceService {
             throw new IllegalArgumentException("Invoice must have at least one item");
         }
 
-        if (req.getInvoiceNo() == null || req.getInvoiceNo().isBlank()) {
-            log.warn("Invoice creation aborted: missing alphanumeric identifier entry reference code");
-            throw new IllegalArgumentException("Invoice number is required for manual entry");
-        }
-
-        if (invoiceRepository.existsByInvoiceNo(req.getInvoiceNo())) {
-            log.warn("Invoice creation aborted: tracking identifier target code {} already exists in system context", req.getInvoiceNo());
-            throw new IllegalArgumentException("Invoice number " + req.getInvoiceNo() + " already exists");
-        }
-
         Invoice invoice = mapper.toEntity(req);
-        invoice.setInvoiceNo(req.getInvoiceNo());
 
         double subtotal = computeSubtotalFromItems(req.getItems());
         invoice.setSubtotal(subtotal);
@@ -76,10 +147,27 @@ public class InvoiceServiceImpl implements InvoiceService {
         invoice.setCreatedAt(Instant.now());
         if (invoice.getIssuedAt() == null) invoice.setIssuedAt(Instant.now());
 
-        Invoice saved = invoiceRepository.save(invoice);
+        Invoice saved;
+        try {
+            // No number given: next in the financial-year series of the issue date
+            saved = numberService.saveNumbered(DocumentNumberService.INVOICE, req.getInvoiceNo(),
+                    () -> numberService.next(DocumentNumberService.INVOICE, req.getIssuedAt()),
+                    number -> {
+                        invoice.setInvoiceNo(number);
+                        invoice.setVersion(null); // a rejected insert leaves version 0 set, which would make the retry an update
+                        return invoiceRepository.save(invoice); // the unique invoiceNo index rejects duplicates
+                    });
+        } catch (DuplicateKeyException e) {
+            log.warn("Invoice creation aborted: tracking identifier target code {} already exists in system context", invoice.getInvoiceNo());
+            throw new IllegalArgumentException("Invoice number " + invoice.getInvoiceNo() + " already exists");
+        }
         log.info("Invoice tracking token successfully written to collection persistence storage layer with inner record ID: {}", saved.getId());
         
+        rollupService.recordCreate(saved);
+        cacheVersions.bump(CacheVersions.INVOICES);
+        clientService.evictProfile(saved.getClientId());
         dashboardService.clearDashboardCache(); // 👈 Flush metric frames instantly on additions
+        eventPublisher.publishEvent(DocumentSavedEvent.of(RenderedDocumentCache.TYPE_INVOICE, saved.getId()));
         return mapper.toDto(saved);
     }
 
@@ -96,104 +184,496 @@ public class InvoiceServiceImpl implements InvoiceService {
     }
 
     @Override
-    @Cacheable(value = "invoices") // Caches the comprehensive historical lookup lists
+    @Cacheable(value = "invoice_lists", key = "'all:v' + @cacheVersions.current('invoices')") // List cache, invalidated by version bump
     public List<InvoiceDTO> getAll() {
         log.debug("Executing collective historical dump vector query against transaction logging datasets");
         return invoiceRepository.findAll().stream().map(mapper::toDto).collect(Collectors.toList());
     }
 
     @Override
-    @CacheEvict(value = "invoices", allEntries = true) // Evicts old state on document recalculations/updates
+    @Cacheable(value = "invoice_lists", key = "'summary:v' + @cacheVersions.current('invoices')")
+    public List<InvoiceSummaryDTO> getAllSummaries() {
+        Query query = new Query();
+        query.fields().include(InvoiceSummaryDTO.FIELDS);
+        return mongoTemplate.find(query, Invoice.class).stream().map(mapper::toSummary).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Map<String, Object>> getAll(List<String> fields) {
+        Query query = new Query();
+        query.fields().include(fields.toArray(new String[0]));
+        return mongoTemplate.find(query, Invoice.class).stream()
+                .map(invoice -> select(mapper.toDto(invoice), fields))
+                .collect(Collectors.toList());
+    }
+
+    // id plus the requested properties of the DTO, in the requested order
+    private static Map<String, Object> select(InvoiceDTO dto, List<String> fields) {
+        BeanWrapperImpl bean = new BeanWrapperImpl(dto);
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", dto.getId());
+        fields.forEach(field -> row.put(field, bean.getPropertyValue(field)));
+        return row;
+    }
+
+    @Override
+    @CachePut(value = "invoices", key = "#id") // Refreshes only this invoice's cached entry
     public InvoiceDTO update(String id, CreateInvoiceRequest req) {
         log.info("Attempting to commit transaction modification delta configurations on entry entity database reference ID: {}", id);
         
-        Invoice existing = invoiceRepository.findById(id)
-                .orElseThrow(() -> {
-                    log.error("Update payload configuration rejected: target mapping entity matching code ID {} doesn't exist", id);
-                    return new IllegalArgumentException("Invoice not found: " + id);
-                });
+        // Only the scalar fields are read; items and attachments stay in the database
+        Invoice existing = loadHeader(id);
+        if (req.getVersion() != null && !req.getVersion().equals(existing.getVersion())) {
+            throw staleVersion(id);
+        }
+        DashboardRollupService.Snapshot before = DashboardRollupService.Snapshot.of(existing);
+
+        // Targeted $set of the fields present in the request instead of rewriting the whole document
+        Update update = new Update();
 
         // 1. Update Items & Totals
         if (req.getItems() != null && !req.getItems().isEmpty()) {
-            existing.setItems(mapper.toEntity(req).getItems());
             double subtotal = computeSubtotalFromItems(req.getItems());
-            existing.setSubtotal(subtotal);
-            existing.setTotal(subtotal + req.getTax());
-            existing.setTax(req.getTax());
+            update.set("items", mapper.toEntity(req).getItems())
+                    .set("subtotal", subtotal)
+                    .set("total", subtotal + req.getTax())
+                    .set("tax", req.getTax());
         } else if (req.getTax() != 0d) {
-            existing.setTax(req.getTax());
-            existing.setTotal(existing.getSubtotal() + req.getTax());
+            update.set("tax", req.getTax()).set("total", existing.getSubtotal() + req.getTax());
         }
-        if (req.getClientGst() != null) existing.setClientGst(req.getClientGst());
+        if (req.getClientGst() != null) update.set("clientGst", req.getClientGst());
 
         // 2. Update Standard Fields
-        if (req.getInvoiceNo() != null && !req.getInvoiceNo().equals(existing.getInvoiceNo())) {
-            if (invoiceRepository.existsByInvoiceNo(req.getInvoiceNo())) {
-                log.warn("Update mutation failed: collision vector triggered for modification code {}", req.getInvoiceNo());
-                throw new IllegalArgumentException("New invoice number already exists");
-            }
-            existing.setInvoiceNo(req.getInvoiceNo());
+        boolean numberChanged = req.getInvoiceNo() != null && !req.getInvoiceNo().equals(existing.getInvoiceNo());
+        if (numberChanged) {
+            update.set("invoiceNo", req.getInvoiceNo()); // uniqueness enforced by the index
         }
 
-        if (req.getStatus() != null) existing.setStatus(req.getStatus());
-        if (req.getIssuedAt() != null) existing.setIssuedAt(req.getIssuedAt());
-        if (req.getDueDate() != null) existing.setDueDate(req.getDueDate());
-        if (req.getCreatedBy() != null) existing.setCreatedBy(req.getCreatedBy());
-        if (req.getClientId() != null) existing.setClientId(req.getClientId());
+        if (req.getStatus() != null) update.set("status", req.getStatus());
+        if (req.getIssuedAt() != null) update.set("issuedAt", req.getIssuedAt());
+        if (req.getDueDate() != null) update.set("dueDate", req.getDueDate());
+        if (req.getCreatedBy() != null) update.set("createdBy", req.getCreatedBy());
+        if (req.getClientId() != null) update.set("clientId", req.getClientId());
 
         // 3. Update Logistics/Address Fields
-        if (req.getBillingAddress() != null) existing.setBillingAddress(req.getBillingAddress());
-        if (req.getShippingAddress() != null) existing.setShippingAddress(req.getShippingAddress());
-        if (req.getTransportMode() != null) existing.setTransportMode(req.getTransportMode());
-        if (req.getEwayBillNo() != null) existing.setEwayBillNo(req.getEwayBillNo());
-        if (req.getPoNumber() != null) existing.setPoNumber(req.getPoNumber());
-        if (req.getPoDate() != null) existing.setPoDate(req.getPoDate());
-        if (req.getChallanNo() != null) existing.setChallanNo(req.getChallanNo());
-        if (req.getChallanDate() != null) existing.setChallanDate(req.getChallanDate());
-
-        existing.setUpdatedAt(Instant.now());
-        Invoice saved = invoiceRepository.save(existing);
+        if (req.getBillingAddress() != null) update.set("billingAddress", req.getBillingAddress());
+        if (req.getShippingAddress() != null) update.set("shippingAddress", req.getShippingAddress());
+        if (req.getTransportMode() != null) update.set("transportMode", req.getTransportMode());
+        if (req.getEwayBillNo() != null) update.set("ewayBillNo", req.getEwayBillNo());
+        if (req.getPoNumber() != null) update.set("poNumber", req.getPoNumber());
+        if (req.getPoDate() != null) update.set("poDate", req.getPoDate());
+        if (req.getChallanNo() != null) update.set("challanNo", req.getChallanNo());
+        if (req.getChallanDate() != null) update.set("challanDate", req.getChallanDate());
+
+        update.set("updatedAt", Instant.now());
+        Invoice saved;
+        try {
+            saved = writeVersioned(id, existing.getVersion(), update, FindAndModifyOptions.options().returnNew(true));
+        } catch (DuplicateKeyException e) {
+            log.warn("Update mutation failed: collision vector triggered for modification code {}", req.getInvoiceNo());
+            throw new IllegalArgumentException("New invoice number already exists");
+        }
         log.info("Invoice state modifications for target document identity matching ID {} successfully persisted", id);
-        
+        if (numberChanged) {
+            numberService.observe(DocumentNumberService.INVOICE, saved.getInvoiceNo());
+        }
+
+        rollupService.recordUpdate(before, saved);
+        cacheVersions.bump(CacheVersions.INVOICES);
+        clientService.evictProfile(saved.getClientId());
+        if (before.clientId() != null && !before.clientId().equals(saved.getClientId())) {
+            clientService.evictProfile(before.clientId());
+        }
         dashboardService.clearDashboardCache(); // 👈 Flush metrics frames on updates (e.g. status variations)
+        eventPublisher.publishEvent(DocumentSavedEvent.of(RenderedDocumentCache.TYPE_INVOICE, saved.getId()));
         return mapper.toDto(saved);
     }
 
     @Override
-    @CacheEvict(value = "invoices", allEntries = true) // Drops stale entry tags on removals
+    @CacheEvict(value = "invoices", key = "#id") // Drops only the removed invoice's entry
     public void delete(String id) {
         log.info("Initiating structural row cache eviction sequence for entry object collection token context code ID: {}", id);
-        if (!invoiceRepository.existsById(id)) {
-            log.error("Eviction request aborted: deletion reference target key ID {} cannot be verified as existing", id);
-            throw new IllegalArgumentException("Invoice not found: " + id);
-        }
+        Invoice existing = invoiceRepository.findById(id)
+                .orElseThrow(() -> {
+                    log.error("Eviction request aborted: deletion reference target key ID {} cannot be verified as existing", id);
+                    return new IllegalArgumentException("Invoice not found: " + id);
+                });
         invoiceRepository.deleteById(id);
         log.info("Entity index successfully dropped for row ID: {}", id);
         
+        rollupService.recordDelete(existing);
+        documentCache.evict(RenderedDocumentCache.TYPE_INVOICE, id);
+        cacheVersions.bump(CacheVersions.INVOICES);
+        clientService.evictProfile(existing.getClientId());
         dashboardService.clearDashboardCache(); // 👈 Flush metrics frames instantly on deletions
     }
 
     @Override
-    public Page<InvoiceDTO> search(String clientId, String status, String fromIso, String toIso,
-                                   Double minTotal, Double maxTotal, int page, int size, String sort) {
+    @CacheEvict(value = "invoices", key = "#id")
+    public Map<String, Object> patch(String id, Map<String, Object> changes) {
+        Map<String, Object> fields = new LinkedHashMap<>(changes);
+        Object expected = fields.remove("version");
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to update");
+        }
+        Map<String, Object> values = new LinkedHashMap<>();
+        fields.forEach((field, value) -> {
+            Boolean isDate = PATCHABLE_FIELDS.get(field);
+            if (isDate == null) {
+                throw new IllegalArgumentException("Field cannot be patched: " + field + " (patchable: " + PATCHABLE_FIELDS.keySet() + ")");
+            }
+            values.put(field, value == null ? null : isDate ? parseInstant(field, value) : value.toString());
+        });
+        Update update = new Update();
+        values.forEach(update::set);
+        update.set("updatedAt", Instant.now());
+
+        // One small write; the previous rollup-relevant fields come back from the same findAndModify
+        Long expectedVersion = expected instanceof Number n ? n.longValue() : null;
+        if (expected != null && expectedVersion == null) {
+            throw new IllegalArgumentException("version must be a number");
+        }
+        Invoice before = expectedVersion != null
+                ? writeVersioned(id, expectedVersion, update, FindAndModifyOptions.options().returnNew(false), ROLLUP_FIELDS)
+                : writeUnversioned(id, update, ROLLUP_FIELDS);
+        log.info("Invoice {} patched: {}", id, fields.keySet());
+
+        Invoice after = new Invoice();
+        after.setStatus(values.containsKey("status") ? (String) values.get("status") : before.getStatus());
+        after.setIssuedAt(values.containsKey("issuedAt") ? (Instant) values.get("issuedAt") : before.getIssuedAt());
+        after.setTotal(before.getTotal());
+        after.setClientId(before.getClientId());
+        if (fields.containsKey("status") || fields.containsKey("issuedAt")) {
+            rollupService.recordUpdate(DashboardRollupService.Snapshot.of(before), after);
+            dashboardService.clearDashboardCache();
+        }
+        cacheVersions.bump(CacheVersions.INVOICES);
+        clientService.evictProfile(before.getClientId());
+        eventPublisher.publishEvent(DocumentSavedEvent.of(RenderedDocumentCache.TYPE_INVOICE, id));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("id", id);
+        result.put("version", before.getVersion() != null ? before.getVersion() + 1 : 1L);
+        result.put("updated", fields.keySet());
+        return result;
+    }
+
+    @Override
+    public Map<String, Object> bulkUpdateStatus(BulkInvoiceStatusRequest req) {
+        long startTime = System.currentTimeMillis();
+        Map<String, BulkInvoiceStatusRequest.Item> items = bulkItems(req);
+
+        // One read for the current rollup fields and versions of the whole batch
+        Query read = new Query(Criteria.where("_id").in(items.keySet()));
+        read.fields().include(ROLLUP_FIELDS);
+        Map<String, Invoice> current = new HashMap<>();
+        mongoTemplate.find(read, Invoice.class).forEach(invoice -> current.put(invoice.getId(), invoice));
+
+        // Token of this batch: tells our rows apart if some did not take (no other write sets this field)
+        String batchId = UUID.randomUUID().toString();
+        Instant now = Instant.now();
+        Map<String, String> results = new LinkedHashMap<>();
+        List<String> queued = new ArrayList<>();
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, Invoice.class);
+        items.forEach((id, item) -> {
+            Invoice invoice = current.get(id);
+            if (invoice == null) {
+                results.put(id, "NOT_FOUND");
+                return;
+            }
+            if (item.getVersion() != null && !item.getVersion().equals(invoice.getVersion())) {
+                results.put(id, "CONFLICT");
+                return;
+            }
+            Update update = new Update().set("updatedAt", now).set("lastBulkId", batchId).inc("version", 1);
+            if (item.getStatus() != null) update.set("status", item.getStatus());
+            if (item.getDueDate() != null) update.set("dueDate", item.getDueDate());
+            // Guarded by the version just read, so a save in between is reported instead of overwritten
+            Criteria criteria = Criteria.where("_id").is(id);
+            criteria = invoice.getVersion() != null ? criteria.and("version").is(invoice.getVersion()) : criteria.and("version").exists(false);
+            ops.updateOne(new Query(criteria), update);
+            queued.add(id);
+            results.put(id, "UPDATED");
+        });
+
+        if (!queued.isEmpty()) {
+            boolean failed = false;
+            long matched;
+            try {
+                matched = ops.execute().getMatchedCount();
+            } catch (BulkOperationException e) {
+                // Ordered: everything before the failing row is written, nothing after it
+                log.error("Bulk invoice status write failed part-way: " + e.getMessage(), e);
+                failed = true;
+                matched = -1;
+            }
+            if (matched != queued.size()) {
+                markMissedRows(queued, batchId, failed ? "FAILED" : "CONFLICT", results);
+            }
+        }
+
+        List<DashboardRollupService.Change> changes = new ArrayList<>();
+        Set<String> clientIds = new LinkedHashSet<>();
+        Cache cache = cacheManager.getCache("invoices");
+        for (String id : queued) {
+            if (!"UPDATED".equals(results.get(id))) continue;
+            Invoice invoice = current.get(id);
+            String status = items.get(id).getStatus();
+            if (status != null && !status.equals(invoice.getStatus())) {
+                changes.add(new DashboardRollupService.Change(DashboardRollupService.Snapshot.of(invoice),
+                        new DashboardRollupService.Snapshot(status, invoice.getTotal(), invoice.getIssuedAt(), invoice.getClientId())));
+            }
+            if (invoice.getClientId() != null) clientIds.add(invoice.getClientId());
+            if (cache != null) cache.evict(id);
+            eventPublisher.publishEvent(DocumentSavedEvent.of(RenderedDocumentCache.TYPE_INVOICE, id));
+        }
+
+        // One invalidation for the whole batch instead of one per invoice
+        long updated = results.values().stream().filter("UPDATED"::equals).count();
+        if (updated > 0) {
+            rollupService.recordBatch(changes);
+            cacheVersions.bump(CacheVersions.INVOICES);
+            clientIds.forEach(clientService::evictProfile);
+            dashboardService.clearDashboardCache();
+        }
+
+        Map<String, Long> counts = results.values().stream().collect(Collectors.groupingBy(r -> r, LinkedHashMap::new, Collectors.counting()));
+        log.info("Bulk invoice status update of {} invoice(s): {} in {} ms", items.size(), counts, System.currentTimeMillis() - startTime);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("requested", items.size());
+        body.put("updated", updated);
+        body.put("counts", counts);
+        body.put("results", results.entrySet().stream()
+                .map(e -> Map.of("id", e.getKey(), "result", e.getValue()))
+                .toList());
+        return body;
+    }
+
+    // Request rows keyed by id (first occurrence wins), with the request-level values filled in
+    private static Map<String, BulkInvoiceStatusRequest.Item> bulkItems(BulkInvoiceStatusRequest req) {
+        Map<String, BulkInvoiceStatusRequest.Item> items = new LinkedHashMap<>();
+        if (req.getIds() != null) {
+            for (String id : req.getIds()) {
+                BulkInvoiceStatusRequest.Item item = new BulkInvoiceStatusRequest.Item();
+                item.setId(id);
+                items.putIfAbsent(id, item);
+            }
+        }
+        if (req.getItems() != null) {
+            req.getItems().forEach(item -> items.putIfAbsent(item.getId(), item));
+        }
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("ids or items are required");
+        }
+        if (items.size() > MAX_BULK_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_SIZE + " invoices per bulk update, got " + items.size());
+        }
+        for (BulkInvoiceStatusRequest.Item item : items.values()) {
+            if (item.getId() == null || item.getId().isBlank()) {
+                throw new IllegalArgumentException("Every bulk item needs an id");
+            }
+            if (item.getStatus() == null) item.setStatus(req.getStatus());
+            if (item.getDueDate() == null) item.setDueDate(req.getDueDate());
+            if (item.getStatus() == null && item.getDueDate() == null) {
+                throw new IllegalArgumentException("Nothing to update for invoice " + item.getId() + ": status or dueDate is required");
+            }
+        }
+        return items;
+    }
+
+    // The bulk result only has totals: re-read the batch and keep UPDATED for rows carrying this batch's token.
+    // Edits landing after our write leave the token alone, so they cannot turn an applied row into a miss
+    private void markMissedRows(List<String> ids, String batchId, String outcome, Map<String, String> results) {
+        Query query = new Query(Criteria.where("_id").in(ids));
+        query.fields().include("lastBulkId");
+        Map<String, String> tokens = new HashMap<>();
+        mongoTemplate.find(query, Invoice.class).forEach(invoice -> tokens.put(invoice.getId(), invoice.getLastBulkId()));
+        for (String id : ids) {
+            if (!tokens.containsKey(id)) {
+                results.put(id, "NOT_FOUND"); // deleted since the read
+            } else if (!batchId.equals(tokens.get(id))) {
+                results.put(id, outcome);
+            }
+        }
+    }
+
+    @Override
+    @CacheEvict(value = "invoices", key = "#id")
+    public List<Attachment> addAttachments(String id, List<Attachment> attachments) {
+        Query query = new Query(Criteria.where("_id").is(id));
+        query.fields().include("attachments");
+        Update update = new Update()
+                .push("attachments").each(attachments.toArray())
+                .set("updatedAt", Instant.now())
+                .inc("version", 1);
+        Invoice updated = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Invoice.class);
+        if (updated == null) {
+            throw new IllegalArgumentException("Invoice not found: " + id);
+        }
+        cacheVersions.bump(CacheVersions.INVOICES);
+        return updated.getAttachments();
+    }
+
+    // Invoice without items / attachments: everything an update needs to decide what to $set
+    private Invoice loadHeader(String id) {
+        Query query = new Query(Criteria.where("_id").is(id));
+        query.fields().exclude("items").exclude("attachments");
+        Invoice invoice = mongoTemplate.findOne(query, Invoice.class);
+        if (invoice == null) {
+            log.error("Update payload configuration rejected: target mapping entity matching code ID {} doesn't exist", id);
+            throw new IllegalArgumentException("Invoice not found: " + id);
+        }
+        return invoice;
+    }
+
+    /**
+     * Applies {@code update} only if the invoice is still at {@code expectedVersion} (documents written before
+     * versioning have no version field) and increments the version. Returns the document per {@code options}.
+     */
+    private Invoice writeVersioned(String id, Long expectedVersion, Update update, FindAndModifyOptions options, String... fields) {
+        Criteria criteria = Criteria.where("_id").is(id);
+        criteria = expectedVersion != null ? criteria.and("version").is(expectedVersion) : criteria.and("version").exists(false);
+        Query query = new Query(criteria);
+        if (fields.length > 0) query.fields().include(fields);
+        Invoice result = mongoTemplate.findAndModify(query, update.inc("version", 1), options, Invoice.class);
+        if (result == null) {
+            if (!invoiceRepository.existsById(id)) {
+                throw new IllegalArgumentException("Invoice not found: " + id);
+            }
+            throw staleVersion(id);
+        }
+        return result;
+    }
+
+    private Invoice writeUnversioned(String id, Update update, String... fields) {
+        Query query = new Query(Criteria.where("_id").is(id));
+        query.fields().include(fields);
+        Invoice before = mongoTemplate.findAndModify(query, update.inc("version", 1), FindAndModifyOptions.options().returnNew(false), Invoice.class);
+        if (before == null) {
+            throw new IllegalArgumentException("Invoice not found: " + id);
+        }
+        return before;
+    }
+
+    private static OptimisticLockingFailureException staleVersion(String id) {
+        return new OptimisticLockingFailureException("Invoice " + id + " was changed by someone else; reload it and try again");
+    }
+
+    private static Instant parseInstant(String field, Object value) {
+        try {
+            return Instant.parse(value.toString());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(field + " must be an ISO instant, e.g. 2025-04-01T00:00:00Z");
+        }
+    }
+
+    @Override
+    @CacheEvict(value = "invoices", key = "#id")
+    public void evictFromCache(String id) {
+        log.debug("Evicting cached invoice {} after an out-of-band write", id);
+        cacheVersions.bump(CacheVersions.INVOICES);
+    }
+
+    @Override
+    public InvoiceSearchPage<?> search(String clientId, String status, String fromIso, String toIso,
+                                       Double minTotal, Double maxTotal, int page, int size, String sort,
+                                       boolean withSum, FieldSelector fields) {
         log.debug("Executing dynamic multi-criteria parameter aggregate pipeline search filters");
         
         if (page < 0) page = 0;
         if (size <= 0) size = 10;
+        if (size > MAX_SEARCH_PAGE_SIZE) size = MAX_SEARCH_PAGE_SIZE;
         Sort s = parseSort(sort, Sort.by(Sort.Direction.DESC, "createdAt"));
         Pageable pageable = PageRequest.of(page, size, s);
 
-        Query countQuery = buildQuery(clientId, status, fromIso, toIso, minTotal, maxTotal);
-        long total = mongoTemplate.count(countQuery, Invoice.class);
+        // One round trip: the page and the totals of the matched set come out of the same $facet
+        GroupOperation totals = Aggregation.group().count().as("count");
+        if (withSum) {
+            totals = totals.sum("total").as("totalAmount");
+        }
+        // Untyped, so the sort field is passed through as-is like the old find() did (relaxed field lookup)
+        ProjectionOperation projection = switch (fields.mode()) {
+            case FULL -> Aggregation.project().andExclude("attachments"); // never part of InvoiceDTO
+            case SUMMARY -> Aggregation.project(InvoiceSummaryDTO.FIELDS);
+            case CUSTOM -> Aggregation.project(fields.fields().toArray(new String[0]));
+        };
+        // $sort stays outside the $facet (facet sub-pipelines cannot use indexes), so $match + $sort is still
+        // an index scan on createdAt / status_createdAt; the page only skips and limits the sorted stream.
+        // Disk use covers sorts on fields without an index.
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(buildCriteria(clientId, status, fromIso, toIso, minTotal, maxTotal)),
+                Aggregation.sort(s),
+                Aggregation.facet(
+                                Aggregation.skip(pageable.getOffset()),
+                                Aggregation.limit(size),
+                                projection)
+                        .as("page")
+                        .and(totals).as("totals"))
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+        InvoiceSearchFacets result = mongoTemplate.aggregate(aggregation, Invoice.class, InvoiceSearchFacets.class).getUniqueMappedResult();
+
+        List<Invoice> list = result != null && result.getPage() != null ? result.getPage() : List.of();
+        InvoiceSearchFacets.Totals matched = result != null && result.getTotals() != null && !result.getTotals().isEmpty()
+                ? result.getTotals().get(0)
+                : new InvoiceSearchFacets.Totals();
+        Double totalAmount = withSum ? (matched.getTotalAmount() != null ? matched.getTotalAmount() : 0.0) : null;
 
-        Query dataQuery = buildQuery(clientId, status, fromIso, toIso, minTotal, maxTotal);
-        dataQuery.with(pageable);
-        List<Invoice> list = mongoTemplate.find(dataQuery, Invoice.class);
-        List<InvoiceDTO> dtos = list.stream().map(mapper::toDto).collect(Collectors.toList());
-        return new PageImpl<>(dtos, pageable, total);
+        List<?> rows = switch (fields.mode()) {
+            case FULL -> list.stream().map(mapper::toDto).collect(Collectors.toList());
+            case SUMMARY -> list.stream().map(mapper::toSummary).collect(Collectors.toList());
+            case CUSTOM -> list.stream().map(invoice -> select(mapper.toDto(invoice), fields.fields())).collect(Collectors.toList());
+        };
+        return new InvoiceSearchPage<>(rows, pageable, matched.getCount(), totalAmount);
+    }
+
+    @Override
+    public CursorPage<InvoiceDTO> scroll(String clientId, String status, String fromIso, String toIso,
+                                         Double minTotal, Double maxTotal, String cursor, int size, String sort, String count) {
+        if (size <= 0) size = 20;
+        if (size > MAX_SCROLL_PAGE_SIZE) size = MAX_SCROLL_PAGE_SIZE;
+        Sort.Order order = parseSort(sort, Sort.by(Sort.Direction.DESC, "createdAt")).iterator().next();
+        Function<Invoice, Object> sortKey = SCROLL_SORT_KEYS.get(order.getProperty());
+        if (sortKey == null) {
+            throw new IllegalArgumentException("Cannot scroll invoices by " + order.getProperty() + "; sort by one of " + SCROLL_SORT_KEYS.keySet());
+        }
+        SortKeyCursor after = SortKeyCursor.decode(cursor, order.getProperty(), order.getDirection());
+        log.debug("Invoice scroll page requested: sort={}, cursor={}, size={}", order, after, size);
+
+        // The total is only worth paying for once, on the first page
+        QueryCounts.Count total = after == null
+                ? QueryCounts.count(mongoTemplate, buildQuery(clientId, status, fromIso, toIso, minTotal, maxTotal), Invoice.class, count, ESTIMATE_COUNT_CAP)
+                : null;
+
+        Query query = buildQuery(clientId, status, fromIso, toIso, minTotal, maxTotal);
+        if (after != null) {
+            query.addCriteria(after.seek());
+        }
+        query.with(SortKeyCursor.sort(order.getProperty(), order.getDirection())).limit(size + 1);
+
+        List<Invoice> rows = mongoTemplate.find(query, Invoice.class);
+        boolean hasMore = rows.size() > size;
+        List<Invoice> page = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            Invoice last = page.get(page.size() - 1);
+            nextCursor = new SortKeyCursor(order.getProperty(), order.getDirection(), sortKey.apply(last), last.getId()).encode();
+        }
+        List<InvoiceDTO> dtos = page.stream().map(mapper::toDto).collect(Collectors.toList());
+        return new CursorPage<>(dtos, nextCursor, hasMore,
+                total != null ? total.total() : null, total != null ? total.exact() : null);
+    }
+
+    @Override
+    public Query buildSearchQuery(String clientId, String status, String fromIso, String toIso, Double minTotal, Double maxTotal) {
+        return buildQuery(clientId, status, fromIso, toIso, minTotal, maxTotal);
     }
 
     private Query buildQuery(String clientId, String status, String fromIso, String toIso, Double minTotal, Double maxTotal) {
+        return new Query(buildCriteria(clientId, status, fromIso, toIso, minTotal, maxTotal));
+    }
+
+    private Criteria buildCriteria(String clientId, String status, String fromIso, String toIso, Double minTotal, Double maxTotal) {
         List<Criteria> criterias = new ArrayList<>();
         if (clientId != null && !clientId.isBlank()) criterias.add(Criteria.where("clientId").is(clientId));
         if (status != null && !status.isBlank()) criterias.add(Criteria.where("status").is(status));
@@ -216,12 +696,10 @@ public class InvoiceServiceImpl implements InvoiceService {
         if (minTotal != null) criterias.add(Criteria.where("total").gte(minTotal));
         if (maxTotal != null) criterias.add(Criteria.where("total").lte(maxTotal));
 
-        Query q = new Query();
-        if (!criterias.isEmpty()) {
-            Criteria combined = new Criteria().andOperator(criterias.toArray(new Criteria[0]));
-            q.addCriteria(combined);
+        if (criterias.isEmpty()) {
+            return new Criteria();
         }
-        return q;
+        return new Criteria().andOperator(criterias.toArray(new Criteria[0]));
     }
 
     private double computeSubtotalFromItems(List<InvoiceItemRequest> items) {
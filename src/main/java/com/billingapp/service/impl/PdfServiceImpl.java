@@ -4,9 +4,12 @@ import com.billingapp.entity.Client;
 import com.billingapp.entity.Company;
 import com.billingapp.entity.Invoice;
 import com.billingapp.repository.ClientRepository;
-import com.billingapp.repository.CompanyRepository;
 import com.billingapp.repository.InvoiceRepository;
+import com.billingapp.service.CompanyProfileProvider;
+import com.billingapp.service.LetterheadService;
+import com.billingapp.service.PdfAssetService;
 import com.billingapp.service.PdfService;
+import com.billingapp.service.RenderedDocumentCache;
 import com.billingapp.util.NumberToWords; 
 import com.lowagie.text.*;
 import com.lowagie.text.pdf.PdfPCell;
@@ -16,8 +19,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.awt.Color;
-import java.io.ByteArrayOutputStream;
-import java.net.URL;
+import java.io.OutputStream;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 
@@ -26,8 +28,11 @@ import java.time.format.DateTimeFormatter;
 public class PdfServiceImpl implements PdfService {
 
     private final InvoiceRepository invoiceRepository;
-    private final CompanyRepository companyRepository;
+    private final CompanyProfileProvider companyProfile;
     private final ClientRepository clientRepository;
+    private final RenderedDocumentCache documentCache;
+    private final LetterheadService letterheadService;
+    private final PdfAssetService assetService;
 
     // Fonts
     private static final Font FONT_BOLD_BIG = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16, Color.BLACK);
@@ -37,15 +42,28 @@ public class PdfServiceImpl implements PdfService {
     private static final Font FONT_RED_BOLD = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10, Color.RED);
 
     public PdfServiceImpl(InvoiceRepository invoiceRepository, 
-                          CompanyRepository companyRepository,
-                          ClientRepository clientRepository) {
+                          CompanyProfileProvider companyProfile,
+                          ClientRepository clientRepository,
+                          RenderedDocumentCache documentCache,
+                          LetterheadService letterheadService,
+                          PdfAssetService assetService) {
         this.invoiceRepository = invoiceRepository;
-        this.companyRepository = companyRepository;
+        this.companyProfile = companyProfile;
         this.clientRepository = clientRepository;
+        this.documentCache = documentCache;
+        this.letterheadService = letterheadService;
+        this.assetService = assetService;
     }
 
     @Override
     public byte[] generateInvoicePdf(String invoiceId) throws Exception {
+        try (RenderedDocumentCache.Rendered pdf = openInvoicePdf(invoiceId)) {
+            return pdf.readAllBytes();
+        }
+    }
+
+    @Override
+    public RenderedDocumentCache.Rendered openInvoicePdf(String invoiceId) throws Exception {
         log.info("Initiating structural PDF generation engine context pipeline for Invoice token ID: {}", invoiceId);
 
         Invoice invoice = invoiceRepository.findById(invoiceId)
@@ -57,6 +75,19 @@ public class PdfServiceImpl implements PdfService {
         Client client = clientRepository.findById(invoice.getClientId())
                 .orElse(new Client()); 
         
+        return openInvoicePdf(invoice, client);
+    }
+
+    @Override
+    public RenderedDocumentCache.Rendered openInvoicePdf(Invoice invoice, Client client) throws Exception {
+        CompanyProfileProvider.Snapshot profile = companyProfile.snapshot();
+        String version = documentCache.version(invoice, client, profile.version(), assetService.fingerprint());
+        return documentCache.open(RenderedDocumentCache.TYPE_INVOICE, invoice.getId(), version,
+                out -> renderInvoice(invoice, client, profile, out));
+    }
+
+    private void renderInvoice(Invoice invoice, Client client, CompanyProfileProvider.Snapshot profile, OutputStream out) throws Exception {
+        Company company = profile.company();
         String clientName = client.getName() != null ? client.getName() : "Unknown Client";
         
         // Check the invoice snapshot field first; fall back to master client record if empty
@@ -66,62 +97,13 @@ public class PdfServiceImpl implements PdfService {
         String clientState = client.getState() != null ? client.getState() : "-";
         String clientStateCode = client.getStateCode() != null ? client.getStateCode() : "27";
 
-        // Fetch Company Data
-        Company company = companyRepository.findById("MY_COMPANY").orElse(new Company());
-        if(company.getCompanyName() == null) {
-            company.setCompanyName("JMD DECOR");
-            company.setAddress("210 ASHIRWAD INDUSTRIAL ESTATE BLDG. NO:-5 RAM MANDIR ROAD, GOREGAON WEST MUMBAI 400104");
-            company.setEmail("jmdecor.2010@gmail.com");
-            company.setGstin("27AAOPY8409R1ZD");
-            company.setPhone("9819707090");
-            company.setBankName("Kotak Mahindra Bank");
-            company.setAccountNumber("9111365107");
-            company.setIfscCode("KKBK0000643");
-            company.setBranch("Jawahar Nagar Mumbai");
-        }
-
         Document document = new Document(PageSize.A4, 20, 20, 15, 15);
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        PdfWriter.getInstance(document, out);
+        PdfWriter writer = PdfWriter.getInstance(document, out);
 
-        document.open();
+        // --- 1. HEADER & FOOTER (Company, Logo & Bank): shared letterhead template stamped on every page ---
+        letterheadService.apply(writer, document, profile, 20);
 
-        // --- 1. HEADER (Logo & Company) ---
-        PdfPTable headerTable = new PdfPTable(2);
-        headerTable.setWidthPercentage(100);
-        headerTable.setWidths(new float[]{2, 1}); 
-
-        PdfPCell titleCell = new PdfPCell(new Phrase("", FONT_BOLD_BIG));
-        titleCell.setBorder(Rectangle.NO_BORDER);
-        headerTable.addCell(titleCell);
-
-        PdfPCell logoCell = new PdfPCell();
-        logoCell.setBorder(Rectangle.NO_BORDER);
-        logoCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
-        logoCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-
-        try {
-            Image img = null;
-            if (company.getLogoUrl() != null && !company.getLogoUrl().isBlank()) {
-                try { img = Image.getInstance(company.getLogoUrl()); } catch (Exception e) {}
-            }
-            if (img == null) {
-                URL logoResource = getClass().getResource("/logo.png");
-                if (logoResource != null) img = Image.getInstance(logoResource);
-            }
-            if (img != null) {
-                img.scaleToFit(100, 50); 
-                img.setAlignment(Element.ALIGN_RIGHT);
-                logoCell.addElement(img);
-            } else { throw new RuntimeException("No img"); }
-        } catch (Exception e) {
-            log.debug("Bypassing brand layout graphic insertion: exception encountered during asset extraction", e);
-            Paragraph p = new Paragraph("JMD\nDECOR", FONT_BOLD_BIG);
-            p.setAlignment(Element.ALIGN_RIGHT);
-            logoCell.addElement(p);
-        }
-        headerTable.addCell(logoCell);
-        document.add(headerTable);
+        document.open();
 
         // --- TITLE ROW ---
         PdfPTable titleRowTable = new PdfPTable(3);
@@ -148,25 +130,7 @@ public class PdfServiceImpl implements PdfService {
         document.add(new Paragraph("\n")); 
 
 
-        // --- 2. MAIN DETAILS GRID (Company & Invoice Info) ---
-        PdfPTable mainGrid = new PdfPTable(2);
-        mainGrid.setWidthPercentage(100);
-        mainGrid.setWidths(new float[]{1.2f, 1});
-
-        PdfPCell companyCell = new PdfPCell();
-        companyCell.setBorder(Rectangle.BOX);
-        companyCell.setPadding(5);
-        companyCell.addElement(new Paragraph(company.getCompanyName(), FONT_BOLD));
-        companyCell.addElement(new Paragraph(company.getAddress(), FONT_NORMAL));
-        companyCell.addElement(new Paragraph("Phone: " + company.getPhone(), FONT_NORMAL)); 
-        companyCell.addElement(new Paragraph("Email: " + company.getEmail(), FONT_NORMAL));
-        companyCell.addElement(new Paragraph("GST: " + company.getGstin(), FONT_BOLD));
-        
-        String udyam = company.getUdyamRegNo() != null ? company.getUdyamRegNo() : "-";
-        companyCell.addElement(new Paragraph("UDYAM REG NO: " + udyam, FONT_BOLD));
-        
-        mainGrid.addCell(companyCell);
-
+        // --- 2. MAIN DETAILS GRID (Invoice Info; company block is part of the letterhead) ---
         PdfPTable rightGrid = new PdfPTable(2);
         rightGrid.setWidthPercentage(100);
         DateTimeFormatter dtf = DateTimeFormatter.ofPattern("dd-MM-yyyy").withZone(ZoneId.systemDefault());
@@ -183,10 +147,7 @@ public class PdfServiceImpl implements PdfService {
         rightGrid.addCell(createLabelValueCell("P.O.:", invoice.getPoNumber()));
         rightGrid.addCell(createLabelValueCell("Date :", invoice.getPoDate() != null ? dtf.format(invoice.getPoDate()) : "-"));
         
-        PdfPCell rightCellContainer = new PdfPCell(rightGrid);
-        rightCellContainer.setPadding(0);
-        mainGrid.addCell(rightCellContainer);
-        document.add(mainGrid);
+        document.add(rightGrid);
 
         // --- 3. CLIENT DETAILS ---
         PdfPTable addressGrid = new PdfPTable(2);
@@ -271,50 +232,45 @@ public class PdfServiceImpl implements PdfService {
         cellTotal.setVerticalAlignment(Element.ALIGN_MIDDLE);
         footerTable.addCell(cellTotal);
 
-        PdfPCell cellBank = new PdfPCell();
-        cellBank.setBorder(Rectangle.BOX);
-        cellBank.setPadding(5);
-        cellBank.addElement(new Paragraph("Bank Details:", FONT_BOLD));
-        cellBank.addElement(new Paragraph("Bank: " + company.getBankName(), FONT_NORMAL));
-        cellBank.addElement(new Paragraph("Account No: " + company.getAccountNumber(), FONT_NORMAL));
-        cellBank.addElement(new Paragraph("IFSC Code: " + company.getIfscCode(), FONT_NORMAL));
-        cellBank.addElement(new Paragraph("Branch: " + company.getBranch(), FONT_NORMAL));
-        footerTable.addCell(cellBank);
+        // Bank details are printed in the letterhead footer band
+        PdfPCell cellDecl = new PdfPCell();
+        cellDecl.setBorder(Rectangle.BOX);
+        cellDecl.setPadding(5);
+        
+        Paragraph declP = new Paragraph();
+        declP.add(new Chunk("Declaration: ", FONT_BOLD)); 
+        declP.add(new Chunk("Certified that the particulars given above are true and correct and the amount indicated represents the price actually charged and that there is no flow of additional consideration directly or indirectly from the buyer.", FONT_SMALL));
+        cellDecl.addElement(declP);
+        
+        footerTable.addCell(cellDecl);
 
         PdfPCell cellSignatory = new PdfPCell();
         cellSignatory.setBorder(Rectangle.BOX);
-        cellSignatory.setRowspan(2); 
         cellSignatory.setHorizontalAlignment(Element.ALIGN_CENTER);
         cellSignatory.setVerticalAlignment(Element.ALIGN_MIDDLE); 
         cellSignatory.setPadding(5);
         
         Paragraph pSig = new Paragraph();
         pSig.add(new Paragraph("For JMD DÉCOR", FONT_BOLD));
-        pSig.add(Chunk.NEWLINE); 
-        pSig.add(Chunk.NEWLINE); 
-        pSig.add(Chunk.NEWLINE);
+        Image signature = assetService.image(PdfAssetService.SIGNATURE, 90, 36);
+        if (signature != null) {
+            pSig.add(new Chunk(signature, 0, 0, true));
+            pSig.add(Chunk.NEWLINE);
+        } else {
+            pSig.add(Chunk.NEWLINE); 
+            pSig.add(Chunk.NEWLINE); 
+            pSig.add(Chunk.NEWLINE);
+        }
         pSig.add(new Paragraph("PROPRIETOR", FONT_BOLD));
         pSig.setAlignment(Element.ALIGN_CENTER);
         cellSignatory.addElement(pSig);
         footerTable.addCell(cellSignatory);
 
-        PdfPCell cellDecl = new PdfPCell();
-        cellDecl.setBorder(Rectangle.BOX);
-        cellDecl.setPadding(5);
-        
-        Paragraph declP = new Paragraph();
-        declP.add(new Chunk("Declaration: ", FONT_BOLD)); 
-        declP.add(new Chunk("Certified that the particulars given above are true and correct and the amount indicated represents the price actually charged and that there is no flow of additional consideration directly or indirectly from the buyer.", FONT_SMALL));
-        cellDecl.addElement(declP);
-        
-        footerTable.addCell(cellDecl);
-
         document.add(footerTable);
 
         document.close();
         
-        log.info("PDF generation successfully completed for Invoice ID: {}", invoiceId);
-        return out.toByteArray();
+        log.info("PDF generation successfully completed for Invoice ID: {}", invoice.getId());
     }
 
     // --- HELPER: CREATE CLIENT CELL ---
@@ -0,0 +1,37 @@
+package com.billingapp.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The {@code fields=} selector of list endpoints: absent or {@code full} for complete documents,
+ * {@code summary} for the list-row DTO, or a comma-separated list of property names.
+ * The id is always returned; unknown names are rejected rather than silently dropped.
+ */
+public record FieldSelector(Mode mode, List<String> fields) {
+
+    public enum Mode { FULL, SUMMARY, CUSTOM }
+
+    public static final FieldSelector FULL = new FieldSelector(Mode.FULL, List.of());
+    public static final FieldSelector SUMMARY = new FieldSelector(Mode.SUMMARY, List.of());
+
+    public static FieldSelector parse(String fields, Set<String> allowed) {
+        if (fields == null || fields.isBlank() || "full".equalsIgnoreCase(fields.trim())) {
+            return FULL;
+        }
+        if ("summary".equalsIgnoreCase(fields.trim())) {
+            return SUMMARY;
+        }
+        List<String> selected = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty() || "id".equals(name) || selected.contains(name)) continue;
+            if (!allowed.contains(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name + " (expected summary, full or any of " + allowed + ")");
+            }
+            selected.add(name);
+        }
+        return new FieldSelector(Mode.CUSTOM, List.copyOf(selected));
+    }
+}
@@ -0,0 +1,57 @@
+package com.billingapp.util;
+
+import java.time.LocalDate;
+import java.time.Month;
+
+/**
+ * Indian financial year helpers (April to March).
+ * Labels use the "2025-26" form that also appears in document numbers (e.g. JMD/2025-26/01).
+ */
+public class FinancialYear {
+
+    /** Calendar year in which the financial year containing {@code date} starts. */
+    public static int startYearOf(LocalDate date) {
+        return date.getMonthValue() >= Month.APRIL.getValue() ? date.getYear() : date.getYear() - 1;
+    }
+
+    public static LocalDate firstDay(int startYear) {
+        return LocalDate.of(startYear, Month.APRIL, 1);
+    }
+
+    public static LocalDate lastDay(int startYear) {
+        return LocalDate.of(startYear + 1, Month.MARCH, 31);
+    }
+
+    /** 2025 -> "2025-26" */
+    public static String label(int startYear) {
+        return String.format("%d-%02d", startYear, (startYear + 1) % 100);
+    }
+
+    public static String labelOf(LocalDate date) {
+        return label(startYearOf(date));
+    }
+
+    /**
+     * Parses "2025-26", "2025-2026" or "2025" into the starting calendar year.
+     */
+    public static int parseStartYear(String fy) {
+        if (fy == null || fy.isBlank()) {
+            throw new IllegalArgumentException("Financial year is required");
+        }
+        String trimmed = fy.trim();
+        try {
+            int dash = trimmed.indexOf('-');
+            int start = Integer.parseInt(dash > 0 ? trimmed.substring(0, dash) : trimmed);
+            if (dash > 0) {
+                String end = trimmed.substring(dash + 1);
+                int expected = end.length() == 2 ? (start + 1) % 100 : start + 1;
+                if (Integer.parseInt(end) != expected) {
+                    throw new IllegalArgumentException("Invalid financial year: " + fy);
+                }
+            }
+            return start;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid financial year: " + fy);
+        }
+    }
+}
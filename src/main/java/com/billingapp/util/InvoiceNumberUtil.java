@@ -3,6 +3,11 @@ package com.billingapp.util;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 
+/**
+ * @deprecated the millisecond-based sequence collides; numbers come from
+ * {@link com.billingapp.service.DocumentNumberService} counters.
+ */
+@Deprecated
 public class InvoiceNumberUtil {
 
     /**
@@ -10,6 +15,7 @@ public class InvoiceNumberUtil {
      * Format: YYYYMM-<5-digit-random> e.g. 202512-04213
      * Simple and collision-resistant for development.
      */
+    @Deprecated
     public static String generate() {
         String prefix = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMM"));
         int seq = (int)(System.currentTimeMillis() % 100000); // quick sequence
@@ -0,0 +1,56 @@
+package com.billingapp.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free, fixed-bucket latency histogram for the in-app metrics endpoints.
+ * Percentiles are approximated by the upper bound of the bucket they fall in.
+ */
+public class LatencyHistogram {
+
+    private static final long[] BOUNDS_MS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_MS.length + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMs = new LongAdder();
+    private final AtomicLong maxMs = new AtomicLong();
+
+    public void record(long millis) {
+        int i = 0;
+        while (i < BOUNDS_MS.length && millis > BOUNDS_MS[i]) i++;
+        buckets.incrementAndGet(i);
+        count.increment();
+        totalMs.add(millis);
+        maxMs.accumulateAndGet(millis, Math::max);
+    }
+
+    public long percentile(double p) {
+        long total = count.sum();
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(total * p);
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return i < BOUNDS_MS.length ? BOUNDS_MS[i] : maxMs.get();
+            }
+        }
+        return maxMs.get();
+    }
+
+    public Map<String, Object> snapshot() {
+        long total = count.sum();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", total);
+        map.put("avgMs", total == 0 ? 0 : totalMs.sum() / total);
+        map.put("p50Ms", percentile(0.50));
+        map.put("p95Ms", percentile(0.95));
+        map.put("p99Ms", percentile(0.99));
+        map.put("maxMs", maxMs.get());
+        return map;
+    }
+}
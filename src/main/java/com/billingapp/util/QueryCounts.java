@@ -0,0 +1,38 @@
+package com.billingapp.util;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+/**
+ * Optional totals for cursor listings ({@code count=none|estimate|exact}).
+ * <p>
+ * {@code estimate} reads the collection metadata when there is no filter, and otherwise counts at most
+ * {@code cap} matches, so a broad filter over years of documents costs a bounded index scan; a capped
+ * result is reported as a lower bound ({@code exact=false}).
+ */
+public final class QueryCounts {
+
+    public record Count(long total, boolean exact) {}
+
+    private QueryCounts() {
+    }
+
+    /** Returns null for {@code none} (the default). */
+    public static Count count(MongoTemplate mongoTemplate, Query filter, Class<?> type, String mode, int cap) {
+        if (mode == null || mode.isBlank() || "none".equalsIgnoreCase(mode)) {
+            return null;
+        }
+        Query query = Query.of(filter).limit(0).skip(0);
+        if ("exact".equalsIgnoreCase(mode)) {
+            return new Count(mongoTemplate.count(query, type), true);
+        }
+        if (!"estimate".equalsIgnoreCase(mode)) {
+            throw new IllegalArgumentException("Unknown count mode: " + mode + " (expected none, estimate or exact)");
+        }
+        if (query.getQueryObject().isEmpty()) {
+            return new Count(mongoTemplate.estimatedCount(type), false);
+        }
+        long counted = mongoTemplate.count(query.limit(cap), type);
+        return new Count(counted, counted < cap);
+    }
+}
@@ -0,0 +1,100 @@
+package com.billingapp.util;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Opaque keyset cursor for a listing sorted by one field (then {@code _id} as tie-breaker): the field,
+ * the direction, and the last row's value and id, encoded as URL-safe base64.
+ * <p>
+ * {@link #seek()} turns it into range predicates, so page N costs the same as page 1 instead of skipping
+ * N * size documents. Missing / null values sort lowest in Mongo and are handled explicitly.
+ * The value may be a timestamp, a number or a string.
+ */
+public record SortKeyCursor(String field, Sort.Direction direction, Object value, String id) {
+
+    public SortKeyCursor {
+        if (value instanceof Date date) value = date.toInstant();
+        if (value instanceof Number number && !(value instanceof Double)) value = number.doubleValue();
+    }
+
+    /** Sort matching the cursor: the field, then _id in the same direction. */
+    public static Sort sort(String field, Sort.Direction direction) {
+        return Sort.by(direction, field).and(Sort.by(direction, "_id"));
+    }
+
+    /** Rows strictly after this cursor in {@link #sort} order. */
+    public Criteria seek() {
+        boolean asc = direction.isAscending();
+        Criteria sameValueLaterId = asc ? Criteria.where("_id").gt(id) : Criteria.where("_id").lt(id);
+        if (value == null) {
+            // Nulls come first ascending (then every non-null value), last descending
+            Criteria sameNull = new Criteria().andOperator(Criteria.where(field).is(null), sameValueLaterId);
+            return asc ? new Criteria().orOperator(sameNull, Criteria.where(field).ne(null)) : sameNull;
+        }
+        Criteria beyond = asc ? Criteria.where(field).gt(value) : Criteria.where(field).lt(value);
+        Criteria tie = new Criteria().andOperator(Criteria.where(field).is(value), sameValueLaterId);
+        return asc
+                ? new Criteria().orOperator(beyond, tie)
+                : new Criteria().orOperator(beyond, tie, Criteria.where(field).is(null));
+    }
+
+    public String encode() {
+        String tag;
+        String raw;
+        if (value == null) {
+            tag = "n";
+            raw = "";
+        } else if (value instanceof Instant instant) {
+            tag = "t";
+            raw = String.valueOf(instant.toEpochMilli());
+        } else if (value instanceof Double number) {
+            tag = "d";
+            raw = String.valueOf(number);
+        } else {
+            tag = "s";
+            raw = value.toString();
+        }
+        // The value goes last: strings may contain the separator
+        String plain = field + "|" + (direction.isAscending() ? "a" : "d") + "|" + id + "|" + tag + "|" + raw;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns null for a missing cursor (first page). Malformed cursors, and cursors issued for a different
+     * sort than {@code field} / {@code direction}, are rejected.
+     */
+    public static SortKeyCursor decode(String cursor, String field, Sort.Direction direction) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        SortKeyCursor decoded;
+        try {
+            String plain = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            String[] parts = plain.split("\\|", 5);
+            if (parts.length != 5 || parts[2].isEmpty()) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            Object value = switch (parts[3]) {
+                case "n" -> null;
+                case "t" -> Instant.ofEpochMilli(Long.parseLong(parts[4]));
+                case "d" -> Double.parseDouble(parts[4]);
+                case "s" -> parts[4];
+                default -> throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            };
+            decoded = new SortKeyCursor(parts[0], "a".equals(parts[1]) ? Sort.Direction.ASC : Sort.Direction.DESC, value, parts[2]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        if (!decoded.field().equals(field) || decoded.direction() != direction) {
+            throw new IllegalArgumentException("Cursor was issued for sort " + decoded.field() + "," + decoded.direction().name().toLowerCase()
+                    + "; start again without a cursor to change the sort");
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,90 @@
+package com.billingapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocumentNumberServiceTest {
+
+    private static final Pattern NUMBER = DocumentNumberService.numberPattern("JMD/{fy}/");
+
+    @Test
+    void numberPatternMatchesAnyFinancialYearAndCapturesTheSequence() {
+        Matcher matcher = NUMBER.matcher("JMD/2025-26/014");
+        assertThat(matcher.matches()).isTrue();
+        assertThat(matcher.group(1)).isEqualTo("014");
+        assertThat("JMD/2025-26/014".substring(0, matcher.start(1))).isEqualTo("JMD/2025-26/");
+
+        assertThat(NUMBER.matcher("JMD/2019-20/1").matches()).isTrue();
+    }
+
+    @Test
+    void numberPatternRejectsNumbersOutsideTheSeries() {
+        assertThat(NUMBER.matcher("JMD/2025-26/").matches()).isFalse();      // no sequence
+        assertThat(NUMBER.matcher("JMD/2025-26/14A").matches()).isFalse();   // suffix
+        assertThat(NUMBER.matcher("JMD/25-26/014").matches()).isFalse();     // short FY
+        assertThat(NUMBER.matcher("ABC/2025-26/014").matches()).isFalse();   // other prefix
+        assertThat(NUMBER.matcher("JMDX2025-26/014").matches()).isFalse();   // '/' is literal
+    }
+
+    @Test
+    void numberPatternQuotesRegexCharactersOfThePrefix() {
+        Pattern pattern = DocumentNumberService.numberPattern("INV.{fy}-(A)-");
+        assertThat(pattern.matcher("INV.2025-26-(A)-7").matches()).isTrue();
+        assertThat(pattern.matcher("INVx2025-26-(A)-7").matches()).isFalse();
+        assertThat(pattern.matcher("INV.2025-26-A-7").matches()).isFalse();
+    }
+
+    @Test
+    void seriesRegexEscapesThePrefixAndAcceptsDigitsOnly() {
+        String regex = DocumentNumberService.seriesRegex("JMD/2025-26/");
+        assertThat(regex).isEqualTo("^JMD\\/2025\\-26\\/\\d+$");
+
+        Pattern pattern = Pattern.compile(regex);
+        assertThat(pattern.matcher("JMD/2025-26/014").matches()).isTrue();
+        assertThat(pattern.matcher("JMD/2025-26/1000").matches()).isTrue();
+        assertThat(pattern.matcher("JMD/2025-26/014-R").matches()).isFalse();
+        assertThat(pattern.matcher("JMD/2024-25/014").matches()).isFalse();
+    }
+
+    @Test
+    void seriesRegexTreatsDotsAndBracketsLiterally() {
+        Pattern pattern = Pattern.compile(DocumentNumberService.seriesRegex("A.B[1]/"));
+        assertThat(pattern.matcher("A.B[1]/5").matches()).isTrue();
+        assertThat(pattern.matcher("AxB1/5").matches()).isFalse();
+    }
+
+    @Test
+    void firstOfRangeIsTheFirstNumberReservedByTheIncrement() {
+        assertThat(DocumentNumberService.firstOfRange(1, 1)).isEqualTo(1);
+        assertThat(DocumentNumberService.firstOfRange(15, 1)).isEqualTo(15);
+        assertThat(DocumentNumberService.firstOfRange(60, 10)).isEqualTo(51);
+    }
+
+    @Test
+    void blockHandsOutEachReservedNumberOnceThenRunsDry() {
+        DocumentNumberService.Block block = new DocumentNumberService.Block();
+        assertThat(block.exhausted()).isTrue(); // nothing reserved yet
+
+        block.refill(DocumentNumberService.firstOfRange(60, 10), 10);
+        for (long expected = 51; expected <= 60; expected++) {
+            assertThat(block.exhausted()).isFalse();
+            assertThat(block.take()).isEqualTo(expected);
+        }
+        assertThat(block.exhausted()).isTrue();
+
+        block.refill(DocumentNumberService.firstOfRange(70, 10), 10);
+        assertThat(block.take()).isEqualTo(61);
+    }
+
+    @Test
+    void blockOfOneBehavesLikeDirectAllocation() {
+        DocumentNumberService.Block block = new DocumentNumberService.Block();
+        block.refill(7, 1);
+        assertThat(block.take()).isEqualTo(7);
+        assertThat(block.exhausted()).isTrue();
+    }
+}
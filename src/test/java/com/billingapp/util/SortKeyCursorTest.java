@@ -0,0 +1,128 @@
+package com.billingapp.util;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SortKeyCursorTest {
+
+    private static SortKeyCursor roundTrip(SortKeyCursor cursor) {
+        return SortKeyCursor.decode(cursor.encode(), cursor.field(), cursor.direction());
+    }
+
+    @Test
+    void timestampRoundTripsAtMillisecondPrecision() {
+        SortKeyCursor cursor = new SortKeyCursor("createdAt", Sort.Direction.DESC, Instant.parse("2025-04-01T10:15:30.123Z"), "abc");
+        assertThat(roundTrip(cursor)).isEqualTo(cursor);
+    }
+
+    @Test
+    void dateIsNormalisedToInstant() {
+        Instant at = Instant.parse("2025-04-01T10:15:30.123Z");
+        SortKeyCursor cursor = new SortKeyCursor("issuedAt", Sort.Direction.ASC, Date.from(at), "abc");
+        assertThat(cursor.value()).isEqualTo(at);
+        assertThat(roundTrip(cursor).value()).isEqualTo(at);
+    }
+
+    @Test
+    void numbersRoundTripAsDouble() {
+        SortKeyCursor fromInt = new SortKeyCursor("total", Sort.Direction.DESC, 1500, "abc");
+        assertThat(fromInt.value()).isEqualTo(1500.0);
+        assertThat(roundTrip(fromInt)).isEqualTo(fromInt);
+
+        SortKeyCursor fraction = new SortKeyCursor("total", Sort.Direction.ASC, 99.95, "abc");
+        assertThat(roundTrip(fraction)).isEqualTo(fraction);
+    }
+
+    @Test
+    void stringRoundTripsEvenWithTheSeparator() {
+        SortKeyCursor cursor = new SortKeyCursor("invoiceNo", Sort.Direction.ASC, "JMD/2025-26|014 ₹", "abc");
+        assertThat(roundTrip(cursor)).isEqualTo(cursor);
+    }
+
+    @Test
+    void nullValueRoundTrips() {
+        SortKeyCursor cursor = new SortKeyCursor("dueDate", Sort.Direction.ASC, null, "abc");
+        assertThat(roundTrip(cursor)).isEqualTo(cursor);
+    }
+
+    @Test
+    void missingCursorIsTheFirstPage() {
+        assertThat(SortKeyCursor.decode(null, "createdAt", Sort.Direction.DESC)).isNull();
+        assertThat(SortKeyCursor.decode("  ", "createdAt", Sort.Direction.DESC)).isNull();
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThatThrownBy(() -> SortKeyCursor.decode("not base64!", "createdAt", Sort.Direction.DESC))
+                .isInstanceOf(IllegalArgumentException.class);
+        String noId = java.util.Base64.getUrlEncoder().encodeToString("createdAt|d||t|1".getBytes());
+        assertThatThrownBy(() -> SortKeyCursor.decode(noId, "createdAt", Sort.Direction.DESC))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void cursorForAnotherSortIsRejected() {
+        String encoded = new SortKeyCursor("total", Sort.Direction.DESC, 10.0, "abc").encode();
+        assertThatThrownBy(() -> SortKeyCursor.decode(encoded, "total", Sort.Direction.ASC))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("start again");
+        assertThatThrownBy(() -> SortKeyCursor.decode(encoded, "createdAt", Sort.Direction.DESC))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void seekAscendingAfterValueTakesLaterValuesAndTiesWithLaterIds() {
+        Document seek = new SortKeyCursor("total", Sort.Direction.ASC, 10.0, "m").seek().getCriteriaObject();
+        List<?> or = (List<?>) seek.get("$or");
+        assertThat(or).hasSize(2); // nulls sort first ascending, so they are all behind the cursor
+        assertThat(or.get(0)).isEqualTo(new Document("total", new Document("$gt", 10.0)));
+        assertThat(or.get(1)).isEqualTo(new Document("$and", List.of(
+                new Document("total", 10.0),
+                new Document("_id", new Document("$gt", "m")))));
+    }
+
+    @Test
+    void seekDescendingAfterValueAlsoTakesNulls() {
+        Document seek = new SortKeyCursor("total", Sort.Direction.DESC, 10.0, "m").seek().getCriteriaObject();
+        List<?> or = (List<?>) seek.get("$or");
+        assertThat(or).hasSize(3);
+        assertThat(or.get(0)).isEqualTo(new Document("total", new Document("$lt", 10.0)));
+        assertThat(or.get(1)).isEqualTo(new Document("$and", List.of(
+                new Document("total", 10.0),
+                new Document("_id", new Document("$lt", "m")))));
+        assertThat(or.get(2)).isEqualTo(new Document("total", null)); // nulls sort last descending
+    }
+
+    @Test
+    void seekAscendingFromNullTakesLaterNullsThenEveryValue() {
+        Document seek = new SortKeyCursor("dueDate", Sort.Direction.ASC, null, "m").seek().getCriteriaObject();
+        List<?> or = (List<?>) seek.get("$or");
+        assertThat(or).hasSize(2);
+        assertThat(or.get(0)).isEqualTo(new Document("$and", List.of(
+                new Document("dueDate", null),
+                new Document("_id", new Document("$gt", "m")))));
+        assertThat(or.get(1)).isEqualTo(new Document("dueDate", new Document("$ne", null)));
+    }
+
+    @Test
+    void seekDescendingFromNullOnlyTakesRemainingNulls() {
+        Document seek = new SortKeyCursor("dueDate", Sort.Direction.DESC, null, "m").seek().getCriteriaObject();
+        assertThat(seek).isEqualTo(new Document("$and", List.of(
+                new Document("dueDate", null),
+                new Document("_id", new Document("$lt", "m")))));
+    }
+
+    @Test
+    void sortBreaksTiesOnIdInTheSameDirection() {
+        assertThat(SortKeyCursor.sort("total", Sort.Direction.DESC))
+                .isEqualTo(Sort.by(Sort.Direction.DESC, "total").and(Sort.by(Sort.Direction.DESC, "_id")));
+    }
+}